@@ -0,0 +1,75 @@
+package com.educandoweb.springBootStudies.config;
+
+import java.util.concurrent.RejectedExecutionException;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.jvm.ExecutorServiceMetrics;
+
+/*Auxiliary Configuration Class that defines the dedicated Executor of the asynchronous Order End Points (see OrderResource).
+  The Order queries run at this Executor instead of at the Tomcat worker threads, so that slow Order queries can only
+  occupy the Executor threads, while cheap End Points (such as /categories/{id}) keep being served by Tomcat*/
+
+@Configuration
+public class AsyncConfig implements WebMvcConfigurer {
+
+	public static final String ORDER_EXECUTOR = "orderExecutor";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	//Same default as HikariCP's own maximumPoolSize
+	@Value("${spring.datasource.hikari.maximum-pool-size:10}")
+	private int poolSize;
+
+	@Value("${orders.async.queue-capacity:100}")
+	private int queueCapacity;
+
+	/*Since every Order task holds a Database Connection while it runs, the Executor has as many threads as the
+	  Connection Pool has Connections (more threads would only wait for a Connection). Tasks that arrive while all
+	  threads are busy wait at a bounded queue, and when the queue is full they are rejected (HTTP 503, see
+	  ResourceExceptionHandler) instead of piling up*/
+
+	/*OBS: The Executor state (active threads, queued tasks, completed tasks) is published as "executor.*" metrics
+	  tagged name=orders, and each rejected task increments the "executor.rejected" Counter*/
+	@Bean(name = ORDER_EXECUTOR)
+	public ThreadPoolTaskExecutor orderExecutor() {
+
+		Tags tags = Tags.of("name", "orders");
+		Counter rejected = Counter.builder("executor.rejected")
+				.description("Tasks rejected because the executor queue was full")
+				.tags(tags)
+				.register(meterRegistry);
+
+		ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+		executor.setCorePoolSize(poolSize);
+		executor.setMaxPoolSize(poolSize);
+		executor.setQueueCapacity(queueCapacity);
+		executor.setThreadNamePrefix("orders-");
+		executor.setRejectedExecutionHandler((task, pool) -> {
+			rejected.increment();
+			throw new RejectedExecutionException("Order executor is saturated (" + pool.getQueue().size() + " tasks queued)");
+		});
+		executor.initialize();
+
+		new ExecutorServiceMetrics(executor.getThreadPoolExecutor(), "orders", tags).bindTo(meterRegistry);
+		return executor;
+	}
+
+	/*OBS2: Once this Executor is declared, Spring Boot no longer creates its default "applicationTaskExecutor", which
+	  used to run the StreamingResponseBody of /orders/export. The export also holds a Database Connection while
+	  streaming, so it is bounded by the same Executor*/
+	@Override
+	public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+		configurer.setTaskExecutor(orderExecutor());
+	}
+}
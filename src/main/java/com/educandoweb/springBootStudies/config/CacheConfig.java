@@ -0,0 +1,17 @@
+package com.educandoweb.springBootStudies.config;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+/*Auxiliary Configuration Class that enables Spring's Cache Abstraction (@Cacheable, @CacheEvict, etc).
+  The Cache Provider (Caffeine), the Cache names and their size/TTL limits are defined at application.properties*/
+
+@Configuration
+
+/*OBS: The Cache Interceptor is set to run before the Transaction Interceptor, so that a Cache hit
+  returns right away without opening a Transaction (and without borrowing a Database Connection)*/
+@EnableCaching(order = Ordered.HIGHEST_PRECEDENCE)
+public class CacheConfig {
+
+}
@@ -0,0 +1,31 @@
+package com.educandoweb.springBootStudies.config;
+
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import com.zaxxer.hikari.HikariDataSource;
+
+/*Auxiliary Configuration Class that declares the JDBC DataSource used by JPA. Spring Boot would create it on its own,
+  but it skips the JDBC DataSource whenever an R2DBC ConnectionFactory exists (the one of the reactive catalog, see
+  ReactiveCatalogServer). So it is declared here, exactly as Spring Boot would do it: bound to the spring.datasource.*
+  properties of each profile, and with the HikariCP settings bound to spring.datasource.hikari.*/
+
+@Configuration
+public class DataSourceConfig {
+
+	@Bean
+	@Primary
+	@ConfigurationProperties("spring.datasource")
+	public DataSourceProperties dataSourceProperties() {
+		return new DataSourceProperties();
+	}
+
+	@Bean
+	@ConfigurationProperties("spring.datasource.hikari")
+	public HikariDataSource dataSource(DataSourceProperties properties) {
+		return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+	}
+}
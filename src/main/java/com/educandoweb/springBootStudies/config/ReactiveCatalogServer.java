@@ -0,0 +1,85 @@
+package com.educandoweb.springBootStudies.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.HttpHandler;
+import org.springframework.http.server.reactive.ReactorHttpHandlerAdapter;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.HandlerStrategies;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+
+import com.educandoweb.springBootStudies.resources.CatalogReactiveResource;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+/*Auxiliary Component that serves the reactive catalog End Points (CatalogReactiveResource) through a Reactor Netty
+  HTTP Server, at its own port (catalog.reactive.port), next to the Tomcat Server of the other End Points. Reactor Netty
+  handles every connection at a small number of event loop threads (one per CPU core), which never block: while a
+  request waits for the Database, its thread serves other requests*/
+
+/*OBS: The application itself remains a Servlet (Spring MVC) application. This Server is started after the application
+  context is ready and stopped before it is closed. It can be turned off through catalog.reactive.enabled=false*/
+
+@Component
+@ConditionalOnProperty(name = "catalog.reactive.enabled", havingValue = "true", matchIfMissing = true)
+public class ReactiveCatalogServer implements SmartLifecycle {
+
+	private static final Logger log = LoggerFactory.getLogger(ReactiveCatalogServer.class);
+
+	@Autowired
+	private CatalogReactiveResource catalogResource;
+
+	//Setting dependence to Spring's own Jackson ObjectMapper, so that the reactive End Points use the same JSON settings
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Value("${catalog.reactive.port:8091}")
+	private int port;
+
+	private volatile DisposableServer server;
+
+	@Override
+	public void start() {
+		HandlerStrategies strategies = HandlerStrategies.builder()
+				.codecs(codecs -> {
+					codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+					codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+				})
+				.build();
+		HttpHandler httpHandler = RouterFunctions.toHttpHandler(catalogResource.routes(), strategies);
+
+		server = HttpServer.create()
+				.port(port)
+				//Publishing http.server.* metrics of the reactive End Points, with the ids replaced by {id} to bound the amount of tags
+				.metrics(true, uri -> uri.replaceAll("/\\d+$", "/{id}"))
+				.handle(new ReactorHttpHandlerAdapter(httpHandler))
+				.bindNow();
+		log.info("Reactive catalog started on port {}", server.port());
+	}
+
+	@Override
+	public void stop() {
+		if (server != null) {
+			server.disposeNow();
+			server = null;
+		}
+	}
+
+	@Override
+	public boolean isRunning() {
+		return server != null;
+	}
+
+	//Actual port of the Server (useful when catalog.reactive.port=0 picks a random one)
+	public int getPort() {
+		return server.port();
+	}
+}
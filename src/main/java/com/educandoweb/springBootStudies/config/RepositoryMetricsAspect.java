@@ -0,0 +1,77 @@
+package com.educandoweb.springBootStudies.config;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*Auxiliary Aspect that times every call to the Repositories of the application (including the methods inherited
+  from JpaRepository, such as findAll() and save()). Each call is recorded at the "repository.invocations" Timer,
+  tagged with the Repository name, the method name and the Exception thrown ("none" on success). This way,
+  the count, the latency and the error rate of each Repository method are exposed at /actuator/prometheus*/
+
+/*OBS: The latency Histogram of this Timer is enabled at application.properties
+  (management.metrics.distribution.percentiles-histogram.repository.invocations)*/
+
+/*OBS2: For methods returning a Stream (such as OrderRepository.streamAll()), only the query execution is timed,
+  since the rows are fetched later, while the Stream is consumed*/
+
+@Aspect
+@Component
+public class RepositoryMetricsAspect {
+
+	public static final String METRIC_NAME = "repository.invocations";
+
+	private static final String REPOSITORIES_PACKAGE = "com.educandoweb.springBootStudies.repositories";
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	//Repository interface name of each Repository implementation Class, found once per Class
+	private final Map<Class<?>, String> repositoryNames = new ConcurrentHashMap<>();
+
+	@Around("execution(public * *(..)) && target(org.springframework.data.repository.Repository)")
+	public Object time(ProceedingJoinPoint joinPoint) throws Throwable {
+
+		String repository = repositoryName(joinPoint.getTarget());
+		if (repository.isEmpty()) {
+			return joinPoint.proceed();
+		}
+
+		Timer.Sample sample = Timer.start(meterRegistry);
+		String exception = "none";
+		try {
+			return joinPoint.proceed();
+		} catch (Throwable e) {
+			exception = e.getClass().getSimpleName();
+			throw e;
+		} finally {
+			sample.stop(Timer.builder(METRIC_NAME)
+					.description("Invocations of the Spring Data Repositories")
+					.tag("repository", repository)
+					.tag("method", joinPoint.getSignature().getName())
+					.tag("exception", exception)
+					.register(meterRegistry));
+		}
+	}
+
+	//Returning the simple name of the application Repository interface implemented by the target (or "" for other Repositories)
+	private String repositoryName(Object target) {
+		return repositoryNames.computeIfAbsent(target.getClass(), type -> {
+			for (Class<?> candidate : AopProxyUtils.proxiedUserInterfaces(target)) {
+				if (candidate.getName().startsWith(REPOSITORIES_PACKAGE)) {
+					return candidate.getSimpleName();
+				}
+			}
+			return "";
+		});
+	}
+}
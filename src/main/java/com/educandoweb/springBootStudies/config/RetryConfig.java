@@ -0,0 +1,81 @@
+package com.educandoweb.springBootStudies.config;
+
+import java.time.Duration;
+
+import org.aopalliance.intercept.MethodInterceptor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.retry.RetryCallback;
+import org.springframework.retry.RetryContext;
+import org.springframework.retry.annotation.EnableRetry;
+import org.springframework.retry.interceptor.RetryInterceptorBuilder;
+import org.springframework.retry.listener.RetryListenerSupport;
+import org.springframework.retry.support.RetryTemplate;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*Auxiliary Configuration Class that defines the retry policy of the updates protected by Optimistic Locking (the @Version
+  columns of User, Product, Category and Order). When two requests update the same row at the same time, the UPDATE of
+  the second one finds a newer version and fails with an OptimisticLockingFailureException at the commit. Instead of
+  answering it with an error right away, the whole transactional method is executed again (reading the row again), up
+  to optimistic-lock.retry.max-attempts times*/
+
+/*OBS: Between the attempts, each thread waits an exponentially growing delay (initial-delay, multiplied by 2 at each
+  attempt up to max-delay), randomized (jittered) so that the requests that collided do not collide again at the same
+  instant. When the attempts are exhausted, the Exception reaches ResourceExceptionHandler (409 Conflict)*/
+
+/*OBS2: The retried methods are annotated with @Retryable(interceptor = RetryConfig.OPTIMISTIC_LOCK_RETRY). Since the
+  retry advice wraps the @Transactional one, each attempt runs at its own transaction. Every failed attempt increments
+  the "optimistic.lock.conflicts" Counter, which measures how contended the rows are, and is logged at DEBUG level
+  (logging.level.com.educandoweb.springBootStudies.config.RetryConfig=debug) along with the failed attempt*/
+
+@Configuration
+@EnableRetry
+public class RetryConfig {
+
+	public static final String OPTIMISTIC_LOCK_RETRY = "optimisticLockRetry";
+
+	private static final Logger log = LoggerFactory.getLogger(RetryConfig.class);
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${optimistic-lock.retry.max-attempts:4}")
+	private int maxAttempts;
+
+	@Value("${optimistic-lock.retry.initial-delay:10ms}")
+	private Duration initialDelay;
+
+	@Value("${optimistic-lock.retry.max-delay:200ms}")
+	private Duration maxDelay;
+
+	@Bean(name = OPTIMISTIC_LOCK_RETRY)
+	public MethodInterceptor optimisticLockRetry() {
+
+		Counter conflicts = Counter.builder("optimistic.lock.conflicts")
+				.description("Update attempts that failed because of an optimistic locking conflict")
+				.register(meterRegistry);
+
+		RetryTemplate template = RetryTemplate.builder()
+				.maxAttempts(maxAttempts)
+				.exponentialBackoff(initialDelay.toMillis(), 2, maxDelay.toMillis(), true)
+				.retryOn(OptimisticLockingFailureException.class)
+				.traversingCauses()
+				.withListener(new RetryListenerSupport() {
+					@Override
+					public <T, E extends Throwable> void onError(RetryContext context, RetryCallback<T, E> callback, Throwable throwable) {
+						conflicts.increment();
+						log.debug("Optimistic locking conflict at attempt {} of {}: {}", context.getRetryCount(), maxAttempts, throwable.getMessage());
+					}
+				})
+				.build();
+
+		return RetryInterceptorBuilder.stateless().retryOperations(template).build();
+	}
+}
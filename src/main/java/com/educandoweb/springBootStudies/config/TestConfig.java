@@ -103,12 +103,13 @@ public class TestConfig implements CommandLineRunner{
 		Category cat3 = new Category(null, "Computers");
 		
 		//Instancing Product objects with null IDs once they will be auto-generated as keys at the database
+		//OBS: The prices are informed in minor units (cents), so 9050 stands for 90.50 (see MinorUnitsConverter)
 
-		Product prod1 = new Product(null, "The Lord of the Rings", "Lorem ipsum dolor sit amet, consectetur.", 90.5, "");
-		Product prod2 = new Product(null, "Smart TV", "Nulla eu imperdiet purus. Maecenas ante.", 2190.0, "");
-		Product prod3 = new Product(null, "Macbook Pro", "Nam eleifend maximus tortor, at mollis.", 1250.0, "");
-		Product prod4 = new Product(null, "PC Gamer", "Donec aliquet odio ac rhoncus cursus.", 1200.0, "");
-		Product prod5 = new Product(null, "Rails for Dummies", "Cras fringilla convallis sem vel faucibus.", 100.99, ""); 
+		Product prod1 = new Product(null, "The Lord of the Rings", "Lorem ipsum dolor sit amet, consectetur.", 9050, "");
+		Product prod2 = new Product(null, "Smart TV", "Nulla eu imperdiet purus. Maecenas ante.", 219000, "");
+		Product prod3 = new Product(null, "Macbook Pro", "Nam eleifend maximus tortor, at mollis.", 125000, "");
+		Product prod4 = new Product(null, "PC Gamer", "Donec aliquet odio ac rhoncus cursus.", 120000, "");
+		Product prod5 = new Product(null, "Rails for Dummies", "Cras fringilla convallis sem vel faucibus.", 10099, ""); 
 
 	
 		/*Using Repository objects to perform their respective Repository roles of Data-Accessing while saving the 
@@ -148,8 +149,18 @@ public class TestConfig implements CommandLineRunner{
 		  instanced OrderItem objects at the tb_order_item Table (DataBase Seeding) 
 		  through Arrays.asList() direct List Instantiation*/
 		
+		/*Adding each OrderItem to its Order, so that the Orders' persisted Totals are updated
+		  with the OrderItems' Subtotals*/
+		o1.addItem(oi1);
+		o1.addItem(oi2);
+		o2.addItem(oi3);
+		o3.addItem(oi4);
+		
 		orderItemRepository.saveAll(Arrays.asList(oi1,oi2,oi3,oi4));
 		
+		//Re-saving the Orders in order to persist their updated Totals at tb_order
+		orderRepository.saveAll(Arrays.asList(o1,o2,o3));
+		
 		//Setting Order-Dependent Entity Payment object
 		Payment payment1 = new Payment(null,Instant.parse("2019-06-20T21:53:07Z"),o1);
 		/*OBS: To save a Dependent Object in a One-To-One Relation, no Repositories are needed 
@@ -0,0 +1,85 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+
+/*Auxiliary Class holding one pre-serialized JSON response of the catalog (see CatalogSnapshotService) in its two
+  encodings, identity and gzip, each one with its own strong ETag (the same bytes are never served under two ETags)*/
+
+/*OBS: The byte arrays are never modified after the construction, so the same snapshot can be written to any amount
+  of concurrent responses*/
+
+public class CatalogSnapshot {
+
+	private final byte[] json;
+	private final byte[] gzip;
+	private final String eTag;
+	private final String gzipETag;
+
+	//OBS: The eTag must be a quoted strong ETag (such as "\"products-...\""), and the gzip one is derived from it
+	public CatalogSnapshot(byte[] json, String eTag) {
+		this.json = json;
+		this.gzip = compress(json);
+		this.eTag = eTag;
+		this.gzipETag = eTag.substring(0, eTag.length() - 1) + "-gzip\"";
+	}
+
+	public byte[] getJson() {
+		return json;
+	}
+
+	public byte[] getGzip() {
+		return gzip;
+	}
+
+	public String getETag() {
+		return eTag;
+	}
+
+	/*Building the response with the encoding accepted by the client. The bytes are written as they are to the response
+	  OutputStream (by Spring's ByteArrayHttpMessageConverter), and when the ETag matches the client's If-None-Match
+	  header, Spring answers with 304 (Not Modified) and writes no body at all*/
+	public ResponseEntity<byte[]> toResponse(String acceptEncoding) {
+
+		ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+				.contentType(MediaType.APPLICATION_JSON)
+				.varyBy(HttpHeaders.ACCEPT_ENCODING);
+
+		if(acceptsGzip(acceptEncoding)) {
+			return response.eTag(gzipETag).header(HttpHeaders.CONTENT_ENCODING, "gzip").body(gzip);
+		}
+		return response.eTag(eTag).body(json);
+	}
+
+	//Checking whether the Accept-Encoding header lists gzip (or "*") without disabling it through "q=0"
+	private static boolean acceptsGzip(String acceptEncoding) {
+		if(acceptEncoding == null) {
+			return false;
+		}
+		for(String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.trim().split(";");
+			String name = parts[0].trim();
+			if(name.equalsIgnoreCase("gzip") || name.equals("*")) {
+				return parts.length < 2 || !parts[1].trim().matches("q=0(\\.0*)?");
+			}
+		}
+		return false;
+	}
+
+	private static byte[] compress(byte[] json) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(json.length / 4 + 64);
+		try (GZIPOutputStream gzip = new GZIPOutputStream(bytes)) {
+			gzip.write(json);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
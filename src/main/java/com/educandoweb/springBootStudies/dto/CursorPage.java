@@ -0,0 +1,47 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+import java.util.List;
+
+/*Auxiliary Class that wraps one page of a Keyset (Cursor) Pagination. Besides the page content,
+  it carries an opaque "nextCursor" String that the client must send back at the "after" parameter
+  in order to get the following page. When there are no more pages, nextCursor will be null*/
+
+public class CursorPage<T> implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private List<T> content;
+	private String nextCursor;
+
+	public CursorPage() {
+
+	}
+
+	public CursorPage(List<T> content, String nextCursor) {
+		super();
+		this.content = content;
+		this.nextCursor = nextCursor;
+	}
+
+	public List<T> getContent() {
+		return content;
+	}
+
+	public void setContent(List<T> content) {
+		this.content = content;
+	}
+
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	//Auxiliary Get Method to let clients know whether another page can be requested
+	public boolean isHasNext() {
+		return nextCursor != null;
+	}
+}
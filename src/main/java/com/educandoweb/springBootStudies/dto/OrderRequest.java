@@ -0,0 +1,99 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/*Body of the Order creation End Points (POST /orders and POST /orders/batch): the id of the client, the items (id of
+  each Product and its quantity) and, optionally, the Payment of the Order. The moment, the status and the prices are
+  never taken from the client: the Order is placed at the moment it is accepted, it is PAID only when a Payment is
+  informed (WAITING_PAYMENT otherwise), and each item is priced with the current price of its Product*/
+
+public class OrderRequest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private Long clientId;
+	private List<Item> items = new ArrayList<>();
+	private PaymentRequest payment;
+
+	public OrderRequest() {
+	}
+
+	public Long getClientId() {
+		return clientId;
+	}
+
+	public void setClientId(Long clientId) {
+		this.clientId = clientId;
+	}
+
+	public List<Item> getItems() {
+		return items;
+	}
+
+	public void setItems(List<Item> items) {
+		this.items = items;
+	}
+
+	public PaymentRequest getPayment() {
+		return payment;
+	}
+
+	public void setPayment(PaymentRequest payment) {
+		this.payment = payment;
+	}
+
+	//Item of the requested Order
+	public static class Item implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Long productId;
+		private Integer quantity;
+
+		public Item() {
+		}
+
+		public Item(Long productId, Integer quantity) {
+			this.productId = productId;
+			this.quantity = quantity;
+		}
+
+		public Long getProductId() {
+			return productId;
+		}
+
+		public void setProductId(Long productId) {
+			this.productId = productId;
+		}
+
+		public Integer getQuantity() {
+			return quantity;
+		}
+
+		public void setQuantity(Integer quantity) {
+			this.quantity = quantity;
+		}
+	}
+
+	//Payment of the requested Order (when its moment is not informed, the Order is paid at the moment it is accepted)
+	public static class PaymentRequest implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private Instant moment;
+
+		public PaymentRequest() {
+		}
+
+		public Instant getMoment() {
+			return moment;
+		}
+
+		public void setMoment(Instant moment) {
+			this.moment = moment;
+		}
+	}
+}
@@ -0,0 +1,58 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*Aggregated figures of the Orders placed at one time bucket (day, week or month), and optionally with one status:
+  the amount of Orders and their revenue (sum of their persisted totals). Each instance is built from one row of the
+  GROUP BY queries of OrderRepository (see the Statistics Queries), so the Orders themselves never leave the Database*/
+
+/*OBS: The status is only informed when the statistics are grouped by status (groupBy=status), and otherwise it is
+  left out of the JSON*/
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStats implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	//Start of the time bucket (midnight of the day, Monday of the week or first day of the month)
+	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "GMT")
+	private final Instant bucket;
+
+	private final OrderStatus orderStatus;
+	private final Long orders;
+	private final long revenue;
+
+	//OBS: As at OrderSummary, the status arrives as the int code persisted at tb_order, and is converted into its Enum type
+	//OBS2: The revenue is informed in minor units, like the totals it sums (see OrderService.findStats())
+	public OrderStats(Instant bucket, Integer orderStatus, Long orders, long revenue) {
+		super();
+		this.bucket = bucket;
+		this.orderStatus = orderStatus == null ? null : OrderStatus.valueOf(orderStatus);
+		this.orders = orders;
+		this.revenue = revenue;
+	}
+
+	public Instant getBucket() {
+		return bucket;
+	}
+
+	public OrderStatus getOrderStatus() {
+		return orderStatus;
+	}
+
+	public Long getOrders() {
+		return orders;
+	}
+
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getRevenue() {
+		return revenue;
+	}
+}
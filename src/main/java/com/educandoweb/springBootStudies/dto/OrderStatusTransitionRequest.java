@@ -0,0 +1,111 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.List;
+
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+
+/*Body of the bulk status transition End Point (POST /orders/status-transitions): the status the Orders must be moved to,
+  and either the ids of those Orders or a filter selecting them (exactly one of both must be informed)*/
+
+/*OBS: Only the Orders allowed to move to the target status are changed (see OrderStatus.canChangeTo()), and each one
+  of them is reported at the response (see OrderStatusTransitionResult)*/
+
+public class OrderStatusTransitionRequest implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private OrderStatus target;
+	private List<Long> ids;
+	private Filter filter;
+
+	public OrderStatusTransitionRequest() {
+	}
+
+	public OrderStatusTransitionRequest(OrderStatus target, List<Long> ids, Filter filter) {
+		super();
+		this.target = target;
+		this.ids = ids;
+		this.filter = filter;
+	}
+
+	public OrderStatus getTarget() {
+		return target;
+	}
+
+	public void setTarget(OrderStatus target) {
+		this.target = target;
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public Filter getFilter() {
+		return filter;
+	}
+
+	public void setFilter(Filter filter) {
+		this.filter = filter;
+	}
+
+	/*Filter of the Orders to be moved: their current status, their client and the range of their moments ("from" inclusive
+	  and "to" exclusive). Every attribute is optional, and the ones left out do not restrict the Orders*/
+	public static class Filter implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		private OrderStatus status;
+		private Long clientId;
+		private Instant from;
+		private Instant to;
+
+		public Filter() {
+		}
+
+		public Filter(OrderStatus status, Long clientId, Instant from, Instant to) {
+			super();
+			this.status = status;
+			this.clientId = clientId;
+			this.from = from;
+			this.to = to;
+		}
+
+		public OrderStatus getStatus() {
+			return status;
+		}
+
+		public void setStatus(OrderStatus status) {
+			this.status = status;
+		}
+
+		public Long getClientId() {
+			return clientId;
+		}
+
+		public void setClientId(Long clientId) {
+			this.clientId = clientId;
+		}
+
+		public Instant getFrom() {
+			return from;
+		}
+
+		public void setFrom(Instant from) {
+			this.from = from;
+		}
+
+		public Instant getTo() {
+			return to;
+		}
+
+		public void setTo(Instant to) {
+			this.to = to;
+		}
+	}
+}
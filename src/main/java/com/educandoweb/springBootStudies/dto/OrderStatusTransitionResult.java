@@ -0,0 +1,51 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/*Outcome of a bulk status transition (POST /orders/status-transitions) for a single Order: its id, the status it had
+  before the transition and what happened to it (see Outcome)*/
+
+/*OBS: The previous status is left out of the JSON when the Order does not exist*/
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderStatusTransitionResult implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	public enum Outcome {
+		//The Order was moved to the target status
+		UPDATED,
+		//The Order already had the target status, so nothing was changed
+		UNCHANGED,
+		//The Order is not allowed to move from its status to the target one (DELIVERED -> PAID, for instance)
+		INVALID_TRANSITION,
+		//There is no Order with the informed id
+		NOT_FOUND
+	}
+
+	private final Long id;
+	private final OrderStatus previousStatus;
+	private final Outcome outcome;
+
+	public OrderStatusTransitionResult(Long id, OrderStatus previousStatus, Outcome outcome) {
+		super();
+		this.id = id;
+		this.previousStatus = previousStatus;
+		this.outcome = outcome;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public OrderStatus getPreviousStatus() {
+		return previousStatus;
+	}
+
+	public Outcome getOutcome() {
+		return outcome;
+	}
+}
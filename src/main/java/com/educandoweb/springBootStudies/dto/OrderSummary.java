@@ -0,0 +1,63 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*Lightweight (Class-Based) Projection of an Order, carrying only its id, moment, status, the id of its client and its
+  persisted total. It is built directly by the JPQL query through a constructor expression (see OrderRepository's
+  Summary Queries), so only those columns of tb_order are selected, and neither the client, the payment nor the items
+  (with their Products and Categories) are loaded*/
+
+/*OBS: The Class is immutable (final attributes and Get Methods only), since it is only a read-only view of the Order*/
+
+public class OrderSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+
+	//To ensure that the instant will be displayed at JSON with the ISO-0681 format, the following annotation is used:
+	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "GMT")
+	private final Instant moment;
+
+	private final OrderStatus orderStatus;
+	private final Long clientId;
+	private final long total;
+
+	//OBS: The status arrives as the int code persisted at tb_order, and is converted into its Enum type (as Order does)
+	//OBS2: The total arrives in minor units, already converted by Order's MinorUnitsConverter
+	public OrderSummary(Long id, Instant moment, Integer orderStatus, Long clientId, Long total) {
+		super();
+		this.id = id;
+		this.moment = moment;
+		this.orderStatus = orderStatus == null ? null : OrderStatus.valueOf(orderStatus);
+		this.clientId = clientId;
+		this.total = total;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public Instant getMoment() {
+		return moment;
+	}
+
+	public OrderStatus getOrderStatus() {
+		return orderStatus;
+	}
+
+	public Long getClientId() {
+		return clientId;
+	}
+
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getTotal() {
+		return total;
+	}
+}
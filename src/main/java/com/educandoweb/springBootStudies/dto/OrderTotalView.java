@@ -0,0 +1,24 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.time.Instant;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*Lightweight (Interface-Based) Projection of an Order, carrying only its id, moment and persisted total.
+  When returned by a Spring Data JPA Repository method, only those three columns are selected from tb_order,
+  and neither the client nor the items are loaded*/
+
+public interface OrderTotalView {
+
+	Long getId();
+
+	//To ensure that the instant will be displayed at JSON with the ISO-0681 format, the following annotation is used:
+	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "GMT")
+	Instant getMoment();
+
+	//OBS: The total is read in minor units (through Order's MinorUnitsConverter), and displayed at JSON as a decimal number
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	Long getTotal();
+}
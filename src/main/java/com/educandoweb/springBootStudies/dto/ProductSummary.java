@@ -0,0 +1,50 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*Lightweight (Class-Based) Projection of a Product, carrying only the attributes shown at the Product lists
+  (id, name, price and imgUrl). It is built directly by the JPQL query through a constructor expression
+  (see ProductRepository.findAllSummaries()), so neither a managed Product (with its dirty-checking snapshot)
+  nor its categories are loaded*/
+
+/*OBS: The Class is immutable (final attributes and Get Methods only), since it is only a read-only view of the
+  Product. It implements Serializable in order to be stored at the Product caches*/
+
+public class ProductSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long id;
+	private final String name;
+	private final long price;
+	private final String imgUrl;
+
+	//OBS: The price arrives in minor units, already converted by Product's MinorUnitsConverter
+	public ProductSummary(Long id, String name, Long price, String imgUrl) {
+		super();
+		this.id = id;
+		this.name = name;
+		this.price = price;
+		this.imgUrl = imgUrl;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getPrice() {
+		return price;
+	}
+
+	public String getImgUrl() {
+		return imgUrl;
+	}
+}
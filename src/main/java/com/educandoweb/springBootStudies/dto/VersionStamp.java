@@ -0,0 +1,47 @@
+package com.educandoweb.springBootStudies.dto;
+
+import java.io.Serializable;
+
+/*Auxiliary Class that summarizes the state of a whole table through three aggregates read by a single query
+  (see ProductRepository.findVersionStamp() and CategoryRepository.findVersionStamp()), used to build the ETags of
+  the catalog List End Points:
+  - rows: the amount of rows (changes whenever a row is deleted or inserted)
+  - versionSum: the sum of the @Version columns (increases whenever any row is updated)
+  - maxId: the greatest id (increases whenever a row is inserted, since the ids come from a Sequence)*/
+
+/*OBS: The maximum version alone would not be enough, since updating a row whose version is below the maximum would
+  not change it. With these three aggregates, any insert, update or delete changes at least one of them*/
+
+public class VersionStamp implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	private final long rows;
+	private final long versionSum;
+	private final long maxId;
+
+	public VersionStamp(Long rows, Long versionSum, Long maxId) {
+		super();
+		this.rows = rows;
+		this.versionSum = versionSum;
+		this.maxId = maxId;
+	}
+
+	public long getRows() {
+		return rows;
+	}
+
+	public long getVersionSum() {
+		return versionSum;
+	}
+
+	public long getMaxId() {
+		return maxId;
+	}
+
+	//Compact representation used inside the ETags
+	@Override
+	public String toString() {
+		return rows + "." + versionSum + "." + maxId;
+	}
+}
@@ -6,13 +6,21 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.ManyToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.educandoweb.springBootStudies.events.CatalogEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 //Defining it as a DataBase Table
@@ -23,6 +31,15 @@ Category table at the database, in order to avoid conflicts
 with the reserved word "ORDER" from SQL*/
 @Table(name = "tb_category")
 
+/*Storing Categories at the Hibernate Second-Level Cache (region "catalog.category", configured at ehcache.xml),
+  so that loading them by id does not reach the Database while they are cached. The READ_WRITE strategy keeps
+  the cached entries consistent with the Category updates performed through Hibernate*/
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.category")
+
+//Notifying every INSERT, UPDATE and DELETE to the pre-serialized catalog (see CatalogEntityListener and CatalogSnapshotService)
+@EntityListeners(CatalogEntityListener.class)
+
 /*Implementing Serializable interface in order to
 allow Category Objects to be transformed into
 byte sequences, thus ensuring a broader perspective
@@ -37,11 +54,22 @@ public class Category implements Serializable{
 	@Id
 	//Since this is a Numeric Key, it will be auto-incremented at the DataBase
 	//To state this, the Mapping Command is the following, with the Auto-Incrementation Strategy defined between parenthesis
-	@GeneratedValue(strategy= GenerationType.IDENTITY)
+	//OBS: The ids are taken from a pooled Database Sequence instead of IDENTITY, so that inserts can be batched (see User)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_category")
+	@SequenceGenerator(name = "seq_category", sequenceName = "seq_category", allocationSize = 50)
 	
 	private Long id;
 	private String name;
 	
+	/*Optimistic Locking Version: Hibernate increments it at every UPDATE of the Category. Besides detecting concurrent writes,
+	  it is used to build the ETags of the catalog End Points (see CategoryResource), so that a client polling an unchanged
+	  Category is answered with 304 (Not Modified) without loading it.*/
+	
+	//OBS: The version is not part of the JSON (the clients receive it through the ETag header instead)
+	@Version
+	@JsonIgnore
+	private Integer version;
+	
 	//Defining Product association
 		
 		/*To ensure that no Category will have more than one of the same Product,
@@ -117,6 +145,10 @@ public class Category implements Serializable{
 		this.name = name;
 	}
 	
+	public Integer getVersion() {
+		return version;
+	}
+
 	public Set<Product> getProducts() {
 		return products;
 	}
@@ -0,0 +1,75 @@
+package com.educandoweb.springBootStudies.entities;
+
+import java.io.Serializable;
+import java.time.Instant;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+
+/*Response stored for an Idempotency-Key, so that it can be replayed to the retries of the request even after the key
+  is evicted from memory or the application is restarted (only used when idempotency.persistent=true, see
+  IdempotencyService)*/
+
+/*OBS: The id is the key prefixed by the End Point it was sent to ("POST /orders:<key>"), and the fingerprint is a hash
+  of the request body, used to detect a key reused with a different request*/
+
+@Entity
+@Table(name = "tb_idempotency_key", indexes = @Index(name = "idx_idempotency_key_created_at", columnList = "createdAt"))
+public class IdempotencyRecord implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	@Id
+	@Column(length = 320)
+	private String id;
+
+	private String fingerprint;
+	private Integer status;
+	private String location;
+
+	//JSON body of the stored response
+	@Column(length = 10_000_000)
+	private byte[] body;
+
+	private Instant createdAt;
+
+	//Since a framework is being used, it is obligatory to set an empty constructor
+	public IdempotencyRecord() {
+	}
+
+	public IdempotencyRecord(String id, String fingerprint, Integer status, String location, byte[] body, Instant createdAt) {
+		this.id = id;
+		this.fingerprint = fingerprint;
+		this.status = status;
+		this.location = location;
+		this.body = body;
+		this.createdAt = createdAt;
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getFingerprint() {
+		return fingerprint;
+	}
+
+	public Integer getStatus() {
+		return status;
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public byte[] getBody() {
+		return body;
+	}
+
+	public Instant getCreatedAt() {
+		return createdAt;
+	}
+}
@@ -8,26 +8,61 @@ import java.util.HashSet;
 import java.util.Set;
 
 import javax.persistence.CascadeType;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 import javax.persistence.OneToMany;
 import javax.persistence.OneToOne;
+import javax.persistence.PostLoad;
+import javax.persistence.PostPersist;
+import javax.persistence.PostUpdate;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
 
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
 import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.events.OrderEntityListener;
 import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 //Defining it as a DataBase Table
 @Entity
 /*Signaling to JPA a new name for the auto-generated
   Order table at the database, in order to avoid conflicts
   with the reserved word "ORDER" from SQL*/
-@Table(name = "tb_order")
+
+/*OBS: The composite index on (moment, id) supports the Keyset Pagination queries at OrderRepository,
+  which order and seek the Orders by this exact pair of columns*/
+
+/*OBS2: The index on total lets the Orders be filtered and sorted by their persisted total directly at the Database*/
+
+/*OBS3: The index on client_id lets the Orders of a single User be aggregated without reading the whole table
+  (see UserOrderSummaryService)*/
+
+/*OBS4: The index on (order_status, id) lets the bulk status transitions walk the Orders with a given status in id order
+  (see OrderStatusTransitionService)*/
+@Table(name = "tb_order", indexes = { @Index(name = "idx_order_moment_id", columnList = "moment, id"),
+		@Index(name = "idx_order_total", columnList = "total"), @Index(name = "idx_order_client", columnList = "client_id"),
+		@Index(name = "idx_order_status_id", columnList = "orderStatus, id") })
+
+//Notifying every INSERT, UPDATE and DELETE to the Order Summaries of the Users (see OrderEntityListener and UserOrderSummaryService)
+@EntityListeners(OrderEntityListener.class)
+
+/*Since Orders are lazily referenced by OrderItems, they may be serialized as Hibernate Proxies. The following annotation
+  prevents Jackson from trying to serialize the Proxies' own internal attributes*/
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
 
 /*Implementing Serializable interface in order to
 allow Order Objects to be transformed into
@@ -42,7 +77,9 @@ public class Order implements Serializable{
 	@Id
 	//Since this is a Numeric Key, it will be auto-incremented at the DataBase
 	//To state this, the Mapping Command is the following, with the Auto-Incrementation Strategy defined between parenthesis
-	@GeneratedValue(strategy= GenerationType.IDENTITY)
+	//OBS: The ids are taken from a pooled Database Sequence instead of IDENTITY, so that inserts can be batched (see User)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_order")
+	@SequenceGenerator(name = "seq_order", sequenceName = "seq_order", allocationSize = 50)
 	private Long id;
 	
 	/*OBS:As tested at Postman, when there is a  manyToOne Relation, JPA will automatically load the "one" side if 
@@ -103,6 +140,43 @@ public class Order implements Serializable{
 	@OneToOne(mappedBy = "order", cascade = CascadeType.ALL)
 	private Payment payment;
 	
+	/*Persisted Total: instead of iterating over all OrderItems on every call to getTotal(), the Order's total is
+	  stored at tb_order and incrementally updated whenever an OrderItem is added (addItem()), removed (removeItem())
+	  or has its quantity/price changed (OrderItem's Set Methods call adjustTotal()). This way, reading the total does
+	  not require loading the items collection, and the Database is able to filter and sort Orders by it*/
+	
+	/*OBS: The total is held as a primitive long in minor units (cents), so that adding and subtracting Subtotals is exact
+	  and allocation-free. It is still persisted at the decimal total column (see MinorUnitsConverter)*/
+	
+	/*OBS2: The Orders stored before the total column existed must have it filled once, by running
+	  src/main/resources/db/backfill-order-total.sql at the Database before deploying (see README)*/
+	@Convert(converter = MinorUnitsConverter.class)
+	private long total;
+	
+	/*Optimistic Locking Version: Hibernate increments it at every UPDATE of the Order (including the ones caused by its
+	  items, which change its persisted total), and the bulk status transitions increment it as well (see
+	  OrderRepository.updateStatus()), so that no write of an Order silently overwrites another one*/
+	
+	//OBS: The version is not part of the JSON
+	@Version
+	@JsonIgnore
+	private Integer version;
+	
+	/*Persisted State: the client, status, total and moment of the Order as last read from or written to the Database.
+	  They are not columns, but a copy taken by markPersisted() after each load, INSERT and UPDATE, so that
+	  OrderEntityListener can report what each write changed (see OrderChangedEvent) without reading the Order again*/
+	
+	/*OBS: JPA calls the Entity Listeners before the callback methods of the Entity itself, so the listener still sees
+	  the state previous to the write when it is called*/
+	@Transient
+	private Long persistedClientId;
+	@Transient
+	private OrderStatus persistedStatus;
+	@Transient
+	private long persistedTotal;
+	@Transient
+	private Instant persistedMoment;
+	
 	
 	//Since a framework is being used, it is obligatory to set an empty constructor	
 	public Order() {
@@ -136,8 +210,8 @@ public class Order implements Serializable{
 
 	public OrderStatus getOrderStatus() {
 		
-		//Using custom Order Status Method valueOf() to convert int orderStatus into an enum type
-		return OrderStatus.valueOf(orderStatus);
+		//Using custom Order Status Method valueOf() to convert int orderStatus into an enum type (null while it is not set)
+		return orderStatus == null ? null : OrderStatus.valueOf(orderStatus);
 	}
 
 	public void setOrderStatus(OrderStatus orderStatus) {
@@ -161,6 +235,35 @@ public class Order implements Serializable{
 		return items;
 	}
 	
+	//Adding an OrderItem to the Order while adding its Subtotal to the persisted Total
+	//OBS: An OrderItem whose Subtotal would overflow the Total is taken out again, so the Order is left as it was
+	public void addItem(OrderItem item) {
+		if(items.add(item)) {
+			try {
+				adjustTotal(item.getSubtotal());
+			}
+			catch (ArithmeticException e) {
+				items.remove(item);
+				throw e;
+			}
+			item.setCounted(true);
+		}
+	}
+	
+	//Removing an OrderItem from the Order while subtracting its Subtotal from the persisted Total
+	public void removeItem(OrderItem item) {
+		if(items.remove(item)) {
+			item.setCounted(false);
+			adjustTotal(-item.getSubtotal());
+		}
+	}
+	
+	/*Auxiliary Method used by OrderItem to report changes at its Subtotal
+	  (package-private, since only the entities themselves must maintain the Total)*/
+	void adjustTotal(long delta) {
+		total = Math.addExact(total, delta);
+	}
+	
 	public Payment getPayment() {
 		return payment;
 	}
@@ -169,21 +272,54 @@ public class Order implements Serializable{
 		this.payment = payment;
 	}
 	
-	/*Setting Total Method to return Order's Total Value 
-	  through the Sum of all related orderItem's Subtotal 
-	  Methods for further Logic processing*/
+	/*Setting Total Method to return Order's Total Value, which is the persisted Sum
+	  of all related orderItem's Subtotals (kept up to date by addItem(), removeItem() and adjustTotal())*/
 	
 	/*OBS: Since at Java EE Platform, in order to be interpreted by JSON,
 	  the methods must be Getters, it will be implemented a getTotal()
 	  Method 
 	*/
 	
-	public Double getTotal() {
-		double sum = 0.0;
-		for(OrderItem item : items) {
-			sum += item.getSubtotal();
-		}
-		return sum;
+	//OBS: Displayed at JSON as a decimal number, as it has always been
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getTotal() {
+		return total;
+	}
+
+	public Integer getVersion() {
+		return version;
+	}
+
+	@JsonIgnore
+	public Long getPersistedClientId() {
+		return persistedClientId;
+	}
+
+	//OBS: Null while the Order is not persisted yet
+	@JsonIgnore
+	public OrderStatus getPersistedStatus() {
+		return persistedStatus;
+	}
+
+	@JsonIgnore
+	public long getPersistedTotal() {
+		return persistedTotal;
+	}
+
+	@JsonIgnore
+	public Instant getPersistedMoment() {
+		return persistedMoment;
+	}
+
+	//Copying the current state as the Persisted State (called by JPA after each load, INSERT and UPDATE of the Order)
+	@PostLoad
+	@PostPersist
+	@PostUpdate
+	private void markPersisted() {
+		persistedClientId = client == null ? null : client.getId();
+		persistedStatus = getOrderStatus();
+		persistedTotal = total;
+		persistedMoment = moment;
 	}
 
 	//Setting HashCode and Equals based only on Order ID
@@ -2,12 +2,18 @@ package com.educandoweb.springBootStudies.entities;
 
 import java.io.Serializable;
 
+import javax.persistence.Convert;
 import javax.persistence.EmbeddedId;
 import javax.persistence.Entity;
+import javax.persistence.PostLoad;
 import javax.persistence.Table;
+import javax.persistence.Transient;
 
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
 import com.educandoweb.springBootStudies.entities.pk.OrderItemPK;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 //Defining it as a DataBase Table
 @Entity
@@ -32,8 +38,19 @@ public class OrderItem implements Serializable{
 	@EmbeddedId
 	private OrderItemPK id = new OrderItemPK();
 	
-	private Integer quantity;
-	private Double price;
+	private int quantity;
+	
+	/*Price held as a primitive long in minor units (cents), like Product's one, so that the Subtotal is computed with exact
+	  long arithmetic (and without boxing) at every call. It is still persisted at the decimal price column*/
+	@Convert(converter = MinorUnitsConverter.class)
+	private long price;
+	
+	/*Whether the Subtotal of this OrderItem is counted at its Order's persisted Total: set by Order.addItem() and
+	  Order.removeItem(), and set when the OrderItem is loaded from the Database (a stored item is always counted at the
+	  stored Total). It spares the Set Methods from looking the OrderItem up at the Order's lazy items collection, which
+	  would load every OrderItem of the Order just to change one of them*/
+	@Transient
+	private boolean counted;
 	
 	//Since a framework is being used, it is obligatory to set an empty constructor	
 	
@@ -43,7 +60,8 @@ public class OrderItem implements Serializable{
 	
 	//Auto-generating Constructor using Fields (formerly excluding the Id, which will be set manually later)
 	//OBS: Both a Product and Order Parameters will be used at the constructor to set the Id attribute (Composite PK) at its Body
-	public OrderItem ( Order order, Product product, Integer quantity, Double price) {
+	//OBS2: The price is informed in minor units (such as the one returned by Product.getPrice())
+	public OrderItem ( Order order, Product product, int quantity, long price) {
 		super();
 		//Setting the id throughout Product and Order Objects
 		id.setOrder(order);
@@ -54,19 +72,22 @@ public class OrderItem implements Serializable{
 	
 	//Auto-generating Getters and Setters (formerly excluding the Id ones, which will be set manually later)
 	
-	public Integer getQuantity() {
+	public int getQuantity() {
 		return quantity;
 	}
 
-	public void setQuantity(Integer quantity) {
+	public void setQuantity(int quantity) {
+		subtotalChanging(price, quantity);
 		this.quantity = quantity;
 	}
 
-	public Double getPrice() {
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getPrice() {
 		return price;
 	}
 
-	public void setPrice(Double price) {
+	public void setPrice(long price) {
+		subtotalChanging(price, quantity);
 		this.price = price;
 	}
 	
@@ -77,8 +98,35 @@ public class OrderItem implements Serializable{
 	  the methods must be Getters, it will be implemented a getSubtotal()
 	  Method 
 	*/
-	public Double getSubtotal() {
-		return price * quantity;
+	
+	/*OBS2: The Subtotal is in minor units, like the price, and is displayed at JSON as a decimal number. An OrderItem still
+	  being filled (without price or quantity) has a zero Subtotal, and an overflowing one fails instead of wrapping around*/
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getSubtotal() {
+		return Math.multiplyExact(price, quantity);
+	}
+	
+	/*Reporting a Subtotal change to the Order that holds this OrderItem, so that the Order's persisted Total is kept
+	  correct. OrderItems not added to their Order yet (through Order.addItem()) are not counted at its Total*/
+	
+	/*OBS: It is called before the price or quantity is changed, so that an overflowing Subtotal or Total fails with
+	  neither the OrderItem nor the Order changed (instead of leaving a Total that no longer matches the Subtotals)*/
+	private void subtotalChanging(long newPrice, int newQuantity) {
+		long delta = Math.subtractExact(Math.multiplyExact(newPrice, newQuantity), getSubtotal());
+		Order order = getOrder();
+		if(counted && order != null) {
+			order.adjustTotal(delta);
+		}
+	}
+	
+	//Auxiliary Method used by Order.addItem() and Order.removeItem() (package-private, like Order.adjustTotal())
+	void setCounted(boolean counted) {
+		this.counted = counted;
+	}
+	
+	@PostLoad
+	private void markCounted() {
+		counted = true;
 	}
 	
 	
@@ -4,8 +4,6 @@ import java.io.Serializable;
 import java.time.Instant;
 
 import javax.persistence.Entity;
-import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.MapsId;
 import javax.persistence.OneToOne;
@@ -34,11 +32,10 @@ public class Payment implements Serializable {
 	private static final long serialVersionUID = 1L;
 	
 
-	//Defining its Primary Key attribute (id) as Auto-Generated by the DataBase
+	//Defining its Primary Key attribute (id), shared with the associated Order
 	@Id
-	//Since this is a Numeric Key, it will be auto-incremented at the DataBase
-	//To state this, the Mapping Command is the following, with the Auto-Incrementation Strategy defined between parenthesis
-	@GeneratedValue(strategy= GenerationType.IDENTITY)
+	/*OBS: There is no Generation Strategy here, since the Payment id is always copied from its Order id (see @MapsId below).
+	  This way, Payments are inserted in JDBC Batches as well, following the Sequence-based ids of the Orders*/
 	
 	public Long id;
 	private Instant moment;
@@ -4,7 +4,10 @@ import java.io.Serializable;
 import java.util.HashSet;
 import java.util.Set;
 
+import javax.persistence.Cacheable;
+import javax.persistence.Convert;
 import javax.persistence.Entity;
+import javax.persistence.EntityListeners;
 import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
@@ -12,9 +15,21 @@ import javax.persistence.JoinColumn;
 import javax.persistence.JoinTable;
 import javax.persistence.ManyToMany;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Version;
 
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsDeserializer;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.educandoweb.springBootStudies.events.CatalogEntityListener;
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
 
 //Defining it as a DataBase Table
 @Entity
@@ -24,6 +39,18 @@ Product table at the database, in order to avoid conflicts
 with the reserved word "ORDER" from SQL*/
 @Table(name = "tb_product")
 
+/*Since Products are lazily referenced by OrderItems, they may be serialized as Hibernate Proxies. The following annotation
+  prevents Jackson from trying to serialize the Proxies' own internal attributes*/
+@JsonIgnoreProperties({ "hibernateLazyInitializer", "handler" })
+
+/*Storing Products at the Hibernate Second-Level Cache (region "catalog.product", configured at ehcache.xml).
+  This way, the lazy Products referenced by OrderItems are loaded from memory while they are cached*/
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.product")
+
+//Notifying every INSERT, UPDATE and DELETE to the pre-serialized catalog (see CatalogEntityListener and CatalogSnapshotService)
+@EntityListeners(CatalogEntityListener.class)
+
 /*Implementing Serializable interface in order to
 allow Product Objects to be transformed into
 byte sequences, thus ensuring a broader perspective
@@ -40,14 +67,31 @@ public class Product implements Serializable{
 	@Id
 	//Since this is a Numeric Key, it will be auto-incremented at the DataBase
 	//To state this, the Mapping Command is the following, with the Auto-Incrementation Strategy defined between parenthesis
-	@GeneratedValue(strategy= GenerationType.IDENTITY)
+	//OBS: The ids are taken from a pooled Database Sequence instead of IDENTITY, so that inserts can be batched (see User)
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_product")
+	@SequenceGenerator(name = "seq_product", sequenceName = "seq_product", allocationSize = 50)
 	
 	private Long id;
 	private String name;
 	private String description;
-	private Double price;
+	
+	/*Price held as a primitive long in minor units (cents), so that the subtotals and totals computed from it are exact.
+	  It is still persisted at the decimal price column and displayed at JSON as a decimal number (see MinorUnitsConverter)*/
+	@Convert(converter = MinorUnitsConverter.class)
+	private long price;
 	private String imgUrl;
 	
+	/*Optimistic Locking Version: Hibernate increments it at every UPDATE of the Product. Besides detecting concurrent writes,
+	  it is used to build the ETags of the catalog End Points (see ProductResource), so that a client polling an unchanged
+	  Product is answered with 304 (Not Modified) without loading it.
+  Since the Product owns its categories collection (tb_product_category), adding or removing one of its Categories
+  also increments it*/
+	
+	//OBS: The version is not part of the JSON (the clients receive it through the ETag header instead)
+	@Version
+	@JsonIgnore
+	private Integer version;
+	
 	
 	//Defining Category Association
 	
@@ -86,6 +130,9 @@ public class Product implements Serializable{
 	
 	@JoinTable(name = "tb_product_category", joinColumns = @JoinColumn(name = "product_id"),
 	inverseJoinColumns = @JoinColumn(name = "category_id"))
+	
+	//Caching the Category ids of each Product (tb_product_category rows) at its own Second-Level Cache region
+	@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "catalog.product.categories")
 	private Set<Category> categories = new HashSet<>();
 	
 	
@@ -104,7 +151,7 @@ public class Product implements Serializable{
 		
 	}
 
-	public Product(Long id, String name, String description, Double price, String imgUrl) {
+	public Product(Long id, String name, String description, long price, String imgUrl) {
 		super();
 		this.id = id;
 		this.name = name;
@@ -137,11 +184,13 @@ public class Product implements Serializable{
 		this.description = description;
 	}
 
-	public Double getPrice() {
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getPrice() {
 		return price;
 	}
 
-	public void setPrice(Double price) {
+	@JsonDeserialize(using = MinorUnitsDeserializer.class)
+	public void setPrice(long price) {
 		this.price = price;
 	}
 
@@ -153,6 +202,10 @@ public class Product implements Serializable{
 		this.imgUrl = imgUrl;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
 	public Set<Category> getCategories() {
 		return categories;
 	}
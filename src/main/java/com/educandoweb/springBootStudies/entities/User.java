@@ -11,9 +11,13 @@ import javax.persistence.GeneratedValue;
 import javax.persistence.GenerationType;
 import javax.persistence.Id;
 import javax.persistence.OneToMany;
+import javax.persistence.SequenceGenerator;
 import javax.persistence.Table;
+import javax.persistence.Transient;
+import javax.persistence.Version;
 
 import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 
 
 //Defining it as a DataBase Table
@@ -38,13 +42,27 @@ public class User implements Serializable {
 	@Id
 	//Since this is a Numeric Key, it will be auto-incremented at the DataBase
 	//To state this, the Mapping Command is the following, with the Auto-Incrementation Strategy defined between parenthesis
-	@GeneratedValue(strategy= GenerationType.IDENTITY)
+	/*OBS: Instead of the IDENTITY Strategy (which makes Hibernate execute each INSERT immediately in order to
+	  get the generated id, silently disabling JDBC Batching), the ids are taken from a Database Sequence. With
+	  allocationSize = 50, the pooled optimizer reserves 50 ids per Sequence call, so that inserts can be
+	  grouped in JDBC Batches (see hibernate.jdbc.batch_size at application.properties)*/
+	@GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_user")
+	@SequenceGenerator(name = "seq_user", sequenceName = "seq_user", allocationSize = 50)
 	private Long id;
 	private String name;
 	private String email;
 	private String phone;
 	private String password;
 	
+	/*Optimistic Locking Version: Hibernate increments it at every UPDATE of the User, and the UPDATE only succeeds while
+	  the row still has the version that was read. This way, two concurrent updates of the same User can no longer
+	  silently overwrite each other (the second one fails and is retried, see UserService.update())*/
+	
+	//OBS: The version is not part of the JSON (the clients receive it through the ETag header instead)
+	@Version
+	@JsonIgnore
+	private Integer version;
+	
 	//Defining Order association
 	//OBS: All Collections should be instanced in an association
 	/*OBS2: Friendly reminder that for collections the Set method 
@@ -73,6 +91,14 @@ public class User implements Serializable {
 	
 	private List<Order> orders = new ArrayList<>();
 	
+	/*Order Summary of the User, only filled (and therefore only displayed at JSON) when it is requested at the Users
+	  listing (GET /users?include=summary, see UserService.findAllWithOrderSummaries())*/
+	
+	/*OBS: The summary is stored at its own table (see UserOrderSummary), so this attribute is not persisted by JPA*/
+	@Transient
+	@JsonInclude(JsonInclude.Include.NON_NULL)
+	private UserOrderSummary orderSummary;
+	
 	//Since a framework is being used, it is obligatory to set an empty constructor
 	public User() {
 		
@@ -138,11 +164,23 @@ public class User implements Serializable {
 		this.password = password;
 	}
 
+	public Integer getVersion() {
+		return version;
+	}
+
 	//Setting Order Collection's Get Method
 	
 	public List<Order> getOrders() {
 		return orders;
 	}
+	
+	public UserOrderSummary getOrderSummary() {
+		return orderSummary;
+	}
+	
+	public void setOrderSummary(UserOrderSummary orderSummary) {
+		this.orderSummary = orderSummary;
+	}
 
 	//Setting HashCode and Equals based only on User ID
 	
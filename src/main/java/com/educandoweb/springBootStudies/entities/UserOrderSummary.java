@@ -0,0 +1,175 @@
+package com.educandoweb.springBootStudies.entities;
+
+import java.io.Serializable;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.persistence.Convert;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.persistence.Version;
+
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsSerializer;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+/*Order Summary of a User (client): the amount of Orders placed, the lifetime spend (sum of the persisted Order totals),
+  the moment of the last Order and the amount of Orders per status. It is stored at its own table, with one row per
+  User, and updated by UserOrderSummaryService with the change of every written Order of the User (see apply()). This
+  way, reading it is a single Primary Key lookup, instead of loading all the Orders of the User with their items*/
+
+/*OBS: The row is keyed by the User id but has no Foreign Key to tb_user (nor a JPA association to User), so that the
+  summaries never take part in the loads and deletions of Users and Orders. The amounts per status are kept at one
+  column per OrderStatus, so the whole summary fits a single row*/
+
+@Entity
+@Table(name = "tb_user_order_summary")
+public class UserOrderSummary implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	//OBS: The id is not generated, since it is always the id of the summarized User
+	@Id
+	private Long userId;
+
+	private Long orderCount = 0L;
+
+	//OBS: In minor units, like the Order totals it sums (see MinorUnitsConverter)
+	@Convert(converter = MinorUnitsConverter.class)
+	private long totalSpent;
+
+	@JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd'T'HH:mm:ss'Z'", timezone = "GMT")
+	private Instant lastOrderMoment;
+
+	//Amount of Orders per status (exposed at JSON through getOrdersByStatus())
+	private Long waitingPaymentCount = 0L;
+	private Long paidCount = 0L;
+	private Long shippedCount = 0L;
+	private Long deliveredCount = 0L;
+	private Long canceledCount = 0L;
+
+	/*Optimistic Locking Version, so that two transactions applying changes to the same summary at the same time never
+	  overwrite each other's figures (the second one fails and is repeated, see UserOrderSummaryService)*/
+
+	//OBS: The version is not part of the JSON (there is no Get Method for it)
+	@Version
+	private Integer version;
+
+	//Since a framework is being used, it is obligatory to set an empty constructor
+	public UserOrderSummary() {
+	}
+
+	//Creating the (empty) summary of a User without Orders
+	public UserOrderSummary(Long userId) {
+		this.userId = userId;
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public Long getOrderCount() {
+		return orderCount;
+	}
+
+	@JsonSerialize(using = MinorUnitsSerializer.class)
+	public long getTotalSpent() {
+		return totalSpent;
+	}
+
+	public Instant getLastOrderMoment() {
+		return lastOrderMoment;
+	}
+
+	//Amounts of Orders per status, including the statuses without Orders (in the same order they are declared at OrderStatus)
+	public Map<OrderStatus, Long> getOrdersByStatus() {
+		Map<OrderStatus, Long> map = new LinkedHashMap<>();
+		for(OrderStatus status : OrderStatus.values()) {
+			map.put(status, getCount(status));
+		}
+		return map;
+	}
+
+	/*Applying the change of one written Order (see OrderChangedEvent): the Order leaves the count of its previous status
+	  (unless it was inserted) and joins the count of its new one (unless it was deleted), and its total change is added
+	  to the lifetime spend*/
+	public void apply(OrderStatus previousStatus, OrderStatus status, long totalDelta, Instant moment) {
+		if(previousStatus != null) {
+			orderCount--;
+			setCount(previousStatus, getCount(previousStatus) - 1);
+		}
+		if(status != null) {
+			orderCount++;
+			setCount(status, getCount(status) + 1);
+		}
+		totalSpent = Math.addExact(totalSpent, totalDelta);
+		if(moment != null && (lastOrderMoment == null || moment.isAfter(lastOrderMoment))) {
+			lastOrderMoment = moment;
+		}
+	}
+
+	//Replacing the moment of the last Order, once it is looked up again (after the last Order was deleted, for instance)
+	public void setLastOrderMoment(Instant lastOrderMoment) {
+		this.lastOrderMoment = lastOrderMoment;
+	}
+
+	//Clearing the summary before it is refilled (see add())
+	public void reset() {
+		orderCount = 0L;
+		totalSpent = 0;
+		lastOrderMoment = null;
+		for(OrderStatus status : OrderStatus.values()) {
+			setCount(status, 0L);
+		}
+	}
+
+	//Adding the aggregated figures of the User's Orders with one status (from one row of OrderRepository.findClientStatsByStatus())
+	public void add(OrderStatus status, long count, long spent, Instant lastMoment) {
+		orderCount += count;
+		totalSpent += spent;
+		if(lastMoment != null && (lastOrderMoment == null || lastMoment.isAfter(lastOrderMoment))) {
+			lastOrderMoment = lastMoment;
+		}
+		setCount(status, getCount(status) + count);
+	}
+
+	private Long getCount(OrderStatus status) {
+		switch(status) {
+		case WAITING_PAYMENT: return waitingPaymentCount;
+		case PAID: return paidCount;
+		case SHIPPED: return shippedCount;
+		case DELIVERED: return deliveredCount;
+		default: return canceledCount;
+		}
+	}
+
+	private void setCount(OrderStatus status, Long count) {
+		switch(status) {
+		case WAITING_PAYMENT: waitingPaymentCount = count; break;
+		case PAID: paidCount = count; break;
+		case SHIPPED: shippedCount = count; break;
+		case DELIVERED: deliveredCount = count; break;
+		default: canceledCount = count;
+		}
+	}
+
+	//Setting HashCode and Equals based only on the User id
+	@Override
+	public int hashCode() {
+		return userId == null ? 0 : userId.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		UserOrderSummary other = (UserOrderSummary) obj;
+		return userId != null && userId.equals(other.userId);
+	}
+}
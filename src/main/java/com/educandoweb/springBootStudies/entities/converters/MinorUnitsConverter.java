@@ -0,0 +1,49 @@
+package com.educandoweb.springBootStudies.entities.converters;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+
+/*JPA Converter between the monetary amounts held by the entities as primitive long minor units (cents) and the decimal
+  (double precision) columns where they have always been persisted (price, total and total_spent). This way, the prices,
+  subtotals and totals are computed with exact (and allocation-free) long arithmetic, while the existing tables, their
+  data and the queries over them (filters, sorting, SUM) are kept as they are*/
+
+/*OBS: The Converter is only applied to the attributes annotated with @Convert(converter = MinorUnitsConverter.class),
+  since the other Long attributes (such as the ids) are not amounts. Once an attribute is converted, the JPQL parameters
+  compared with it must be informed in minor units as well (see OrderRepository.findByTotalBetween())*/
+
+/*OBS2: The amounts are rounded to the nearest minor unit when read, so the binary approximation of the decimal column
+  (12.99 is stored as 12.989999999999998...) never reaches the entities*/
+
+@Converter
+public class MinorUnitsConverter implements AttributeConverter<Long, Double> {
+
+	//Amount of minor units (cents) per major unit
+	public static final long MINOR_UNITS_PER_MAJOR_UNIT = 100;
+
+	//Number of decimal places of the major unit amounts (2, for cents)
+	public static final int SCALE = 2;
+
+	@Override
+	public Double convertToDatabaseColumn(Long minorUnits) {
+		return minorUnits == null ? null : toMajorUnits(minorUnits);
+	}
+
+	//OBS: A NULL column (such as the price of a Product created without one) is read as zero, since the attributes are primitive
+	@Override
+	public Long convertToEntityAttribute(Double amount) {
+		return amount == null ? 0L : toMinorUnits(amount);
+	}
+
+	/*Converting a decimal amount (12.99) into minor units (1299), rounding it to the nearest minor unit. Halves are rounded
+	  away from zero (0.005 -> 1 and -0.005 -> -1), as MinorUnitsDeserializer does (Math.round() alone would round -0.005 up to 0)*/
+	public static long toMinorUnits(double amount) {
+		long minorUnits = Math.round(Math.abs(amount) * MINOR_UNITS_PER_MAJOR_UNIT);
+		return amount < 0 ? -minorUnits : minorUnits;
+	}
+
+	//Converting an amount in minor units (1299) into its decimal value (12.99)
+	public static double toMajorUnits(long minorUnits) {
+		return (double) minorUnits / MINOR_UNITS_PER_MAJOR_UNIT;
+	}
+}
@@ -0,0 +1,56 @@
+package com.educandoweb.springBootStudies.entities.converters;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+/*Jackson Deserializer that reads the decimal amounts informed at the JSON (12.99, or "12.99") into minor units (1299).
+  The number is read as a BigDecimal, so that no binary rounding happens on the way, and amounts with more decimal places
+  than the minor unit are rounded half up*/
+
+//OBS: Used through @JsonDeserialize(using = MinorUnitsDeserializer.class) at the Set Methods of the amounts
+public class MinorUnitsDeserializer extends StdDeserializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MinorUnitsDeserializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public Long deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+		BigDecimal amount;
+		if(parser.hasToken(JsonToken.VALUE_NUMBER_INT) || parser.hasToken(JsonToken.VALUE_NUMBER_FLOAT)) {
+			amount = parser.getDecimalValue();
+		}
+		else if(parser.hasToken(JsonToken.VALUE_STRING)) {
+			try {
+				amount = new BigDecimal(parser.getText().trim());
+			}
+			catch (NumberFormatException e) {
+				return (Long) context.handleWeirdStringValue(Long.class, parser.getText(), "not a valid amount");
+			}
+		}
+		else {
+			return (Long) context.handleUnexpectedToken(Long.class, parser);
+		}
+
+		try {
+			return amount.setScale(MinorUnitsConverter.SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+		}
+		catch (ArithmeticException e) {
+			return (Long) context.handleWeirdNumberValue(Long.class, amount, "out of the range of the amounts");
+		}
+	}
+
+	//OBS: Since the amounts are primitive, a null one (as well as a missing one) is read as zero
+	@Override
+	public Long getNullValue(DeserializationContext context) {
+		return 0L;
+	}
+}
@@ -0,0 +1,25 @@
+package com.educandoweb.springBootStudies.entities.converters;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+/*Jackson Serializer that displays the amounts held in minor units (1299) as the decimal numbers the JSON has always
+  shown (12.99), so that the API is not affected by the internal representation (see MinorUnitsConverter)*/
+
+//OBS: Used through @JsonSerialize(using = MinorUnitsSerializer.class) at the Get Methods of the amounts
+public class MinorUnitsSerializer extends StdSerializer<Long> {
+
+	private static final long serialVersionUID = 1L;
+
+	public MinorUnitsSerializer() {
+		super(Long.class);
+	}
+
+	@Override
+	public void serialize(Long minorUnits, JsonGenerator generator, SerializerProvider provider) throws IOException {
+		generator.writeNumber(MinorUnitsConverter.toMajorUnits(minorUnits));
+	}
+}
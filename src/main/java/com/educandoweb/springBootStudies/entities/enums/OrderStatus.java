@@ -61,4 +61,16 @@ public enum OrderStatus {
 		
 		throw new IllegalArgumentException("Invalid Input! No Order Status have the Inserted Code!!");
 	}
+	
+	/*Method to verify whether an Order with this status may be moved to the informed one. The Orders walk the sequence
+	  WAITING_PAYMENT -> PAID -> SHIPPED -> DELIVERED one step at a time, and can be CANCELED from any other status*/
+	
+	//OBS: Moving an Order to the status it already has is not a transition (see OrderStatusTransitionService)
+	public boolean canChangeTo (OrderStatus next) {
+		
+		if(next == CANCELED) {
+			return this != CANCELED;
+		}
+		return this != CANCELED && next.getCode() == code + 1;
+	}
 }
@@ -3,6 +3,7 @@ package com.educandoweb.springBootStudies.entities.pk;
 import java.io.Serializable;
 
 import javax.persistence.Embeddable;
+import javax.persistence.FetchType;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
 
@@ -21,15 +22,19 @@ public class OrderItemPK implements Serializable {
 	
 	//Setting OrderItemPk's References to Order and Product Tables
 	
+	/*OBS: Both Relations are LAZY, since EAGER associations inside a Composite Key are resolved by Hibernate with one
+	  SELECT per OrderItem, which cannot be batched. As LAZY ones, the Orders already loaded are reused and the Products
+	  are initialized in batches of hibernate.default_batch_fetch_size*/
+	
 	//Setting OrderItemPK-to-Order Relation
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	
 	//Using @JoinColumn annotation to generate an Order Foreign Key as a new column at the OrderItemPK table at the Database, while assigning a name for this column, which is declared between the following parenthesis
 	@JoinColumn(name = "order_id")	
 	private Order order;
 
 	//Setting OrderItemPK-to-Product Relation	
-	@ManyToOne
+	@ManyToOne(fetch = FetchType.LAZY)
 	
 	//Using @JoinColumn annotation to generate a Product Foreign Key as a new column at the OrderItemPK table at the Database, while assigning a name for this column, which is declared between the following parenthesis
 	@JoinColumn(name = "product_id")
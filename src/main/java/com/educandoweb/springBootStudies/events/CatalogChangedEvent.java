@@ -0,0 +1,27 @@
+package com.educandoweb.springBootStudies.events;
+
+/*Application Event published whenever a Product or a Category is inserted, updated or deleted through JPA
+  (see CatalogEntityListener). It is consumed once the change is committed by CatalogSnapshotService, which rebuilds
+  the pre-serialized catalog, and by ProductSearchService, which updates the search index of the changed Product*/
+
+public class CatalogChangedEvent {
+
+	//Changed Entity (a Product or a Category), with the state it was written with
+	private final Object entity;
+
+	//Whether the Entity was deleted (otherwise it was inserted or updated)
+	private final boolean removed;
+
+	public CatalogChangedEvent(Object entity, boolean removed) {
+		this.entity = entity;
+		this.removed = removed;
+	}
+
+	public Object getEntity() {
+		return entity;
+	}
+
+	public boolean isRemoved() {
+		return removed;
+	}
+}
@@ -0,0 +1,34 @@
+package com.educandoweb.springBootStudies.events;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/*JPA Entity Listener of Product and Category (see their @EntityListeners annotation). Hibernate calls it after each
+  INSERT, UPDATE or DELETE of those Entities is flushed, no matter whether the write came from a Service or straight
+  from a Repository, and it publishes a CatalogChangedEvent*/
+
+/*OBS: Spring Boot lets Hibernate take Entity Listeners from the Spring Context (SpringBeanContainer), which is why this
+  Listener can be a @Component with injected dependencies*/
+
+@Component
+public class CatalogEntityListener {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@PostPersist
+	@PostUpdate
+	public void onWrite(Object entity) {
+		publisher.publishEvent(new CatalogChangedEvent(entity, false));
+	}
+
+	@PostRemove
+	public void onRemove(Object entity) {
+		publisher.publishEvent(new CatalogChangedEvent(entity, true));
+	}
+}
@@ -0,0 +1,71 @@
+package com.educandoweb.springBootStudies.events;
+
+import java.time.Instant;
+
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+
+/*Application Event published whenever an Order is inserted, updated or deleted through JPA (see OrderEntityListener),
+  or moved to another status by a bulk transition (see OrderStatusTransitionService). It carries what the write changed
+  at the order summary of the client of the Order, and it is consumed by UserOrderSummaryService, which applies that
+  change to the client's summary once the write is committed*/
+
+/*OBS: An inserted Order has no previous status, and a deleted one has no status. An Order moved from one client to
+  another is reported as deleted from the first one and inserted for the second one*/
+
+public class OrderChangedEvent {
+
+	//Id of the User (client) who placed the changed Order
+	private final Long userId;
+
+	//Status of the Order before the write (null when inserted) and after it (null when deleted)
+	private final OrderStatus previousStatus;
+	private final OrderStatus status;
+
+	//Change of the Order's total caused by the write, in minor units (see MinorUnitsConverter)
+	private final long totalDelta;
+
+	//Moment of the Order after the write (null when deleted, or when the write did not change it)
+	private final Instant moment;
+
+	//Whether the former moment of the Order stopped counting for the client (deleted, moved away or moved earlier)
+	private final boolean momentWithdrawn;
+
+	public OrderChangedEvent(Long userId, OrderStatus previousStatus, OrderStatus status, long totalDelta, Instant moment,
+			boolean momentWithdrawn) {
+		this.userId = userId;
+		this.previousStatus = previousStatus;
+		this.status = status;
+		this.totalDelta = totalDelta;
+		this.moment = moment;
+		this.momentWithdrawn = momentWithdrawn;
+	}
+
+	//An Order moved from one status to another, with no other change
+	public static OrderChangedEvent statusChanged(Long userId, OrderStatus previousStatus, OrderStatus status) {
+		return new OrderChangedEvent(userId, previousStatus, status, 0, null, false);
+	}
+
+	public Long getUserId() {
+		return userId;
+	}
+
+	public OrderStatus getPreviousStatus() {
+		return previousStatus;
+	}
+
+	public OrderStatus getStatus() {
+		return status;
+	}
+
+	public long getTotalDelta() {
+		return totalDelta;
+	}
+
+	public Instant getMoment() {
+		return moment;
+	}
+
+	public boolean isMomentWithdrawn() {
+		return momentWithdrawn;
+	}
+}
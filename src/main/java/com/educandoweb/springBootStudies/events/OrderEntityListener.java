@@ -0,0 +1,81 @@
+package com.educandoweb.springBootStudies.events;
+
+import java.time.Instant;
+import java.util.Objects;
+
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.User;
+
+/*JPA Entity Listener of Order (see its @EntityListeners annotation). As CatalogEntityListener does for the catalog, it
+  is called by Hibernate after each INSERT, UPDATE or DELETE of an Order is flushed, and it publishes an
+  OrderChangedEvent describing what the write changed, by comparing the Order to its Persisted State (the state it had
+  before the write, see Order.markPersisted())*/
+
+/*OBS: The writes of OrderItems are not listened to: an item change that affects the summaries always changes the
+  persisted total of its Order as well (see Order.adjustTotal()), and is therefore reported by the UPDATE of the Order*/
+
+@Component
+public class OrderEntityListener {
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	@PostPersist
+	public void onInsert(Order order) {
+		publishInserted(clientIdOf(order), order);
+	}
+
+	@PostUpdate
+	public void onUpdate(Order order) {
+		Long clientId = clientIdOf(order);
+		Long previousClientId = order.getPersistedClientId();
+
+		if(!Objects.equals(clientId, previousClientId)) {
+			publishRemoved(previousClientId, order);
+			publishInserted(clientId, order);
+			return;
+		}
+
+		//OBS: Nothing is reported when neither the status, the total nor the moment changed (a new Payment, for instance)
+		Instant previousMoment = order.getPersistedMoment();
+		boolean momentChanged = !Objects.equals(order.getMoment(), previousMoment);
+		if(clientId != null && (order.getOrderStatus() != order.getPersistedStatus()
+				|| order.getTotal() != order.getPersistedTotal() || momentChanged)) {
+			boolean momentWithdrawn = momentChanged && previousMoment != null
+					&& (order.getMoment() == null || order.getMoment().isBefore(previousMoment));
+			publisher.publishEvent(new OrderChangedEvent(clientId, order.getPersistedStatus(), order.getOrderStatus(),
+					order.getTotal() - order.getPersistedTotal(), momentChanged ? order.getMoment() : null, momentWithdrawn));
+		}
+	}
+
+	@PostRemove
+	public void onDelete(Order order) {
+		publishRemoved(order.getPersistedClientId(), order);
+	}
+
+	//OBS: Orders without a client (still being filled) have no summary to change
+	private void publishInserted(Long clientId, Order order) {
+		if(clientId != null) {
+			publisher.publishEvent(new OrderChangedEvent(clientId, null, order.getOrderStatus(), order.getTotal(), order.getMoment(), false));
+		}
+	}
+
+	private void publishRemoved(Long clientId, Order order) {
+		if(clientId != null) {
+			publisher.publishEvent(new OrderChangedEvent(clientId, order.getPersistedStatus(), null, -order.getPersistedTotal(), null, true));
+		}
+	}
+
+	private static Long clientIdOf(Order order) {
+		User client = order.getClient();
+		return client == null ? null : client.getId();
+	}
+}
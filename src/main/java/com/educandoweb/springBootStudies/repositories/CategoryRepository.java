@@ -1,7 +1,10 @@
 package com.educandoweb.springBootStudies.repositories;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.educandoweb.springBootStudies.dto.VersionStamp;
 import com.educandoweb.springBootStudies.entities.Category;
 
 /*Creating a Category Repository (interface) extending Spring Data JPA's JPA Repository 
@@ -14,4 +17,15 @@ import com.educandoweb.springBootStudies.entities.Category;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
 
+	/*ETag Queries: the catalog End Points compare these values with the client's If-None-Match header before loading
+	  any Category, so an unchanged poll costs only one of the aggregate queries below (see CategoryResource)*/
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.VersionStamp(COUNT(c), COALESCE(SUM(c.version), 0), COALESCE(MAX(c.id), 0)) "
+			+ "FROM Category c")
+	VersionStamp findVersionStamp();
+
+	//OBS: Returns null when there is no such Category
+	@Query("SELECT c.version FROM Category c WHERE c.id = :id")
+	Integer findVersionById(@Param("id") Long id);
+
 }
@@ -0,0 +1,22 @@
+package com.educandoweb.springBootStudies.repositories;
+
+import java.time.Instant;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import com.educandoweb.springBootStudies.entities.IdempotencyRecord;
+
+//Creating an IdempotencyRecord Repository (interface), whose ids are the scoped Idempotency-Keys
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+	//Deleting the expired records with a single DELETE statement (instead of loading and removing them one by one)
+	@Transactional
+	@Modifying
+	@Query("DELETE FROM IdempotencyRecord r WHERE r.createdAt < :before")
+	int deleteCreatedBefore(@Param("before") Instant before);
+}
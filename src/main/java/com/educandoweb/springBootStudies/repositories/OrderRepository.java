@@ -1,7 +1,29 @@
 package com.educandoweb.springBootStudies.repositories;
 
+import static org.hibernate.jpa.QueryHints.HINT_CACHEABLE;
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import javax.persistence.LockModeType;
+import javax.persistence.QueryHint;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.dto.OrderTotalView;
 import com.educandoweb.springBootStudies.entities.Order;
 
 /*Creating an Order Repository (interface) extending Spring Data JPA's JPA Repository 
@@ -14,4 +36,148 @@ import com.educandoweb.springBootStudies.entities.Order;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+	/*Fetch Plans: Serializing an Order walks its client (User), its payment and its items (OrderItem -> Product ->
+	  Categories). Without a Fetch Plan, each one of those associations is loaded by its own SELECT for each Order
+	  (the so-called "N+1 Problem"). To avoid it, the list queries below fetch the single-valued associations
+	  (client and payment) at the same SELECT through the @EntityGraph annotation, while the collections (items and
+	  Product categories) are loaded in batches of hibernate.default_batch_fetch_size Orders/Products per SELECT*/
+
+	/*OBS: The collections are NOT fetch-joined at the list queries, since joining them would multiply the rows
+	  returned and force Hibernate to apply the LIMIT of the paginated queries in memory*/
+
+	@Override
+	@EntityGraph(attributePaths = { "client", "payment" })
+	List<Order> findAll();
+
+	//Detail Query fetching the whole serialized graph of a single Order at once
+	@Query("SELECT DISTINCT o FROM Order o LEFT JOIN FETCH o.client LEFT JOIN FETCH o.payment "
+			+ "LEFT JOIN FETCH o.items i LEFT JOIN FETCH i.id.product p LEFT JOIN FETCH p.categories WHERE o.id = :id")
+	Optional<Order> findDetailById(@Param("id") Long id);
+
+	/*Keyset (Cursor) Pagination Queries: instead of skipping rows through OFFSET (which forces the Database
+	  to read and discard every previous row), each page "seeks" directly to the position right after the last
+	  (moment, id) pair returned, walking the idx_order_moment_id index. This way, the cost of a page is the same
+	  no matter how deep the client is paging*/
+
+	/*OBS: The page size is defined by the Pageable parameter, which in this case is only used to apply
+	  the LIMIT clause (no count query is performed since the return type is a List)*/
+
+	//First Page (no cursor informed)
+	@EntityGraph(attributePaths = { "client", "payment" })
+	@Query("SELECT o FROM Order o ORDER BY o.moment ASC, o.id ASC")
+	List<Order> findFirstPage(Pageable pageable);
+
+	//Following Pages (starting right after the (moment, id) pair decoded from the cursor)
+	@EntityGraph(attributePaths = { "client", "payment" })
+	@Query("SELECT o FROM Order o WHERE o.moment > :moment OR (o.moment = :moment AND o.id > :id) "
+			+ "ORDER BY o.moment ASC, o.id ASC")
+	List<Order> findPageAfter(@Param("moment") Instant moment, @Param("id") Long id, Pageable pageable);
+
+	/*Streaming Query backed by a Database Cursor: instead of materializing the whole result at a List, the JDBC
+	  Driver fetches EXPORT_FETCH_SIZE rows per round trip while the Stream is consumed. The Orders are flagged as
+	  read-only so that Hibernate does not keep dirty-checking snapshots of them*/
+
+	/*OBS: The returned Stream must be consumed inside a transaction and closed afterwards (try-with-resources),
+	  since it holds an open JDBC ResultSet*/
+	@QueryHints(value = {
+			@QueryHint(name = HINT_FETCH_SIZE, value = "" + EXPORT_FETCH_SIZE),
+			@QueryHint(name = HINT_CACHEABLE, value = "false"),
+			@QueryHint(name = HINT_READONLY, value = "true") })
+	@EntityGraph(attributePaths = { "client", "payment" })
+	@Query("SELECT o FROM Order o ORDER BY o.id ASC")
+	Stream<Order> streamAll();
+
+	//Amount of rows fetched per round trip by streamAll()
+	int EXPORT_FETCH_SIZE = 500;
+
+	/*Projection Query over the persisted Order totals: both the filter (BETWEEN) and the Sort/LIMIT informed
+	  by the Pageable parameter are executed by the Database, and only id, moment and total are selected*/
+	
+	//OBS: min and max are in minor units, like the total attribute, and are converted by its MinorUnitsConverter when bound
+	List<OrderTotalView> findByTotalBetween(Long min, Long max, Pageable pageable);
+
+	/*Summary Queries: the same listing and Keyset Pagination queries as above, but selecting only the columns of
+	  tb_order shown at OrderSummary, which is built straight from each row (constructor expression). "o.client.id" is
+	  read from the client_id Foreign Key column, so tb_user is not joined, and no Entity enters the Persistence Context*/
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.OrderSummary(o.id, o.moment, o.orderStatus, o.client.id, o.total) "
+			+ "FROM Order o ORDER BY o.id ASC")
+	List<OrderSummary> findAllSummaries();
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.OrderSummary(o.id, o.moment, o.orderStatus, o.client.id, o.total) "
+			+ "FROM Order o ORDER BY o.moment ASC, o.id ASC")
+	List<OrderSummary> findFirstSummaryPage(Pageable pageable);
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.OrderSummary(o.id, o.moment, o.orderStatus, o.client.id, o.total) "
+			+ "FROM Order o WHERE o.moment > :moment OR (o.moment = :moment AND o.id > :id) ORDER BY o.moment ASC, o.id ASC")
+	List<OrderSummary> findSummaryPageAfter(@Param("moment") Instant moment, @Param("id") Long id, Pageable pageable);
+
+	/*Statistics Queries: the Orders placed between "from" (inclusive) and "to" (exclusive) are counted and have their
+	  persisted totals summed by the Database itself, grouped by time bucket (DATE_TRUNC of the moment to the 'day',
+	  'week' or 'month' informed at "bucket") and, at the second query, by status as well. The range filter walks the
+	  idx_order_moment_id index, and only one row per group is returned (bucket start, status, amount and revenue)*/
+
+	/*OBS: These are native (SQL) queries, since JPQL has no function to truncate dates. DATE_TRUNC is available both
+	  at H2 (test profile) and PostgreSQL (dev and prod profiles), and the groups are referenced by their aliases*/
+
+	/*OBS2: The moments are stored in UTC (see hibernate.jdbc.time_zone at application.properties), so the buckets are
+	  truncated in UTC as well, and not in the time zone of the server that wrote the Orders*/
+
+	@Query(value = "SELECT DATE_TRUNC(:bucket, o.moment) AS bucket_start, COUNT(*) AS orders, SUM(o.total) AS revenue "
+			+ "FROM tb_order o WHERE o.moment >= :from AND o.moment < :to "
+			+ "GROUP BY bucket_start ORDER BY bucket_start", nativeQuery = true)
+	List<Object[]> findStatsByBucket(@Param("bucket") String bucket, @Param("from") Instant from, @Param("to") Instant to);
+
+	@Query(value = "SELECT DATE_TRUNC(:bucket, o.moment) AS bucket_start, o.order_status AS status, COUNT(*) AS orders, SUM(o.total) AS revenue "
+			+ "FROM tb_order o WHERE o.moment >= :from AND o.moment < :to "
+			+ "GROUP BY bucket_start, status ORDER BY bucket_start, status", nativeQuery = true)
+	List<Object[]> findStatsByBucketAndStatus(@Param("bucket") String bucket, @Param("from") Instant from, @Param("to") Instant to);
+
+	/*Figures of the Orders of some clients per status (client id, status, amount, sum of totals and last moment), used to
+	  fill their UserOrderSummary rows when they are created. Only the rows of those clients are read, through the
+	  idx_order_client index*/
+	
+	//OBS: Unlike a selected total, the SUM is not converted by MinorUnitsConverter, so it is returned as the decimal Double
+	@Query("SELECT o.client.id, o.orderStatus, COUNT(o), SUM(o.total), MAX(o.moment) FROM Order o "
+			+ "WHERE o.client.id IN :clientIds GROUP BY o.client.id, o.orderStatus")
+	List<Object[]> findClientStatsByStatus(@Param("clientIds") Collection<Long> clientIds);
+
+	//Moment of the last Order of some clients (client id and moment), looked up again when a last Order stops counting
+	@Query("SELECT o.client.id, MAX(o.moment) FROM Order o WHERE o.client.id IN :clientIds GROUP BY o.client.id")
+	List<Object[]> findLastMomentsByClientIds(@Param("clientIds") Collection<Long> clientIds);
+
+	/*Status Transition Queries (see OrderStatusTransitionService): the Orders are read and moved to another status batch by
+	  batch, selecting only their id, status code and client id (no Entity is loaded), and moving the whole batch with a
+	  single UPDATE statement instead of one UPDATE per Order*/
+
+	/*OBS: The rows of a batch are read with SELECT ... FOR UPDATE (PESSIMISTIC_WRITE), so no other transaction changes
+	  their status between the read and the UPDATE of the batch. The read statuses are therefore the ones the UPDATE
+	  moves the Orders from, and the locks only last for the short transaction of one batch. The rows are locked in id
+	  order, so that concurrent batches sharing some Orders wait for each other instead of deadlocking*/
+
+	//Current status (and client) of the informed Orders, looked up by their Primary Keys
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT o.id, o.orderStatus, o.client.id FROM Order o WHERE o.id IN :ids ORDER BY o.id ASC")
+	List<Object[]> findStatusesByIdIn(@Param("ids") Collection<Long> ids);
+
+	/*Orders with one of the informed status codes, placed between "from" (inclusive) and "to" (exclusive) and, when
+	  clientId is not null, by that client. They are walked by Keyset Pagination over their ids ("after" is the last id of
+	  the previous batch), and the status filter is served by the idx_order_status_id index*/
+	@Lock(LockModeType.PESSIMISTIC_WRITE)
+	@Query("SELECT o.id, o.orderStatus, o.client.id FROM Order o WHERE o.orderStatus IN :statuses AND o.id > :after "
+			+ "AND o.moment >= :from AND o.moment < :to AND (:clientId IS NULL OR o.client.id = :clientId) ORDER BY o.id ASC")
+	List<Object[]> findStatusesByFilter(@Param("statuses") Collection<Integer> statuses, @Param("clientId") Long clientId,
+			@Param("from") Instant from, @Param("to") Instant to, @Param("after") Long after, Pageable pageable);
+
+	/*Moving the informed Orders to the informed status code, as long as they still have one of the "sources" status codes
+	  (so that an Order changed meanwhile by another request is not moved through a forbidden transition). The version
+	  of each moved Order is incremented, as Hibernate does at the UPDATEs of the Entity itself. Returns the amount of
+	  moved Orders (since the batch was read under lock, it always matches the expected amount)*/
+
+	/*OBS: As a bulk statement, it bypasses the Persistence Context and the Entity Listeners of Order (see
+	  OrderStatusTransitionService, which notifies the changes by itself)*/
+	@Modifying
+	@Query("UPDATE Order o SET o.orderStatus = :status, o.version = o.version + 1 WHERE o.id IN :ids AND o.orderStatus IN :sources")
+	int updateStatus(@Param("ids") Collection<Long> ids, @Param("sources") Collection<Integer> sources, @Param("status") Integer status);
+
 }
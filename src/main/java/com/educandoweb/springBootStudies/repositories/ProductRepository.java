@@ -1,7 +1,14 @@
 package com.educandoweb.springBootStudies.repositories;
 
+import java.util.Collection;
+import java.util.List;
+
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import com.educandoweb.springBootStudies.dto.ProductSummary;
+import com.educandoweb.springBootStudies.dto.VersionStamp;
 import com.educandoweb.springBootStudies.entities.Product;
 
 /*Creating a Product Repository (interface) extending Spring Data JPA's JPA Repository 
@@ -14,4 +21,48 @@ import com.educandoweb.springBootStudies.entities.Product;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
+	/*Summary Query: only id, name, price and imgUrl are selected, and each row is turned straight into a ProductSummary
+	  (constructor expression). Since no Entity is returned, nothing is added to the Persistence Context*/
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.ProductSummary(p.id, p.name, p.price, p.imgUrl) "
+			+ "FROM Product p ORDER BY p.id ASC")
+	List<ProductSummary> findAllSummaries();
+
+	/*Search Index Query: the columns indexed and returned by ProductSearchService (id, version, name, description, price
+	  and imgUrl), selected as plain rows, so that building the index neither creates managed Products nor fills the
+	  Second-Level Cache with the whole table*/
+	@Query("SELECT p.id, p.version, p.name, p.description, p.price, p.imgUrl FROM Product p")
+	List<Object[]> findAllSearchRows();
+
+	/*Category Index Queries (see ProductCategoryFilterService): the (Product id, Category id) pairs of the
+	  tb_product_category join table, read as plain rows instead of loading the Categories' products collections*/
+	@Query("SELECT p.id, c.id FROM Product p JOIN p.categories c")
+	List<Object[]> findAllCategoryPairs();
+
+	@Query("SELECT c.id FROM Product p JOIN p.categories c WHERE p.id = :id")
+	List<Long> findCategoryIdsById(@Param("id") Long id);
+
+	//Loading (or projecting) exactly the Products whose ids were selected in memory, in ascending id order
+	@Query("SELECT p FROM Product p WHERE p.id IN :ids ORDER BY p.id ASC")
+	List<Product> findAllByIdInOrderById(@Param("ids") Collection<Long> ids);
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.ProductSummary(p.id, p.name, p.price, p.imgUrl) "
+			+ "FROM Product p WHERE p.id IN :ids ORDER BY p.id ASC")
+	List<ProductSummary> findSummariesByIdIn(@Param("ids") Collection<Long> ids);
+
+	/*ETag Queries: the catalog End Points compare these values with the client's If-None-Match header before loading
+	  any Product, so an unchanged poll costs only the aggregate queries below (see ProductResource)*/
+
+	@Query("SELECT new com.educandoweb.springBootStudies.dto.VersionStamp(COUNT(p), COALESCE(SUM(p.version), 0), COALESCE(MAX(p.id), 0)) "
+			+ "FROM Product p")
+	VersionStamp findVersionStamp();
+
+	/*Versions of a single Product as it is serialized, that is, along with its Categories: one row per Category (version
+	  of the Product, id and version of the Category), ordered by the Category id, or a single row with a null Category
+	  when the Product has none. The ETag is built from all of them (see ProductService.findETagById()), since adding,
+	  removing, swapping or renaming a Category always changes at least one of these values*/
+
+	//OBS: Returns no rows when there is no such Product
+	@Query("SELECT p.version, c.id, c.version FROM Product p LEFT JOIN p.categories c WHERE p.id = :id ORDER BY c.id")
+	List<Object[]> findVersionsById(@Param("id") Long id);
+
 }
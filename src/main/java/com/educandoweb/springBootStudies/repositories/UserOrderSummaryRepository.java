@@ -0,0 +1,11 @@
+package com.educandoweb.springBootStudies.repositories;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import com.educandoweb.springBootStudies.entities.UserOrderSummary;
+
+//Creating a UserOrderSummary Repository (interface), whose ids are the ids of the summarized Users
+
+public interface UserOrderSummaryRepository extends JpaRepository<UserOrderSummary, Long> {
+
+}
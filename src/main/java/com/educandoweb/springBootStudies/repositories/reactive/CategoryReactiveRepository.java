@@ -0,0 +1,18 @@
+package com.educandoweb.springBootStudies.repositories.reactive;
+
+import java.util.Collection;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Flux;
+
+/*Creating the reactive (R2DBC) counterpart of CategoryRepository, used only by the read path of the catalog*/
+
+public interface CategoryReactiveRepository extends ReactiveCrudRepository<CategoryRow, Long> {
+
+	//Finding the Categories of many Products at once (the reactive counterpart of Hibernate's batch fetching)
+	@Query("SELECT pc.product_id, c.id AS category_id, c.name AS category_name FROM tb_product_category pc"
+			+ " INNER JOIN tb_category c ON c.id = pc.category_id WHERE pc.product_id IN (:productIds)")
+	Flux<ProductCategoryRow> findByProductIds(Collection<Long> productIds);
+}
@@ -0,0 +1,28 @@
+package com.educandoweb.springBootStudies.repositories.reactive;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.relational.core.mapping.Table;
+
+/*Read Model of tb_category for the reactive (R2DBC) read path of the catalog. It mirrors the JSON of the Category Entity,
+  but it is a plain immutable row: R2DBC has no Persistence Context, lazy loading nor dirty checking*/
+
+@Table("tb_category")
+public class CategoryRow {
+
+	@Id
+	private final Long id;
+	private final String name;
+
+	public CategoryRow(Long id, String name) {
+		this.id = id;
+		this.name = name;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+}
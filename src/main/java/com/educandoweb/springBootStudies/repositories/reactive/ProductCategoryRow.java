@@ -0,0 +1,28 @@
+package com.educandoweb.springBootStudies.repositories.reactive;
+
+/*Projection of a tb_product_category row joined with its tb_category row (see CategoryReactiveRepository.findByProductIds())*/
+
+public class ProductCategoryRow {
+
+	private final Long productId;
+	private final Long categoryId;
+	private final String categoryName;
+
+	public ProductCategoryRow(Long productId, Long categoryId, String categoryName) {
+		this.productId = productId;
+		this.categoryId = categoryId;
+		this.categoryName = categoryName;
+	}
+
+	public Long getProductId() {
+		return productId;
+	}
+
+	public Long getCategoryId() {
+		return categoryId;
+	}
+
+	public String getCategoryName() {
+		return categoryName;
+	}
+}
@@ -0,0 +1,16 @@
+package com.educandoweb.springBootStudies.repositories.reactive;
+
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+
+import reactor.core.publisher.Flux;
+
+/*Creating the reactive (R2DBC) counterpart of ProductRepository, used only by the read path of the catalog.
+  Its methods return Flux/Mono, so the rows are emitted as they arrive from the Database, following the demand of the subscriber*/
+
+public interface ProductReactiveRepository extends ReactiveCrudRepository<ProductRow, Long> {
+
+	//Streaming every Product ordered by id, so that the clients receive a stable order
+	@Query("SELECT id, name, description, price, img_url FROM tb_product ORDER BY id")
+	Flux<ProductRow> streamAll();
+}
@@ -0,0 +1,58 @@
+package com.educandoweb.springBootStudies.repositories.reactive;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.relational.core.mapping.Table;
+
+/*Read Model of tb_product for the reactive (R2DBC) read path of the catalog. It mirrors the JSON of the Product Entity,
+  including its Categories, which are not mapped by R2DBC (there are no associations) but filled in afterwards
+  by CatalogReactiveService from tb_product_category*/
+
+@Table("tb_product")
+public class ProductRow {
+
+	@Id
+	private final Long id;
+	private final String name;
+	private final String description;
+	private final Double price;
+	private final String imgUrl;
+
+	@Transient
+	private final List<CategoryRow> categories = new ArrayList<>();
+
+	public ProductRow(Long id, String name, String description, Double price, String imgUrl) {
+		this.id = id;
+		this.name = name;
+		this.description = description;
+		this.price = price;
+		this.imgUrl = imgUrl;
+	}
+
+	public Long getId() {
+		return id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public Double getPrice() {
+		return price;
+	}
+
+	public String getImgUrl() {
+		return imgUrl;
+	}
+
+	public List<CategoryRow> getCategories() {
+		return categories;
+	}
+}
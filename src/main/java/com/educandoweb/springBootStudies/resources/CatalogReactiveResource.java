@@ -0,0 +1,83 @@
+package com.educandoweb.springBootStudies.resources;
+
+import java.time.Instant;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.server.RouterFunction;
+import org.springframework.web.reactive.function.server.RouterFunctions;
+import org.springframework.web.reactive.function.server.ServerRequest;
+import org.springframework.web.reactive.function.server.ServerResponse;
+
+import com.educandoweb.springBootStudies.repositories.reactive.CategoryRow;
+import com.educandoweb.springBootStudies.repositories.reactive.ProductRow;
+import com.educandoweb.springBootStudies.resources.exceptions.StandardError;
+import com.educandoweb.springBootStudies.services.CatalogReactiveService;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
+
+import reactor.core.publisher.Mono;
+
+/*Non-blocking variant of the catalog reads of ProductResource and CategoryResource, written as WebFlux functional
+  End Points (see routes()). They are not served by Tomcat, but by the Reactor Netty event loop started by
+  ReactiveCatalogServer at its own port, where a few threads handle all the connections*/
+
+/*OBS: The Products List can be streamed as Newline-Delimited JSON (Accept: application/x-ndjson), so that each Product
+  is written as soon as it is read. Otherwise it is written as a JSON Array, as ProductResource does*/
+
+@Component
+public class CatalogReactiveResource {
+
+	@Autowired
+	private CatalogReactiveService catalogService;
+
+	//Mapping the paths of the reactive catalog to the methods below, and the Exceptions to the same errors of ResourceExceptionHandler
+	public RouterFunction<ServerResponse> routes() {
+		return RouterFunctions.route()
+				.GET("/products", this::findAllProducts)
+				.GET("/products/{id}", this::findProductById)
+				.GET("/categories", this::findAllCategories)
+				.GET("/categories/{id}", this::findCategoryById)
+				.onError(ResourceNotFoundException.class, (e, request) -> error(HttpStatus.NOT_FOUND, "Resource not Found", e, request))
+				.onError(InvalidRequestException.class, (e, request) -> error(HttpStatus.BAD_REQUEST, "Invalid Request", e, request))
+				.build();
+	}
+
+	public Mono<ServerResponse> findAllProducts(ServerRequest request) {
+		MediaType contentType = request.headers().accept().contains(MediaType.APPLICATION_NDJSON)
+				? MediaType.APPLICATION_NDJSON : MediaType.APPLICATION_JSON;
+		return ServerResponse.ok().contentType(contentType).body(catalogService.findAllProducts(), ProductRow.class);
+	}
+
+	public Mono<ServerResponse> findProductById(ServerRequest request) {
+		return id(request)
+				.flatMap(catalogService::findProductById)
+				.flatMap(product -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(product));
+	}
+
+	public Mono<ServerResponse> findAllCategories(ServerRequest request) {
+		return ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).body(catalogService.findAllCategories(), CategoryRow.class);
+	}
+
+	public Mono<ServerResponse> findCategoryById(ServerRequest request) {
+		return id(request)
+				.flatMap(catalogService::findCategoryById)
+				.flatMap(category -> ServerResponse.ok().contentType(MediaType.APPLICATION_JSON).bodyValue(category));
+	}
+
+	/*Parsing the id path variable inside the pipeline (an Exception thrown before the Mono is returned would not reach
+	  the onError() handlers of routes())*/
+	private static Mono<Long> id(ServerRequest request) {
+		String id = request.pathVariable("id");
+		return Mono.fromCallable(() -> Long.valueOf(id))
+				.onErrorMap(NumberFormatException.class, e -> new InvalidRequestException("Invalid id: " + id));
+	}
+
+	//Answering with the same StandardError body used by the Tomcat End Points
+	private static Mono<ServerResponse> error(HttpStatus status, String error, Throwable e, ServerRequest request) {
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, e.getMessage(), request.path());
+		return ServerResponse.status(status).contentType(MediaType.APPLICATION_JSON).bodyValue(stdError);
+	}
+}
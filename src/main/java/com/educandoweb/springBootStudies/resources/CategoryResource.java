@@ -1,15 +1,26 @@
 package com.educandoweb.springBootStudies.resources;
 
+import java.net.URI;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.educandoweb.springBootStudies.dto.CatalogSnapshot;
 import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.services.CatalogSnapshotService;
 import com.educandoweb.springBootStudies.services.CategoryService;
 
 //Creating RestController that answers to the path "/categories"
@@ -47,12 +58,34 @@ public class CategoryResource {
 	@Autowired
 	private CategoryService categoryService;
 	
+	//Setting dependence to the Service that keeps the List End Point pre-serialized
+	@Autowired
+	private CatalogSnapshotService catalogSnapshotService;
+	
 	//End Point Method to access categories
 	//ResponseEntity<> = Spring Specific Return Type to return Responses from Web Requests
 	
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
+	
+	/*Conditional GET: the ETag of the List is computed from the version columns first (aggregate queries only), and when
+	  it matches the client's If-None-Match header, WebRequest.checkNotModified() answers with 304 (Not Modified) and an
+	  empty body, so the Categories are neither loaded nor serialized. Otherwise the List is returned along with its ETag*/
+	
+	/*OBS: When the pre-serialized snapshot of the List is available (see CatalogSnapshotService), its bytes are written as
+	  they are, gzip-compressed if the client accepts it, and the steps below (ETag query, loading and serialization of
+	  the Categories) are skipped. The snapshot carries its own ETag, so If-None-Match keeps being answered with 304*/
 	@GetMapping
-	public ResponseEntity<List<Category>> findAll() {
+	public ResponseEntity<?> findAll(WebRequest request, @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		
+		CatalogSnapshot snapshot = catalogSnapshotService.getCategories();
+		if(snapshot != null) {
+			return snapshot.toResponse(acceptEncoding);
+		}
+		
+		String eTag = categoryService.findAllETag();
+		if(request.checkNotModified(eTag)) {
+			return null;
+		}
 		
 		//Connecting with Category Repository' findAll() method through Category Service's findAll() method
 		List <Category> list = categoryService.findAll();
@@ -60,7 +93,7 @@ public class CategoryResource {
 		/*Calling ResponseENTITY.ok() to successfully return the response at HTTP protocol 
 		  and .body() to also return the response body with the List of Category objects in it */
 		
-		return ResponseEntity.ok().body(list);
+		return ResponseEntity.ok().eTag(eTag).body(list);
 		
 	}
 
@@ -73,10 +106,50 @@ public class CategoryResource {
 	
 	/*OBS2:In order for spring to accept the id as a parameter and display it at the URL, it is required to put an annotation
 	  @PathVariable right before with the id Parameter at the method signature */
-	public ResponseEntity<Category> findById(@PathVariable Long id) {
+	public ResponseEntity<Category> findById(@PathVariable Long id, WebRequest request) {
 	
+		//OBS3: Conditional GET, as at findAll() (an unknown id is answered with 404 by the ETag query itself)
+		String eTag = categoryService.findETagById(id);
+		if(request.checkNotModified(eTag)) {
+			return null;
+		}
+		
 		Category cat = categoryService.findById(id);
 		
-		return ResponseEntity.ok().body(cat);
+		return ResponseEntity.ok().eTag(eTag).body(cat);
+	}
+	
+	//OBS: From this point below, the methods will alter the Database Data (Insert, Delete, Update) and evict the Category caches they make stale
+
+	@PostMapping
+	public ResponseEntity<Category> insert(@RequestBody Category category){
+		
+		category = categoryService.insert(category);
+		
+		//Setting URI object containing the address from the newly inserted Category Object, in order to return a HTTP Response Code 201 (Created)
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(category.getId()).toUri();
+		
+		return ResponseEntity.created(uri).body(category);
+	}
+	
+	@DeleteMapping(value = "/{id}")
+	public ResponseEntity<Void> delete(@PathVariable Long id){
+		
+		categoryService.delete(id);
+		
+		//Returning an empty Response with the HTTP Code 204 (No Content Response)
+		return ResponseEntity.noContent().build();
+	}
+	
+	/*OBS2: When the client sends the If-Match header (the ETag received at GET /categories/{id}), the Category is only updated if
+	  it was not modified since then, and otherwise the client receives a 412 (Precondition Failed) response. The
+	  response carries the new ETag of the Category*/
+	@PutMapping(value = "/{id}")
+	public ResponseEntity<Category> update(@PathVariable Long id, @RequestBody Category editedCategory,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		
+		Category entity = categoryService.update(id, editedCategory, ifMatch);
+		
+		return ResponseEntity.ok().eTag(categoryService.findETagById(id)).body(entity);
 	}
 }
@@ -1,16 +1,53 @@
 package com.educandoweb.springBootStudies.resources;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.educandoweb.springBootStudies.config.AsyncConfig;
+import com.educandoweb.springBootStudies.dto.CursorPage;
+import com.educandoweb.springBootStudies.dto.OrderRequest;
+import com.educandoweb.springBootStudies.dto.OrderStats;
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionRequest;
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionResult;
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.dto.OrderTotalView;
 import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.services.IdempotencyService;
+import com.educandoweb.springBootStudies.services.OrderIngestionService;
 import com.educandoweb.springBootStudies.services.OrderService;
+import com.educandoweb.springBootStudies.services.OrderStatusTransitionService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 
 //Creating RestController that answers to the path "/orders"
 
@@ -30,6 +67,17 @@ import com.educandoweb.springBootStudies.services.OrderService;
   Layer without shortcuts.
  */
 
+/*SQL Query Budget per End Point (N = amount of Orders returned, B = hibernate.default_batch_fetch_size = 100):
+  - GET /orders               -> 1 + 3 * ceil(N / B) statements (Orders with client and payment, then items, Products and Categories in batches)
+  - GET /orders?limit=N       -> same as above, for the N Orders of the page (4 statements for any page of up to 100 Orders)
+  - GET /orders?view=summary  -> 1 statement (projection of tb_order's columns only, also when paginated through "limit")
+  - GET /orders/{id}          -> 1 statement (whole graph fetched by OrderRepository.findDetailById())
+  - GET /orders/totals        -> 1 statement (projection of id, moment and total only)
+  - GET /orders/stats         -> 1 statement (counts and revenues aggregated by the Database, one row per group)
+  - GET /orders/export        -> 1 streaming statement, plus the batched items/Products/Categories loads of each fetched block
+  - POST /orders/status-transitions -> 2 statements per batch of orders.status-transition.batch-size Orders (SELECT and UPDATE)
+  (See OrderRepository's Fetch Plans and OrderService.initializeGraph())*/
+
 public class OrderResource {
 
 	//Setting dependence to the Service Layer
@@ -46,21 +94,154 @@ public class OrderResource {
 	@Autowired
 	private OrderService OrderService;
 	
+	//Setting dependence to the Group Commit writer of the new Orders (see OrderIngestionService)
+	@Autowired
+	private OrderIngestionService orderIngestionService;
+	
+	//Setting dependence to the bulk status transitions of the Orders (see OrderStatusTransitionService)
+	@Autowired
+	private OrderStatusTransitionService orderStatusTransitionService;
+	
+	//Setting dependence to the Idempotency-Key store of the creation End Points
+	@Autowired
+	private IdempotencyService idempotencyService;
+	
+	//Setting dependence to Spring's own Jackson ObjectMapper, so that the export uses the same JSON settings as the other End Points
+	@Autowired
+	private ObjectMapper objectMapper;
+	
+	//Setting dependence to the dedicated Executor of the Order queries (see AsyncConfig)
+	@Autowired
+	@Qualifier(AsyncConfig.ORDER_EXECUTOR)
+	private Executor orderExecutor;
+	
+	//Maximum time an Order query may take before the client receives a 503 (Service Unavailable) response
+	@Value("${orders.async.timeout:10s}")
+	private Duration timeout;
+	
+	/*Maximum time the export of all Orders may take (0 for no limit). It replaces, for the export only, the Servlet
+	  Container's default timeout of asynchronous requests (30 seconds at Tomcat), which would cut off a long export*/
+	@Value("${orders.export.timeout:6h}")
+	private Duration exportTimeout;
+	
+	//Amount of exported Orders written between two flushes of the response OutputStream
+	private static final int EXPORT_FLUSH_INTERVAL = 500;
+	
 	//End Point Method to access Orders
 	//ResponseEntity<> = Spring Specific Return Type to return Responses from Web Requests
 	
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
 	@GetMapping
-	public ResponseEntity<List<Order>> findAll() {
+	public CompletableFuture<ResponseEntity<List<Order>>> findAll() {
 		
 		//Connecting with Order Repository' findAll() method through Order Service's findAll() method
-		List <Order> list = OrderService.findAll();
+		return async(() -> OrderService.findAll());
+		
+	}
+	
+	//End Point Method to access Orders page by page through Keyset (Cursor) Pagination
+	
+	/*OBS: This method is only mapped when the "limit" parameter is informed (/orders?limit=50), so plain
+	  "/orders" requests keep answering with the full List. To get the following pages, the client must send
+	  the "nextCursor" value returned at the previous page as the "after" parameter (/orders?after=...&limit=50)*/
+	@GetMapping(params = "limit")
+	public CompletableFuture<ResponseEntity<CursorPage<Order>>> findPage(@RequestParam(required = false) String after, @RequestParam int limit) {
+		
+		return async(() -> OrderService.findPage(after, limit));
+	}
+	
+	//End Point Methods to access only the Summaries (id, moment, status, client id and total) of the Orders
+	
+	/*OBS: These methods are only mapped when the "view=summary" parameter is informed (/orders?view=summary), and the
+	  one declaring both "view=summary" and "limit" is the most specific mapping for paginated Summary requests
+	  (/orders?view=summary&limit=50), so neither of them conflicts with the methods above*/
+	@GetMapping(params = "view=summary")
+	public CompletableFuture<ResponseEntity<List<OrderSummary>>> findAllSummaries() {
+		
+		return async(() -> OrderService.findAllSummaries());
+	}
+	
+	@GetMapping(params = { "view=summary", "limit" })
+	public CompletableFuture<ResponseEntity<CursorPage<OrderSummary>>> findSummaryPage(@RequestParam(required = false) String after, @RequestParam int limit) {
+		
+		return async(() -> OrderService.findSummaryPage(after, limit));
+	}
+
+	//End Point Method to access only the persisted totals of the Orders (/orders/totals?min=100&max=500&direction=DESC&limit=20)
+	
+	/*OBS: Filtering and sorting are performed by the Database over tb_order's total column, and only
+	  id, moment and total are read (neither the clients nor the items of the Orders are loaded)*/
+	@GetMapping(value = "/totals")
+	public CompletableFuture<ResponseEntity<List<OrderTotalView>>> findTotals(
+			@RequestParam(defaultValue = "0") Double min,
+			@RequestParam(defaultValue = "" + Double.MAX_VALUE) Double max,
+			@RequestParam(defaultValue = "ASC") Sort.Direction direction,
+			@RequestParam(defaultValue = "100") int limit) {
+		
+		return async(() -> OrderService.findTotals(min, max, direction, limit));
+	}
+	
+	//End Point Method to access the Order statistics (/orders/stats?from=2021-01-01T00:00:00Z&to=2022-01-01T00:00:00Z&bucket=month&groupBy=status)
+	
+	/*OBS: The amount of Orders and the revenue of each time bucket (day, week or month) are computed by the Database
+	  through GROUP BY, so neither the Orders nor their items are transferred to the application (nor to the client).
+	  The "groupBy=status" parameter is optional, and splits each bucket by the status of its Orders*/
+	@GetMapping(value = "/stats")
+	public CompletableFuture<ResponseEntity<List<OrderStats>>> findStats(
+			@RequestParam String from,
+			@RequestParam String to,
+			@RequestParam(defaultValue = "day") String bucket,
+			@RequestParam(required = false) String groupBy) {
+		
+		return async(() -> OrderService.findStats(from, to, bucket, groupBy));
+	}
+	
+	//End Point Method to export all Orders as Newline-Delimited JSON
+	
+	/*OBS: Instead of building the whole response in memory, each Order is written to the response OutputStream as soon
+	  as it is read from the Database Cursor, so the first bytes reach the client right away and the memory consumption
+	  does not grow with the amount of Orders*/
+	
+	/*OBS2: The export runs as a WebAsyncTask at the dedicated Executor (see AsyncConfig), since it is the only way to give
+	  this request its own timeout (orders.export.timeout). The Callable writes the response itself (through the
+	  HttpServletResponse parameter), so Spring MVC has nothing left to write once it returns*/
+	@GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+	public WebAsyncTask<Void> export(HttpServletResponse response) {
 		
-		/*Calling ResponseENTITY.ok() to successfully return the response at HTTP protocol 
-		  and .body() to also return the response body with the List of Order objects in it */
+		//OBS3: Flushing after each Order would mean one network write per line, so the flushes are made manually below
+		ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
 		
-		return ResponseEntity.ok().body(list);
+		Callable<Void> export = () -> {
+			
+			response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+			
+			try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())) {
+				
+				//Disabling Jackson's default separator (a blank space) between root values, since each line already ends with '\n'
+				generator.setRootValueSeparator(null);
+				
+				int[] count = {0};
+				
+				OrderService.exportAll(order -> {
+					try {
+						writer.writeValue(generator, order);
+						generator.writeRaw('\n');
+						
+						//Flushing the first line immediately and then once per fetched block of Orders
+						if(count[0]++ % EXPORT_FLUSH_INTERVAL == 0) {
+							generator.flush();
+						}
+					}
+					catch (IOException e) {
+						throw new UncheckedIOException(e);
+					}
+				});
+			}
+			return null;
+		};
 		
+		//OBS4: A timeout of zero (or less) means no timeout at all for the Servlet Container
+		return new WebAsyncTask<>(exportTimeout.isZero() ? -1L : exportTimeout.toMillis(), export);
 	}
 
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
@@ -70,10 +251,71 @@ public class OrderResource {
 	
 	/*OBS2:In order for spring to accept the id as a parameter and displays it at the URL, it is required to put an annotation
 	  @PathVariable right before with the id Parameter at the method signature */
-	public ResponseEntity<Order> findById(@PathVariable Long id) {
+	public CompletableFuture<ResponseEntity<Order>> findById(@PathVariable Long id) {
+	
+		return async(() -> OrderService.findById(id));
+	}
+	
+	//End Point Methods to create Orders (a single one at POST /orders, or many at once at POST /orders/batch)
+	
+	/*OBS: The Orders are not inserted by the request thread, but queued and inserted by OrderIngestionService along with
+	  the other Orders received at the same time (Group Commit). The request is answered with the Summaries of the
+	  created Orders (including their ids) once they are committed. If the queue is full, or the commit takes longer than
+	  the timeout, the client receives a 503 (Service Unavailable) response (in the latter case, the Orders may still be
+	  committed afterwards)*/
+	
+	/*OBS2: When the client sends an Idempotency-Key header, the retries of the request with the same key are answered
+	  with the response of the first one (or wait for it, if it is still being processed) instead of creating the Orders
+	  again (see IdempotencyService). The timeout is applied by IdempotencyService, so that a request that timed out keeps
+	  its key in flight: its retries wait for the Orders still being committed instead of queueing them once more*/
+	@PostMapping
+	public CompletableFuture<ResponseEntity<?>> insert(@RequestBody OrderRequest order,
+			@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+		
+		//Setting URI object containing the address of the newly created Order (taken while the request is still being processed)
+		ServletUriComponentsBuilder uri = ServletUriComponentsBuilder.fromCurrentRequestUri();
+		
+		return idempotencyService.executeAsync(idempotencyKey, "POST /orders", order, timeout, () -> orderIngestionService.submit(List.of(order))
+				.thenApply(summaries -> {
+					OrderSummary summary = summaries.get(0);
+					URI location = uri.path("/{id}").buildAndExpand(summary.getId()).toUri();
+					return ResponseEntity.created(location).body(summary);
+				}));
+	}
+	
+	//OBS3: The Orders of a batch request are created (or rejected) all together, and the Summaries follow the order of the request
+	@PostMapping(value = "/batch")
+	public CompletableFuture<ResponseEntity<?>> insertAll(@RequestBody List<OrderRequest> orders,
+			@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY, required = false) String idempotencyKey) {
+		
+		return idempotencyService.executeAsync(idempotencyKey, "POST /orders/batch", orders, timeout, () -> orderIngestionService.submit(orders)
+				.thenApply(summaries -> ResponseEntity.status(HttpStatus.CREATED).body(summaries)));
+	}
+	
+	//End Point Method to move many Orders to another status at once (POST /orders/status-transitions)
+	
+	/*OBS: The body informs the target status and either the ids of the Orders ({"target":"SHIPPED","ids":[1,2,3]}) or a
+	  filter selecting them ({"target":"SHIPPED","filter":{"status":"PAID","to":"2021-06-01T00:00:00Z"}}). The Orders are
+	  moved in batches, each one by a single UPDATE statement, and the response reports the outcome of each Order*/
+	
+	/*OBS2: Unlike the queries above, the transitions are not run at the dedicated Executor, since a timeout would answer
+	  the client while the remaining batches are still being committed*/
+	@PostMapping(value = "/status-transitions")
+	public ResponseEntity<List<OrderStatusTransitionResult>> transitionStatus(@RequestBody OrderStatusTransitionRequest request) {
+		
+		return ResponseEntity.ok().body(orderStatusTransitionService.transition(request));
+	}
+	
+	/*Running the informed Order query at the dedicated Executor and answering with its result once it completes. Meanwhile,
+	  the Tomcat worker thread is released to serve other requests. If the Executor is saturated, the query is rejected
+	  right away (RejectedExecutionException), and if it takes longer than the timeout, the request completes with a
+	  TimeoutException (both answered with 503 by ResourceExceptionHandler)*/
 	
-		Order order = OrderService.findById(id);
+	/*OBS: The timeout only completes the request. The query itself keeps running until the Database answers it*/
+	private <T> CompletableFuture<ResponseEntity<T>> async(Supplier<T> query) {
 		
-		return ResponseEntity.ok().body(order);
+		return CompletableFuture.supplyAsync(query, orderExecutor)
+				.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS)
+				.thenApply(body -> ResponseEntity.ok().body(body));
 	}
 }
@@ -1,15 +1,30 @@
 package com.educandoweb.springBootStudies.resources;
 
+import java.net.URI;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import com.educandoweb.springBootStudies.dto.ProductSummary;
+import com.educandoweb.springBootStudies.dto.CatalogSnapshot;
+import com.educandoweb.springBootStudies.dto.CursorPage;
 import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.services.CatalogSnapshotService;
+import com.educandoweb.springBootStudies.services.ProductSearchService;
 import com.educandoweb.springBootStudies.services.ProductService;
 
 //Creating RestController that answers to the path "/products"
@@ -47,23 +62,110 @@ public class ProductResource {
 	@Autowired
 	private ProductService productService;
 	
+	//Setting dependence to the Service that keeps the List End Point pre-serialized
+	@Autowired
+	private CatalogSnapshotService catalogSnapshotService;
+	
+	//Setting dependence to the Service that keeps the in-memory search index of the Products
+	@Autowired
+	private ProductSearchService productSearchService;
+	
 	//End Point Method to access products
 	//ResponseEntity<> = Spring Specific Return Type to return Responses from Web Requests
 	
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
+	
+	/*Conditional GET: the ETag of the List is computed from the version columns first (aggregate queries only), and when
+	  it matches the client's If-None-Match header, WebRequest.checkNotModified() answers with 304 (Not Modified) and an
+	  empty body, so the Products are neither loaded nor serialized. Otherwise the List is returned along with its ETag*/
+	
+	/*OBS: When the pre-serialized snapshot of the List is available (see CatalogSnapshotService), its bytes are written as
+	  they are, gzip-compressed if the client accepts it, and the steps below (ETag query, loading and serialization of
+	  the Products) are skipped. The snapshot carries its own ETag, so If-None-Match keeps being answered with 304*/
 	@GetMapping
-	public ResponseEntity<List<Product>> findAll() {
+	public ResponseEntity<?> findAll(WebRequest request, @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+		
+		CatalogSnapshot snapshot = catalogSnapshotService.getProducts();
+		if(snapshot != null) {
+			return snapshot.toResponse(acceptEncoding);
+		}
+		
+		String eTag = productService.findAllETag();
+		if(request.checkNotModified(eTag)) {
+			return null;
+		}
 		
 		//Connecting with Product Repository' findAll() method through Product Service's findAll() method
-		List <Product> list = productService.findAll();
+		List <Product> list = productService.findAll(eTag);
 		
 		/*Calling ResponseENTITY.ok() to successfully return the response at HTTP protocol 
 		  and .body() to also return the response body with the List of Product objects in it */
 		
-		return ResponseEntity.ok().body(list);
+		return ResponseEntity.ok().eTag(eTag).body(list);
+		
+	}
+	
+	//End Point Method to access only the Summaries (id, name, price and imgUrl) of the Products
+	
+	/*OBS: This method is only mapped when the "view=summary" parameter is informed (/products?view=summary), so plain
+	  "/products" requests keep answering with the full Products and their Categories*/
+	@GetMapping(params = "view=summary")
+	public ResponseEntity<List<ProductSummary>> findAllSummaries(WebRequest request) {
+		
+		//OBS2: Conditional GET, as at findAll()
+		String eTag = productService.findAllSummariesETag();
+		if(request.checkNotModified(eTag)) {
+			return null;
+		}
+		
+		List<ProductSummary> list = productService.findAllSummaries(eTag);
 		
+		return ResponseEntity.ok().eTag(eTag).body(list);
 	}
 
+	//End Point Methods to filter the Products by Categories (/products?categories=1,3,7&match=all&limit=100)
+	
+	/*OBS: These methods are only mapped when the "categories" parameter is informed. With match=all (the default is
+	  match=any), only the Products that belong to every informed Category are returned. The Products are selected in
+	  memory through the Category Bitmaps of ProductCategoryFilterService and returned page by page (in ascending id
+	  order), and the following page is requested by sending back the "nextCursor" at the "after" parameter*/
+	@GetMapping(params = "categories")
+	public ResponseEntity<CursorPage<Product>> findByCategories(@RequestParam List<Long> categories,
+			@RequestParam(defaultValue = "any") String match,
+			@RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "100") int limit) {
+		
+		CursorPage<Product> page = productService.findPageByCategories(categories, match, after, limit);
+		
+		return ResponseEntity.ok().body(page);
+	}
+	
+	@GetMapping(params = { "categories", "view=summary" })
+	public ResponseEntity<CursorPage<ProductSummary>> findSummariesByCategories(@RequestParam List<Long> categories,
+			@RequestParam(defaultValue = "any") String match,
+			@RequestParam(required = false) String after,
+			@RequestParam(defaultValue = "100") int limit) {
+		
+		CursorPage<ProductSummary> page = productService.findSummaryPageByCategories(categories, match, after, limit);
+		
+		return ResponseEntity.ok().body(page);
+	}
+	
+	//End Point Method to search Products by the words of their name and description (/products/search?q=gaming laptop&limit=20)
+	
+	/*OBS: The words may be incomplete ("lap" finds "Laptop"), and the Summaries of the Products containing all of them are
+	  returned from best to worst match. The search is answered by the in-memory index of ProductSearchService, without
+	  any Database access*/
+	
+	/*OBS2: The literal path "/search" takes precedence over the "/{id}" pattern below*/
+	@GetMapping(value = "/search")
+	public ResponseEntity<List<ProductSummary>> search(@RequestParam String q, @RequestParam(defaultValue = "20") int limit) {
+		
+		List<ProductSummary> list = productSearchService.search(q, limit);
+		
+		return ResponseEntity.ok().body(list);
+	}
+	
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
 	
 	/*OBS: Since the value passed at the URL will not be a simple word, but the user id (which is a parameter for its variable), 
@@ -73,10 +175,52 @@ public class ProductResource {
 	
 	/*OBS2:In order for spring to accept the id as a parameter and display it at the URL, it is required to put an annotation
 	  @PathVariable right before with the id Parameter at the method signature */
-	public ResponseEntity<Product> findById(@PathVariable Long id) {
+	public ResponseEntity<Product> findById(@PathVariable Long id, WebRequest request) {
+	
+		//OBS3: Conditional GET, as at findAll() (an unknown id is answered with 404 by the ETag query itself)
+		String eTag = productService.findETagById(id);
+		if(request.checkNotModified(eTag)) {
+			return null;
+		}
+		
+		Product prod = productService.findById(id, eTag);
+		
+		return ResponseEntity.ok().eTag(eTag).body(prod);
+	}
 	
-		Product prod = productService.findById(id);
+	//OBS: From this point below, the methods will alter the Database Data (Insert, Delete, Update) and evict the Product caches they make stale
+
+	/*OBS2: The Categories of the Product are informed only by their ids ("categories": [{"id": 1}, {"id": 3}])*/
+
+	@PostMapping
+	public ResponseEntity<Product> insert(@RequestBody Product product){
+		
+		product = productService.insert(product);
+		
+		//Setting URI object containing the address from the newly inserted Product Object, in order to return a HTTP Response Code 201 (Created)
+		URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(product.getId()).toUri();
+		
+		return ResponseEntity.created(uri).body(product);
+	}
+	
+	@DeleteMapping(value = "/{id}")
+	public ResponseEntity<Void> delete(@PathVariable Long id){
+		
+		productService.delete(id);
+		
+		//Returning an empty Response with the HTTP Code 204 (No Content Response)
+		return ResponseEntity.noContent().build();
+	}
+	
+	/*OBS3: When the client sends the If-Match header (the ETag received at GET /products/{id}), the Product is only updated if
+	  it was not modified since then, and otherwise the client receives a 412 (Precondition Failed) response. The
+	  response carries the new ETag of the Product*/
+	@PutMapping(value = "/{id}")
+	public ResponseEntity<Product> update(@PathVariable Long id, @RequestBody Product editedProduct,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
+		
+		Product entity = productService.update(id, editedProduct, ifMatch);
 		
-		return ResponseEntity.ok().body(prod);
+		return ResponseEntity.ok().eTag(productService.findETagById(id)).body(entity);
 	}
 }
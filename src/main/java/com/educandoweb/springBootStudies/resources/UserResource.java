@@ -4,6 +4,8 @@ import java.net.URI;
 import java.util.List;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -11,11 +13,14 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.PutMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
 import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.UserOrderSummary;
+import com.educandoweb.springBootStudies.services.IdempotencyService;
 import com.educandoweb.springBootStudies.services.UserService;
 
 //Creating RestController that answers to the path "/users"
@@ -52,6 +57,10 @@ public class UserResource {
 	@Autowired
 	private UserService userService;
 	
+	//Setting dependence to the Idempotency-Key store of the creation End Points
+	@Autowired
+	private IdempotencyService idempotencyService;
+	
 	//End Point Method to access users
 	//ResponseEntity<> = Spring Specific Return Type to return Responses from Web Requests
 	
@@ -69,6 +78,28 @@ public class UserResource {
 		
 	}
 
+	//End Point Method to access the Users along with their Order Summaries (/users?include=summary)
+	
+	/*OBS: This method is only mapped when the "include=summary" parameter is informed, so plain "/users" requests keep
+	  answering without the "orderSummary" field*/
+	@GetMapping(params = "include=summary")
+	public ResponseEntity<List<User>> findAllWithOrderSummaries() {
+		
+		List<User> list = userService.findAllWithOrderSummaries();
+		
+		return ResponseEntity.ok().body(list);
+	}
+	
+	/*End Point Method to access the Order Summary of a User (amount of Orders, lifetime spend, last Order moment and
+	  amount of Orders per status), which is read from a single row instead of loading the Orders of the User*/
+	@GetMapping(value = "/{id}/summary")
+	public ResponseEntity<UserOrderSummary> findOrderSummary(@PathVariable Long id) {
+		
+		UserOrderSummary summary = userService.findOrderSummary(id);
+		
+		return ResponseEntity.ok().body(summary);
+	}
+	
 	//Setting @GetMapping Annotation to indicate that the following method will respond to HTTP protocol "get" requisition
 	/*OBS: Since the value passed at the URL will not be a simple word, but the user id (which is a parameter for its variable), 
 	  then the "id" word must be surrounded with brackets {}*/
@@ -80,7 +111,8 @@ public class UserResource {
 	
 		User user = userService.findById(id);
 		
-		return ResponseEntity.ok().body(user);
+		//OBS3: The ETag carries the version of the User, so that the client can send it back at the If-Match header of PUT /users/{id}
+		return ResponseEntity.ok().eTag(userService.eTagOf(user)).body(user);
 	}
 	
 	//OBS:Up to now all Endpoints' mapping was based in Get methods, since their role is to just get Data from the database (READ/SELECT)
@@ -90,25 +122,44 @@ public class UserResource {
 	@PostMapping
 	
 	/*To indicate that the User object will arrive as JSON through the requisition and that it will be later de-serialized as a Java User Object, the annotation @RequestBody before the User parameter at the Method is required*/
-	public ResponseEntity<User> insert (@RequestBody User user){
-		
-		user = userService.insertUser(user);
-		
-		//Setting URI object containing the address from the newly inserted User Object 
-		
-		URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(user.getId()).toUri();
-		
-		
-		/*using .created() instead of .ok() in order to return a HTTP Response Code 201
-		  in order to indicate that a new resource was created (through insertion)*/
+	
+	/*OBS: When the client sends an Idempotency-Key header, the retries of the request with the same key are answered with
+	  the response of the first one instead of inserting the User again (see IdempotencyService)*/
+	public ResponseEntity<?> insert (@RequestBody User user,
+			@RequestHeader(value = IdempotencyService.IDEMPOTENCY_KEY, required = false) String idempotencyKey){
+		
+		return idempotencyService.execute(idempotencyKey, "POST /users", user, () -> {
+			
+			User inserted = userService.insertUser(user);
+			
+			//Setting URI object containing the address from the newly inserted User Object 
+			
+			URI uri = ServletUriComponentsBuilder.fromCurrentRequestUri().path("/{id}").buildAndExpand(inserted.getId()).toUri();
+			
+			
+			/*using .created() instead of .ok() in order to return a HTTP Response Code 201
+			  in order to indicate that a new resource was created (through insertion)*/
+			
+			/*
+			OBS: In this case, to fulfill the .created() method constructor, a URI-typed object is needed. 
+			This happens since at the HTTP Protocol when a 201 Response Code will be Returned, its response 
+			must contain a header (Location) containing the address from the new inserted Resource.
+			*/
+			
+			return ResponseEntity.created(uri).body(inserted);
+		});
+	}
+	
+	/*Bulk Insertion End Point (POST /users/bulk): receives a JSON Array of Users and inserts all of them in JDBC Batches,
+	  instead of performing one round trip to the Database per User*/
+	
+	//OBS: Since there is no single address for the newly inserted Users, a 201 Response without Location header is returned
+	@PostMapping(value = "/bulk")
+	public ResponseEntity<List<User>> insertAll (@RequestBody List<User> users){
 		
-		/*
-		OBS: In this case, to fulfill the .created() method constructor, a URI-typed object is needed. 
-		This happens since at the HTTP Protocol when a 201 Response Code will be Returned, its response 
-		must contain a header (Location) containing the address from the new inserted Resource.
-		*/
+		users = userService.insertAll(users);
 		
-		return ResponseEntity.created(uri).body(user);		
+		return ResponseEntity.status(HttpStatus.CREATED).body(users);
 	}
 
 
@@ -141,12 +192,17 @@ public class UserResource {
 	
 	/*OBS3: To indicate that the User object will arrive as JSON through the requisition and that it will be later de-serialized as a Java User    	  	  Object, the annotation @RequestBody before the User parameter at the Method is required*/
 	
+	/*OBS4: When the client sends the If-Match header (the ETag received at GET /users/{id}), the User is only updated if
+	  it was not modified since then, and otherwise the client receives a 412 (Precondition Failed) response. The
+	  response carries the new ETag of the User*/
+	
 	@PutMapping(value = "/{id}")
-	public ResponseEntity<User> update(@PathVariable Long id, @RequestBody User editedUser){
+	public ResponseEntity<User> update(@PathVariable Long id, @RequestBody User editedUser,
+			@RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch){
 		
-		User entity = userService.update(id, editedUser);
+		User entity = userService.update(id, editedUser, ifMatch);
 		
-		return ResponseEntity.ok().body(entity);
+		return ResponseEntity.ok().eTag(userService.eTagOf(entity)).body(entity);
 		
 	}
 }
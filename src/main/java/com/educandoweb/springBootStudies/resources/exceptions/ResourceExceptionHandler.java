@@ -1,9 +1,12 @@
 package com.educandoweb.springBootStudies.resources.exceptions;
 
 import java.time.Instant;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
 
 import javax.servlet.http.HttpServletRequest;
 
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 
@@ -13,6 +16,9 @@ import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 
 import com.educandoweb.springBootStudies.services.exceptions.DataBaseException;
+import com.educandoweb.springBootStudies.services.exceptions.IdempotencyKeyReusedException;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.educandoweb.springBootStudies.services.exceptions.PreconditionFailedException;
 import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
 
 //Setting following Annotation in order to intercept the triggered Exceptions and handle them with its respective customized logic
@@ -47,5 +53,88 @@ public class ResourceExceptionHandler {
 		return ResponseEntity.status(status).body(stdError);
 	}
 	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+		@ExceptionHandler (InvalidRequestException.class)
+	public ResponseEntity<StandardError> invalidRequest(InvalidRequestException e, HttpServletRequest request){
+		
+		String error = "Invalid Request";
+		HttpStatus status = HttpStatus.BAD_REQUEST; //Setting HTTP Error Status to 400 - Bad Request
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, e.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
+	
+	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+	//OBS: Triggered when an Idempotency-Key is reused with a different request (see IdempotencyService)
+		@ExceptionHandler (IdempotencyKeyReusedException.class)
+	public ResponseEntity<StandardError> idempotencyKeyReused(IdempotencyKeyReusedException e, HttpServletRequest request){
+		
+		String error = "Unprocessable Entity";
+		HttpStatus status = HttpStatus.UNPROCESSABLE_ENTITY; //Setting HTTP Error Status to 422 - Unprocessable Entity
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, e.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
+	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+	//OBS: Triggered when the If-Match header of an update does not match the current ETag of the resource (see ConditionalUpdates)
+		@ExceptionHandler (PreconditionFailedException.class)
+	public ResponseEntity<StandardError> preconditionFailed(PreconditionFailedException e, HttpServletRequest request){
+		
+		String error = "Precondition Failed";
+		HttpStatus status = HttpStatus.PRECONDITION_FAILED; //Setting HTTP Error Status to 412 - Precondition Failed
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, e.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
+	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+	//OBS: Triggered when an update keeps colliding with concurrent updates of the same row after all its retries (see RetryConfig)
+		@ExceptionHandler (OptimisticLockingFailureException.class)
+	public ResponseEntity<StandardError> optimisticLockingFailure(OptimisticLockingFailureException e, HttpServletRequest request){
+		
+		String error = "Conflict";
+		HttpStatus status = HttpStatus.CONFLICT; //Setting HTTP Error Status to 409 - Conflict
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, "The resource is being modified concurrently, please try again", request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
+	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+	//OBS: Triggered when the dedicated Executor of the Order queries is saturated (see AsyncConfig)
+		@ExceptionHandler (RejectedExecutionException.class)
+	public ResponseEntity<StandardError> executorSaturated(RejectedExecutionException e, HttpServletRequest request){
+		
+		String error = "Service Unavailable";
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE; //Setting HTTP Error Status to 503 - Service Unavailable
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, e.getMessage(), request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
+	
+	//Using following Annotation to define which Type of Exception will be intercepted by this Method
+	//OBS: Triggered when an asynchronous Order query exceeds its timeout (see OrderResource)
+		@ExceptionHandler (TimeoutException.class)
+	public ResponseEntity<StandardError> timeout(TimeoutException e, HttpServletRequest request){
+		
+		String error = "Service Unavailable";
+		HttpStatus status = HttpStatus.SERVICE_UNAVAILABLE; //Setting HTTP Error Status to 503 - Service Unavailable
+		
+		//Fulfilling Standard Error Object with the Custom Information
+	
+		StandardError stdError = new StandardError(Instant.now(), status.value(), error, "The request took too long to be processed", request.getRequestURI());
+		return ResponseEntity.status(status).body(stdError);
+	}
 	
 }
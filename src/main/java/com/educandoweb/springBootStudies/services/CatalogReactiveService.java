@@ -0,0 +1,72 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import com.educandoweb.springBootStudies.repositories.reactive.CategoryReactiveRepository;
+import com.educandoweb.springBootStudies.repositories.reactive.CategoryRow;
+import com.educandoweb.springBootStudies.repositories.reactive.ProductReactiveRepository;
+import com.educandoweb.springBootStudies.repositories.reactive.ProductRow;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/*Service Layer of the reactive (non-blocking) read path of the catalog (see CatalogReactiveResource). It offers the same
+  reads as ProductService and CategoryService, but none of its methods blocks: they only assemble Flux/Mono pipelines
+  over the R2DBC Repositories, which run when the response is subscribed by the Reactor Netty event loop*/
+
+@Service
+public class CatalogReactiveService {
+
+	//Amount of Products whose Categories are read with a single query (the same value as hibernate.default_batch_fetch_size)
+	public static final int CATEGORY_BATCH_SIZE = 100;
+
+	@Autowired
+	private ProductReactiveRepository productRepository;
+
+	@Autowired
+	private CategoryReactiveRepository categoryRepository;
+
+	//Finding All Categories
+	public Flux<CategoryRow> findAllCategories() {
+		return categoryRepository.findAll();
+	}
+
+	//Finding Categories by IDs (emitting a ResourceNotFoundException when there is no such Category)
+	public Mono<CategoryRow> findCategoryById(Long id) {
+		return categoryRepository.findById(id).switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(id)));
+	}
+
+	/*Finding All Products with their Categories. The Products are streamed from the Database in blocks of CATEGORY_BATCH_SIZE,
+	  and each block is emitted as soon as its Categories are read, so that the first Products reach the client before
+	  the last ones are read. Since concatMap() only requests the next block once the current one is emitted, a slow
+	  client also slows down the reading of tb_product (backpressure) instead of making the Products pile up in memory*/
+	public Flux<ProductRow> findAllProducts() {
+		return productRepository.streamAll()
+				.buffer(CATEGORY_BATCH_SIZE)
+				.concatMap(this::withCategories);
+	}
+
+	//Finding Products by IDs with their Categories (emitting a ResourceNotFoundException when there is no such Product)
+	public Mono<ProductRow> findProductById(Long id) {
+		return productRepository.findById(id)
+				.switchIfEmpty(Mono.error(() -> new ResourceNotFoundException(id)))
+				.flatMap(product -> withCategories(List.of(product)).next());
+	}
+
+	//Filling the Categories of a block of Products through a single query over tb_product_category
+	private Flux<ProductRow> withCategories(List<ProductRow> products) {
+		Map<Long, ProductRow> byId = new LinkedHashMap<>();
+		for (ProductRow product : products) {
+			byId.put(product.getId(), product);
+		}
+		return categoryRepository.findByProductIds(byId.keySet())
+				.doOnNext(row -> byId.get(row.getProductId()).getCategories().add(new CategoryRow(row.getCategoryId(), row.getCategoryName())))
+				.thenMany(Flux.fromIterable(products));
+	}
+}
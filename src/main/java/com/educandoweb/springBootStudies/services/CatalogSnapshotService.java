@@ -0,0 +1,167 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.PreDestroy;
+
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.educandoweb.springBootStudies.dto.CatalogSnapshot;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.events.CatalogChangedEvent;
+import com.educandoweb.springBootStudies.repositories.CategoryRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*Service that keeps the JSON of the whole catalog (GET /products and GET /categories) pre-serialized in memory, both
+  plain and gzip-compressed (see CatalogSnapshot). ProductResource and CategoryResource write those bytes straight to
+  the response, so neither Hibernate nor Jackson runs on the request path of the catalog Lists*/
+
+/*OBS: The snapshots are rebuilt by a single background thread:
+  - once the application is ready, and then every catalog.snapshot.refresh-interval (which also picks up the changes
+    made by other instances of the application, as the local caches' TTL does);
+  - after every committed transaction that changed a Product or a Category (see CatalogEntityListener). Changes
+    committed while a rebuild is already pending are covered by that same rebuild*/
+
+/*OBS2: Until a rebuild completes, the previous snapshots keep being served. When the snapshots are disabled
+  (catalog.snapshot.enabled=false) or not built yet, the getters return null and the Resources serialize the Lists
+  as usual*/
+
+@Service
+public class CatalogSnapshotService {
+
+	private static final Logger log = LoggerFactory.getLogger(CatalogSnapshotService.class);
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	//The ETags of the snapshots are the same ones computed by the Services for the serialized Lists
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private CategoryService categoryService;
+
+	//Setting dependence to Spring's own Jackson ObjectMapper, so that the snapshots hold exactly the JSON of the other End Points
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Value("${catalog.snapshot.enabled:true}")
+	private boolean enabled;
+
+	@Value("${catalog.snapshot.refresh-interval:10m}")
+	private Duration refreshInterval;
+
+	private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "catalog-snapshot");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	//Set while a rebuild is queued but not started yet, so that a burst of changes causes a single rebuild
+	private final AtomicBoolean rebuildPending = new AtomicBoolean();
+
+	private volatile CatalogSnapshot products;
+	private volatile CatalogSnapshot categories;
+
+	public CatalogSnapshot getProducts() {
+		return products;
+	}
+
+	public CatalogSnapshot getCategories() {
+		return categories;
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if(enabled) {
+			executor.scheduleWithFixedDelay(this::rebuild, 0, refreshInterval.toMillis(), TimeUnit.MILLISECONDS);
+		}
+	}
+
+	//OBS: Called after the commit of the transaction that changed the catalog (or right away when there is no transaction)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if(enabled && rebuildPending.compareAndSet(false, true)) {
+			executor.execute(() -> {
+				rebuildPending.set(false);
+				rebuild();
+			});
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		executor.shutdownNow();
+	}
+
+	/*Reading and serializing both Lists inside a read-only transaction. Each ETag is computed before its List is read,
+	  so a change committed in between can only make the ETag older than the content (and the next poll downloads it
+	  again), never the opposite*/
+
+	/*OBS: The Lists are read straight from the Repositories (not from the local caches), and a failed rebuild only
+	  logs the error, so that the periodic refresh is not cancelled and the previous snapshots remain in use*/
+	private void rebuild() {
+		Timer.Sample sample = Timer.start(meterRegistry);
+		try {
+			TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+			transaction.setReadOnly(true);
+			transaction.executeWithoutResult(status -> {
+
+				String productsETag = productService.findAllETag();
+				List<Product> productList = productRepository.findAll();
+				productList.forEach(prod -> Hibernate.initialize(prod.getCategories()));
+				CatalogSnapshot newProducts = new CatalogSnapshot(serialize(productList), productsETag);
+
+				String categoriesETag = categoryService.findAllETag();
+				CatalogSnapshot newCategories = new CatalogSnapshot(serialize(categoryRepository.findAll()), categoriesETag);
+
+				products = newProducts;
+				categories = newCategories;
+			});
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not rebuild the catalog snapshot, the previous one is kept", e);
+		}
+		finally {
+			sample.stop(meterRegistry.timer("catalog.snapshot.rebuild"));
+		}
+	}
+
+	private byte[] serialize(Object value) {
+		try {
+			return objectMapper.writeValueAsBytes(value);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
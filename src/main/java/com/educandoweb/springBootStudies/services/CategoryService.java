@@ -3,11 +3,24 @@ package com.educandoweb.springBootStudies.services;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.EntityNotFoundException;
+
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.educandoweb.springBootStudies.config.RetryConfig;
 import com.educandoweb.springBootStudies.entities.Category;
 import com.educandoweb.springBootStudies.repositories.CategoryRepository;
+import com.educandoweb.springBootStudies.services.exceptions.DataBaseException;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
 
 /*Registering the class as a Spring Component in order to make it available for the Spring's 
   Dependency-Injection Mechanism which, in this case, will be useful at declaring Category 
@@ -27,20 +40,104 @@ public class CategoryService {
 	@Autowired
 	private CategoryRepository categoryRepository;
 	
+	/*OBS: The read methods below are cached at the local Caffeine Cache (see CacheConfig and application.properties),
+	  so repeated catalog reads are answered from memory instead of the Database. The write methods evict exactly
+	  the entries they make stale. Since Products are serialized along with their Categories' names, writes to
+	  Categories also evict the Products' caches*/
+	
 	//Finding All Categories/Database Table Rows
 	
+	@Cacheable("categories")
 	public List<Category> findAll(){
 		return categoryRepository.findAll();
 	}
 	
+	/*ETags (strong validators) of the Category End Points, computed from the version column only (see VersionStamp), so
+	  that CategoryResource can answer an unchanged poll with 304 (Not Modified) before loading any Category*/
+	public String findAllETag() {
+		return "\"categories-" + categoryRepository.findVersionStamp() + "\"";
+	}
+	
+	//ETag of a single Category (throwing a Customized Exception if there is no such Category)
+	public String findETagById(Long id) {
+		Integer version = categoryRepository.findVersionById(id);
+		if(version == null) {
+			throw new ResourceNotFoundException(id);
+		}
+		return "\"category-" + id + "-" + version + "\"";
+	}
+	
 	//Finding Categories/Database Table Rows by IDs/Primary Keys
+	@Cacheable(value = "categoryById", key = "#id")
 	public Category findById(Long id) {
 		
 		//OBS: the operation findByid() from JPA CRUD returns an Optional-typed object
 		Optional<Category> cat = categoryRepository.findById(id);
 		
-		//Returning Category type through Optional Object Method .get()
-		return cat.get();
+		//Returning Category type through Optional Object Method .get() (with .orElseThrow() Method, if the .get() does not work, a Customized Exception will be thrown
+		return cat.orElseThrow(() -> new ResourceNotFoundException(id));
 		
 	}
+	
+	//Inserting Category at the Database and returning the Inserted Category
+	@CacheEvict(value = "categories", allEntries = true)
+	public Category insert(Category category) {
+		return categoryRepository.save(category);
+	}
+	
+	//Deleting the Category at the Database
+	@Caching(evict = {
+			@CacheEvict(value = "categoryById", key = "#id"),
+			@CacheEvict(value = "categories", allEntries = true),
+			@CacheEvict(value = { "products", "productById" }, allEntries = true) })
+	public void delete(Long id) {
+		try {
+			
+			categoryRepository.deleteById(id);
+			
+		} catch (EmptyResultDataAccessException e) {
+			throw new ResourceNotFoundException(id);
+		}
+		catch (DataIntegrityViolationException e) {
+
+			throw new DataBaseException(e.getMessage());
+			
+		}
+	}
+	
+	//Updating JPA-Monitored Category and then adding it to the Database
+	
+	/*OBS: As at UserService.update(), the Category is only updated while it still has the ETag informed at ifMatch (the
+	  same ETag returned by GET /categories/{id}), and a concurrent update makes the method run again (see RetryConfig)*/
+	@Retryable(interceptor = RetryConfig.OPTIMISTIC_LOCK_RETRY)
+	@Caching(evict = {
+			@CacheEvict(value = "categoryById", key = "#id"),
+			@CacheEvict(value = "categories", allEntries = true),
+			@CacheEvict(value = { "products", "productById" }, allEntries = true) })
+	@Transactional
+	public Category update(Long id, Category editedCategory, String ifMatch) {
+		
+		try {
+			
+			//Preparing a JPA-Monitored Category through .getOne() (without Database Interaction) before modifying it
+			Category entity = categoryRepository.getOne(id);
+			
+			/*Checking the If-Match header. The Category is loaded before the ETag query, so that a change committed in between
+			  is still caught by the @Version check of the UPDATE*/
+			Hibernate.initialize(entity);
+			ConditionalUpdates.checkIfMatch(ifMatch, findETagById(id));
+			
+			entity.setName(editedCategory.getName());
+			
+			//Saving updates at the Database
+			return categoryRepository.save(entity);
+			
+		}
+		
+		catch (EntityNotFoundException e) {
+
+			throw new ResourceNotFoundException(id);
+			
+		}
+	}
 }
@@ -0,0 +1,33 @@
+package com.educandoweb.springBootStudies.services;
+
+import com.educandoweb.springBootStudies.services.exceptions.PreconditionFailedException;
+
+/*Auxiliary Class that evaluates the If-Match header of the update End Points (PUT /users/{id}, /products/{id} and
+  /categories/{id}). A client that sends back the ETag it received along with a resource only updates it while the
+  resource still has that ETag, and otherwise receives a 412 (Precondition Failed) response instead of overwriting a
+  change it has not seen. Without the header, the update is applied unconditionally*/
+
+/*OBS: The Services check the header inside the same transaction (and the same retry attempt) of the update itself,
+  right after reading the current version, so a concurrent change committed afterwards is still caught by the
+  @Version check of the UPDATE*/
+
+public final class ConditionalUpdates {
+
+	private ConditionalUpdates() {
+	}
+
+	/*Throwing a PreconditionFailedException unless the If-Match header is absent, is "*" (any current version), or lists
+	  the current ETag (If-Match uses the strong comparison, so weak ETags never match)*/
+	public static void checkIfMatch(String ifMatch, String currentETag) {
+
+		if(ifMatch == null || ifMatch.trim().equals("*")) {
+			return;
+		}
+		for(String eTag : ifMatch.split(",")) {
+			if(eTag.trim().equals(currentETag)) {
+				return;
+			}
+		}
+		throw new PreconditionFailedException(currentETag);
+	}
+}
@@ -0,0 +1,296 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.annotation.PreDestroy;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+
+import com.educandoweb.springBootStudies.entities.IdempotencyRecord;
+import com.educandoweb.springBootStudies.repositories.IdempotencyRecordRepository;
+import com.educandoweb.springBootStudies.services.exceptions.IdempotencyKeyReusedException;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+/*Service that makes the creation End Points (POST /users, POST /orders and POST /orders/batch) idempotent through the
+  Idempotency-Key request header. The first request with a key is executed, and its (successful) response is kept for
+  idempotency.ttl, so that the retries with the same key receive the very same response (status, Location and body,
+  flagged by the Idempotent-Replayed header) without inserting anything again. A retry that arrives while the first
+  request is still running waits for it and receives its response as well*/
+
+/*OBS: The keys are kept at a Caffeine Cache (a concurrent, lock-striped map, bounded by idempotency.max-keys and
+  expired by idempotency.ttl), each one holding the future of its response, so that concurrent duplicates are coalesced
+  onto the first request by an atomic putIfAbsent(). Failed requests are not kept, so that they can be retried*/
+
+/*OBS2: With idempotency.persistent=true, the responses are also stored at tb_idempotency_key (see IdempotencyRecord),
+  and the keys not found in memory are looked up there. This way, the retries are recognized even after a restart or
+  by other instances of the application. The expired records are deleted periodically*/
+
+@Service
+public class IdempotencyService {
+
+	//Request header carrying the key, and response header flagging the replayed responses
+	public static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+	public static final String IDEMPOTENT_REPLAYED = "Idempotent-Replayed";
+
+	//Upper bound for the length of the keys (UUIDs, for instance, have 36 characters)
+	public static final int MAX_KEY_LENGTH = 255;
+
+	private static final Logger log = LoggerFactory.getLogger(IdempotencyService.class);
+
+	@Autowired
+	private IdempotencyRecordRepository recordRepository;
+
+	//Setting dependence to Spring's own Jackson ObjectMapper, so that the replayed bodies are the same JSON as the original ones
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	private final Duration ttl;
+	private final boolean persistent;
+	private final Cache<String, Entry> entries;
+
+	//Background thread that stores the responses at tb_idempotency_key and deletes the expired ones (only used when persistent)
+	private final ScheduledExecutorService storeExecutor = Executors.newSingleThreadScheduledExecutor(task -> {
+		Thread thread = new Thread(task, "idempotency-store");
+		thread.setDaemon(true);
+		return thread;
+	});
+
+	public IdempotencyService(@Value("${idempotency.ttl:24h}") Duration ttl,
+			@Value("${idempotency.max-keys:100000}") long maxKeys,
+			@Value("${idempotency.persistent:false}") boolean persistent) {
+		this.ttl = ttl;
+		this.persistent = persistent;
+		this.entries = Caffeine.newBuilder().expireAfterWrite(ttl).maximumSize(maxKeys).build();
+	}
+
+	//Key being (or already) processed: the fingerprint of its request and the future of its response
+	private static class Entry {
+
+		private final String fingerprint;
+		private final CompletableFuture<StoredResponse> response = new CompletableFuture<>();
+
+		private Entry(String fingerprint) {
+			this.fingerprint = fingerprint;
+		}
+	}
+
+	//Response kept for a key (its JSON body is serialized once, so that every replay only copies bytes)
+	private static class StoredResponse {
+
+		private final int status;
+		private final String location;
+		private final byte[] body;
+
+		private StoredResponse(int status, String location, byte[] body) {
+			this.status = status;
+			this.location = location;
+			this.body = body;
+		}
+	}
+
+	@EventListener(ApplicationReadyEvent.class)
+	public void start() {
+		if(persistent) {
+			long interval = Math.max(1, ttl.toMinutes() / 24);
+			storeExecutor.scheduleWithFixedDelay(this::purge, interval, interval, TimeUnit.MINUTES);
+		}
+	}
+
+	@PreDestroy
+	public void stop() {
+		storeExecutor.shutdownNow();
+	}
+
+	/*Executing the informed creation (whose response is a future) only once per key. "scope" is the End Point the request
+	  was sent to (so that the same key can be used at different End Points), and "request" is its body, whose hash must
+	  be the same at every retry. Without a key, the creation is simply executed*/
+
+	/*OBS: The timeout (if informed) only completes the returned future (with a TimeoutException), while the key stays tied
+	  to the future of the creation itself. This way, a request that timed out is still in flight for its key, and its
+	  retries wait for (and replay) its outcome instead of executing the creation again. The key is only forgotten once
+	  the creation itself fails*/
+	public CompletableFuture<ResponseEntity<?>> executeAsync(String key, String scope, Object request, Duration timeout,
+			Supplier<CompletableFuture<? extends ResponseEntity<?>>> creation) {
+
+		if(key == null) {
+			return withTimeout(creation.get().thenApply(response -> response), timeout);
+		}
+		if(key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+			throw new InvalidRequestException("Invalid Idempotency-Key! It must have between 1 and " + MAX_KEY_LENGTH + " characters");
+		}
+
+		String id = scope + ":" + key;
+		Entry entry = new Entry(fingerprint(request));
+		Entry existing = entries.asMap().putIfAbsent(id, entry);
+		if(existing != null) {
+			return withTimeout(replay(key, entry.fingerprint, existing), timeout);
+		}
+
+		//OBS2: A key unknown to this instance may still have been processed before a restart (or by another instance)
+		Optional<IdempotencyRecord> record;
+		try {
+			record = persistent ? recordRepository.findById(id) : Optional.empty();
+		}
+		catch (RuntimeException e) {
+			fail(id, entry, e);
+			throw e;
+		}
+		if(record.isPresent() && record.get().getCreatedAt().isAfter(Instant.now().minus(ttl))) {
+			return restore(key, id, entry, record.get());
+		}
+
+		CompletableFuture<? extends ResponseEntity<?>> result;
+		try {
+			result = creation.get();
+		}
+		catch (RuntimeException e) {
+			fail(id, entry, e);
+			throw e;
+		}
+
+		result.whenComplete((response, error) -> {
+			if(error != null) {
+				fail(id, entry, error);
+			}
+			else if(response.getStatusCode().is2xxSuccessful()) {
+				entry.response.complete(store(id, entry.fingerprint, response));
+			}
+			else {
+				fail(id, entry, new IllegalStateException("The original request was answered with " + response.getStatusCodeValue()));
+			}
+		});
+		return withTimeout(result.thenApply(response -> response), timeout);
+	}
+
+	//Same as executeAsync(), but for synchronous creations (a retry arriving meanwhile blocks until the first request is answered)
+	public ResponseEntity<?> execute(String key, String scope, Object request, Supplier<? extends ResponseEntity<?>> creation) {
+		try {
+			return executeAsync(key, scope, request, null, () -> CompletableFuture.completedFuture(creation.get())).join();
+		}
+		catch (CompletionException e) {
+			if(e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	/*Answering a request whose key was found at tb_idempotency_key with the stored response. The stored response completes
+	  the entry that was just registered for the key, so that the duplicates that already joined it are answered as well*/
+	private CompletableFuture<ResponseEntity<?>> restore(String key, String id, Entry entry, IdempotencyRecord stored) {
+		if(!stored.getFingerprint().equals(entry.fingerprint)) {
+			//OBS: The key was used with another body, so the entry is replaced by the stored one (failing the ones that joined it)
+			Entry restored = new Entry(stored.getFingerprint());
+			restored.response.complete(new StoredResponse(stored.getStatus(), stored.getLocation(), stored.getBody()));
+			entries.asMap().replace(id, entry, restored);
+			IdempotencyKeyReusedException error = new IdempotencyKeyReusedException(key);
+			entry.response.completeExceptionally(error);
+			throw error;
+		}
+		entry.response.complete(new StoredResponse(stored.getStatus(), stored.getLocation(), stored.getBody()));
+		return replay(key, entry.fingerprint, entry);
+	}
+
+	//Answering a retry with the response of the first request with its key (once it is available)
+	private CompletableFuture<ResponseEntity<?>> replay(String key, String fingerprint, Entry existing) {
+		if(!existing.fingerprint.equals(fingerprint)) {
+			throw new IdempotencyKeyReusedException(key);
+		}
+		return existing.response.thenApply(stored -> {
+			ResponseEntity.BodyBuilder builder = ResponseEntity.status(HttpStatus.valueOf(stored.status))
+					.header(IDEMPOTENT_REPLAYED, "true")
+					.contentType(MediaType.APPLICATION_JSON);
+			if(stored.location != null) {
+				builder.location(URI.create(stored.location));
+			}
+			return builder.body(stored.body);
+		});
+	}
+
+	//Forgetting a key whose request failed (so that it can be retried), and failing the retries that were waiting for it
+	private void fail(String id, Entry entry, Throwable error) {
+		entries.asMap().remove(id, entry);
+		entry.response.completeExceptionally(error instanceof CompletionException && error.getCause() != null ? error.getCause() : error);
+	}
+
+	/*Serializing the successful response, and storing it at tb_idempotency_key as well when the keys are persistent. The
+	  record is inserted by the background thread, since this method may run at the thread that completed the creation
+	  (the writer of OrderIngestionService, for instance), which must not wait for it*/
+	private StoredResponse store(String id, String fingerprint, ResponseEntity<?> response) {
+		URI location = response.getHeaders().getLocation();
+		StoredResponse stored = new StoredResponse(response.getStatusCodeValue(), location == null ? null : location.toString(), json(response.getBody()));
+		if(persistent) {
+			storeExecutor.execute(() -> {
+				try {
+					recordRepository.save(new IdempotencyRecord(id, fingerprint, stored.status, stored.location, stored.body, Instant.now()));
+				}
+				catch (DataAccessException e) {
+					//OBS: The response is still kept in memory, so only the retries arriving after a restart would miss it
+					log.warn("Could not persist the Idempotency-Key {}", id, e);
+				}
+			});
+		}
+		return stored;
+	}
+
+	private void purge() {
+		try {
+			int deleted = recordRepository.deleteCreatedBefore(Instant.now().minus(ttl));
+			log.debug("{} expired Idempotency-Keys deleted", deleted);
+		}
+		catch (RuntimeException e) {
+			log.warn("Could not delete the expired Idempotency-Keys", e);
+		}
+	}
+
+	private static <T> CompletableFuture<T> withTimeout(CompletableFuture<T> future, Duration timeout) {
+		return timeout == null ? future : future.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	//SHA-256 hash of the JSON of the request body
+	private String fingerprint(Object request) {
+		try {
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(json(request));
+			return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private byte[] json(Object value) {
+		try {
+			return value == null ? "".getBytes(StandardCharsets.UTF_8) : objectMapper.writeValueAsBytes(value);
+		}
+		catch (JsonProcessingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,318 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.dto.OrderRequest;
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Payment;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+/*Service that creates the Orders received by POST /orders and POST /orders/batch through Group Commit. Instead of one
+  transaction per request, the accepted Orders wait at a bounded in-memory queue, and a single writer thread takes all
+  the Orders queued at once (up to orders.ingest.max-group-size) and inserts them within a single transaction. The
+  Orders, OrderItems and Payments of the whole group are sent as JDBC Batches (see hibernate.jdbc.batch_size and the
+  pooled Sequences of the Entities), and the group costs a single commit, so the more requests arrive at the same time,
+  the larger (and cheaper per Order) the groups become*/
+
+/*OBS: Each request is only answered once the group holding its Orders is committed, with the ids assigned to them (see
+  submit()). When the queue is full, new requests are rejected right away (HTTP 503, see ResourceExceptionHandler)
+  instead of piling up in memory*/
+
+/*OBS2: The Orders of a single request (one Order, or the whole list of a batch request) are always committed or
+  rejected together. A request referencing a missing client or Product is rejected without affecting the rest of its
+  group, and if the group transaction fails for any other reason, its requests are written again one by one, so that
+  only the faulty one fails*/
+
+@Service
+public class OrderIngestionService {
+
+	//Upper bound for the amount of Orders accepted by a single batch request
+	public static final int MAX_BATCH_SIZE = 1000;
+
+	private static final Logger log = LoggerFactory.getLogger(OrderIngestionService.class);
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	//Injecting the JPA EntityManager in order to insert the Orders, OrderItems and Payments without a SELECT per Entity
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	@Value("${orders.ingest.queue-capacity:10000}")
+	private int queueCapacity;
+
+	@Value("${orders.ingest.max-group-size:1000}")
+	private int maxGroupSize;
+
+	private BlockingQueue<Submission> queue;
+	private Thread writer;
+	private volatile boolean running;
+
+	private Timer groupTimer;
+	private DistributionSummary groupSize;
+
+	//Orders of a single request, along with the moment they were accepted and the future that answers the request
+	private static class Submission {
+
+		private final List<OrderRequest> requests;
+		private final Instant moment = Instant.now();
+		private final CompletableFuture<List<OrderSummary>> result = new CompletableFuture<>();
+
+		private Submission(List<OrderRequest> requests) {
+			this.requests = requests;
+		}
+	}
+
+	/*OBS: The queue state is published as the "orders.ingest.queue.size" Gauge, and each group as the "orders.ingest.group"
+	  Timer (time to insert and commit it) and the "orders.ingest.group.size" Distribution Summary (amount of Orders)*/
+	@PostConstruct
+	public void start() {
+		queue = new ArrayBlockingQueue<>(queueCapacity);
+		meterRegistry.gauge("orders.ingest.queue.size", queue, BlockingQueue::size);
+		groupTimer = meterRegistry.timer("orders.ingest.group");
+		groupSize = meterRegistry.summary("orders.ingest.group.size");
+
+		running = true;
+		writer = new Thread(this::run, "order-writer");
+		writer.setDaemon(true);
+		writer.start();
+	}
+
+	//Letting the writer finish the group being written, and rejecting the requests still queued
+	@PreDestroy
+	public void stop() throws InterruptedException {
+		running = false;
+		writer.join(TimeUnit.SECONDS.toMillis(10));
+		Submission submission;
+		while((submission = queue.poll()) != null) {
+			submission.result.completeExceptionally(new RejectedExecutionException("The application is shutting down"));
+		}
+	}
+
+	/*Validating the requested Orders and queueing them to be written at the next group. The returned future completes
+	  with the Summaries of the created Orders (in the same order as the requests) once they are committed*/
+	public CompletableFuture<List<OrderSummary>> submit(List<OrderRequest> requests) {
+
+		if(requests == null || requests.isEmpty()) {
+			throw new InvalidRequestException("Invalid request! At least one Order must be informed");
+		}
+		if(requests.size() > MAX_BATCH_SIZE) {
+			throw new InvalidRequestException("Too many orders! A batch request accepts at most " + MAX_BATCH_SIZE);
+		}
+		for(OrderRequest request : requests) {
+			validate(request);
+		}
+
+		Submission submission = new Submission(requests);
+		if(!running || !queue.offer(submission)) {
+			throw new RejectedExecutionException("Order ingestion queue is full (" + queueCapacity + " requests queued)");
+		}
+		return submission.result;
+	}
+
+	//OBS: Only the structure of the Order is checked here. The client and the Products are checked by the writer, which reads them once per group
+	private void validate(OrderRequest request) {
+		if(request == null || request.getClientId() == null) {
+			throw new InvalidRequestException("Invalid order! The clientId must be informed");
+		}
+		if(request.getItems() == null || request.getItems().isEmpty()) {
+			throw new InvalidRequestException("Invalid order! At least one item must be informed");
+		}
+		for(OrderRequest.Item item : request.getItems()) {
+			if(item == null || item.getProductId() == null) {
+				throw new InvalidRequestException("Invalid item! The productId must be informed");
+			}
+			if(item.getQuantity() == null || item.getQuantity() < 1) {
+				throw new InvalidRequestException("Invalid quantity for product " + item.getProductId() + "! It must be at least 1");
+			}
+		}
+	}
+
+	//Writer loop: waiting for the first queued request, and then grouping it with every request queued meanwhile
+	private void run() {
+		List<Submission> group = new ArrayList<>();
+		while(running || !queue.isEmpty()) {
+			try {
+				Submission first = queue.poll(100, TimeUnit.MILLISECONDS);
+				if(first == null) {
+					continue;
+				}
+				group.add(first);
+				int orders = first.requests.size();
+
+				Submission next;
+				while(orders < maxGroupSize && (next = queue.poll()) != null) {
+					group.add(next);
+					orders += next.requests.size();
+				}
+
+				groupSize.record(orders);
+				groupTimer.record(() -> write(group));
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+			catch (RuntimeException e) {
+				log.error("Unexpected failure of the order writer", e);
+				group.forEach(submission -> submission.result.completeExceptionally(e));
+			}
+			finally {
+				group.clear();
+			}
+		}
+	}
+
+	//Writing a group of requests within a single transaction, and answering each request once the transaction is committed
+	private void write(List<Submission> group) {
+		Map<Submission, List<Order>> written;
+		try {
+			written = new TransactionTemplate(transactionManager).execute(status -> insertAll(group));
+		}
+		catch (RuntimeException e) {
+			if(group.size() == 1) {
+				group.get(0).result.completeExceptionally(e);
+			}
+			else {
+				log.warn("Order group of {} requests failed, writing its requests one by one", group.size(), e);
+				for(Submission submission : group) {
+					write(List.of(submission));
+				}
+			}
+			return;
+		}
+
+		for(Map.Entry<Submission, List<Order>> entry : written.entrySet()) {
+			List<OrderSummary> summaries = new ArrayList<>();
+			for(Order order : entry.getValue()) {
+				summaries.add(new OrderSummary(order.getId(), order.getMoment(), order.getOrderStatus().getCode(), order.getClient().getId(), order.getTotal()));
+			}
+			entry.getKey().result.complete(summaries);
+		}
+	}
+
+	/*Inserting the Orders of the group. The clients and the Products referenced by the whole group are read first, with
+	  a single SELECT each (the Products may even come from the Second-Level Cache), and the requests referencing a missing
+	  one are rejected and left out of the transaction*/
+	private Map<Submission, List<Order>> insertAll(List<Submission> group) {
+
+		Set<Long> clientIds = new HashSet<>();
+		Set<Long> productIds = new HashSet<>();
+		for(Submission submission : group) {
+			for(OrderRequest request : submission.requests) {
+				clientIds.add(request.getClientId());
+				request.getItems().forEach(item -> productIds.add(item.getProductId()));
+			}
+		}
+		Map<Long, User> clients = new LinkedHashMap<>();
+		userRepository.findAllById(clientIds).forEach(client -> clients.put(client.getId(), client));
+		Map<Long, Product> products = new LinkedHashMap<>();
+		productRepository.findAllById(productIds).forEach(product -> products.put(product.getId(), product));
+
+		Map<Submission, List<Order>> written = new LinkedHashMap<>();
+		for(Submission submission : group) {
+			Long missing = findMissingReference(submission, clients, products);
+			if(missing != null) {
+				submission.result.completeExceptionally(new ResourceNotFoundException(missing));
+				continue;
+			}
+			List<Order> orders = new ArrayList<>();
+			for(OrderRequest request : submission.requests) {
+				orders.add(insert(request, submission.moment, clients, products));
+			}
+			written.put(submission, orders);
+		}
+		return written;
+	}
+
+	//Finding the id of a client or Product referenced by the request that does not exist (null when all of them exist)
+	private static Long findMissingReference(Submission submission, Map<Long, User> clients, Map<Long, Product> products) {
+		for(OrderRequest request : submission.requests) {
+			if(!clients.containsKey(request.getClientId())) {
+				return request.getClientId();
+			}
+			for(OrderRequest.Item item : request.getItems()) {
+				if(!products.containsKey(item.getProductId())) {
+					return item.getProductId();
+				}
+			}
+		}
+		return null;
+	}
+
+	/*Building and persisting an Order with its items (priced with the current price of their Products) and its Payment.
+	  The INSERTs themselves are only sent when the transaction is flushed, grouped with the ones of the other Orders*/
+	private Order insert(OrderRequest request, Instant moment, Map<Long, User> clients, Map<Long, Product> products) {
+
+		OrderStatus status = request.getPayment() == null ? OrderStatus.WAITING_PAYMENT : OrderStatus.PAID;
+		Order order = new Order(null, moment, status, clients.get(request.getClientId()));
+
+		//OBS: Repeated Products are merged into a single item, since the OrderItem id is the (Order, Product) pair
+		Map<Long, Integer> quantities = new LinkedHashMap<>();
+		for(OrderRequest.Item item : request.getItems()) {
+			quantities.merge(item.getProductId(), item.getQuantity(), Integer::sum);
+		}
+		List<OrderItem> items = new ArrayList<>();
+		for(Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+			Product product = products.get(entry.getKey());
+			OrderItem item = new OrderItem(order, product, entry.getValue(), product.getPrice());
+			order.addItem(item);
+			items.add(item);
+		}
+
+		if(request.getPayment() != null) {
+			Instant paymentMoment = request.getPayment().getMoment() == null ? moment : request.getPayment().getMoment();
+			order.setPayment(new Payment(null, paymentMoment, order));
+		}
+
+		//OBS2: The Payment is persisted along with the Order (CascadeType.ALL), while the OrderItems must be persisted one by one
+		entityManager.persist(order);
+		items.forEach(entityManager::persist);
+		return order;
+	}
+}
@@ -1,13 +1,38 @@
 package com.educandoweb.springBootStudies.services;
 
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.educandoweb.springBootStudies.dto.CursorPage;
+import com.educandoweb.springBootStudies.dto.OrderStats;
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.dto.OrderTotalView;
 import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
 import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
 
 /*Registering the class as a Spring Component in order to make available for it the Spring's 
   Dependency-Injection Mechanism which, in this case, will be useful at declaring Order 
@@ -21,25 +46,244 @@ import com.educandoweb.springBootStudies.repositories.OrderRepository;
 @Service
 public class OrderService {
 
+	//Upper bound for the page size requested by the clients at the Keyset Pagination
+	public static final int MAX_PAGE_LIMIT = 1000;
+	
+	//Time buckets accepted by the Order statistics (units of the Database's DATE_TRUNC function)
+	private static final List<String> STATS_BUCKETS = List.of("day", "week", "month");
+
 	/*In order for Spring Framework to provide the required dependence definitions and associate an 
 	instance of OrderRepository at OrderService, it is required to put the following annotation 
 	above the Dependency attribute*/
 	@Autowired
 	private OrderRepository orderRepository;
 	
+	//Injecting the JPA EntityManager in order to release the exported Orders from the Persistence Context
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/*OBS: The read methods below are transactional and initialize the whole graph serialized by OrderResource
+	  (see initializeGraph()) before returning. This way, the amount of SQL statements of each End Point is decided
+	  here, through the Fetch Plans declared at OrderRepository, instead of depending on the lazy loads fired one by
+	  one while Jackson serializes the response*/
+	
 	//Finding All Users/Database Table Rows
+	@Transactional(readOnly = true)
 	public List<Order> findAll(){
-		return orderRepository.findAll();
+		return initializeGraph(orderRepository.findAll());
 	}
 	
 	//Finding Users/Database Table Rows by IDs/Primary Keys
+	@Transactional(readOnly = true)
 	public Order findById(Long id) {
 		
-		//OBS: the operation findByid() from JPA CRUD returns an Optional-typed object
-		Optional<Order> order = orderRepository.findById(id);
+		//OBS: the detail query returns an Optional-typed object with client, payment, items, products and categories already fetched
+		Optional<Order> order = orderRepository.findDetailById(id);
+		
+		//Returning Order type through Optional Object Method .orElseThrow(), which throws a Customized Exception if there is no such Order
+		return order.orElseThrow(() -> new ResourceNotFoundException(id));
+		
+	}
+	
+	//Finding one page of Orders through Keyset (Cursor) Pagination
+	@Transactional(readOnly = true)
+	public CursorPage<Order> findPage(String after, int limit) {
+		
+		if(limit < 1 || limit > MAX_PAGE_LIMIT) {
+			throw new InvalidRequestException("Invalid limit! It must be between 1 and " + MAX_PAGE_LIMIT);
+		}
+		
+		//OBS: One extra row is requested only to find out whether there is a next page or not
+		PageRequest pageRequest = PageRequest.of(0, limit + 1);
+		
+		List<Order> list;
+		if(after == null || after.isEmpty()) {
+			list = orderRepository.findFirstPage(pageRequest);
+		}
+		else {
+			Order cursor = decodeCursor(after);
+			list = orderRepository.findPageAfter(cursor.getMoment(), cursor.getId(), pageRequest);
+		}
 		
-		//Returning User type return through Optional Object Method .get()
-		return order.get();
+		String nextCursor = null;
+		if(list.size() > limit) {
+			list = new ArrayList<>(list.subList(0, limit));
+			Order last = list.get(limit - 1);
+			nextCursor = encodeCursor(last.getMoment(), last.getId());
+		}
 		
+		return new CursorPage<>(initializeGraph(list), nextCursor);
+	}
+	
+	/*OBS: The Summary methods below return OrderSummary projections (id, moment, status, client id and total) instead of
+	  Orders, for clients that do not show the items of each Order. Each one costs a single SELECT over tb_order only,
+	  and since no Entity is loaded, there is neither a graph to initialize nor dirty-checking snapshots to keep*/
+	
+	//Finding the Summaries of All Orders
+	@Transactional(readOnly = true)
+	public List<OrderSummary> findAllSummaries(){
+		return orderRepository.findAllSummaries();
+	}
+	
+	//Finding one page of Order Summaries through Keyset (Cursor) Pagination (the cursors are the same as findPage()'s)
+	@Transactional(readOnly = true)
+	public CursorPage<OrderSummary> findSummaryPage(String after, int limit) {
+		
+		if(limit < 1 || limit > MAX_PAGE_LIMIT) {
+			throw new InvalidRequestException("Invalid limit! It must be between 1 and " + MAX_PAGE_LIMIT);
+		}
+		
+		PageRequest pageRequest = PageRequest.of(0, limit + 1);
+		
+		List<OrderSummary> list;
+		if(after == null || after.isEmpty()) {
+			list = orderRepository.findFirstSummaryPage(pageRequest);
+		}
+		else {
+			Order cursor = decodeCursor(after);
+			list = orderRepository.findSummaryPageAfter(cursor.getMoment(), cursor.getId(), pageRequest);
+		}
+		
+		String nextCursor = null;
+		if(list.size() > limit) {
+			list = new ArrayList<>(list.subList(0, limit));
+			OrderSummary last = list.get(limit - 1);
+			nextCursor = encodeCursor(last.getMoment(), last.getId());
+		}
+		
+		return new CursorPage<>(list, nextCursor);
+	}
+	
+	/*Initializing the lazy collections serialized along with the Orders (items and each Product's categories).
+	  Since hibernate.default_batch_fetch_size is set, touching the first uninitialized collection loads the same
+	  collection for up to that amount of Orders/Products at once, so this loop costs a couple of SELECTs
+	  for the whole list instead of one per Order and one per Product*/
+	private List<Order> initializeGraph(List<Order> orders) {
+		for(Order order : orders) {
+			for(OrderItem item : order.getItems()) {
+				Hibernate.initialize(item.getProduct().getCategories());
+			}
+		}
+		return orders;
+	}
+	
+	//Finding the totals of the Orders whose total is between min and max, sorted by total (Sort.Direction.ASC or DESC)
+	//OBS: min and max are decimal amounts (as displayed at JSON), and are converted into the minor units of the total attribute
+	public List<OrderTotalView> findTotals(Double min, Double max, Sort.Direction direction, int limit) {
+		
+		if(limit < 1 || limit > MAX_PAGE_LIMIT) {
+			throw new InvalidRequestException("Invalid limit! It must be between 1 and " + MAX_PAGE_LIMIT);
+		}
+		
+		//OBS: id is used as a tie-breaker so that Orders with the same total are always returned in the same order
+		Sort sort = Sort.by(direction, "total").and(Sort.by(direction, "id"));
+		
+		return orderRepository.findByTotalBetween(MinorUnitsConverter.toMinorUnits(min), MinorUnitsConverter.toMinorUnits(max),
+				PageRequest.of(0, limit, sort));
+	}
+	
+	/*Finding the statistics (amount of Orders and revenue) of the Orders placed between "from" (inclusive) and "to"
+	  (exclusive), per time bucket ("day", "week" or "month") and, when groupBy is "status", per status as well*/
+	
+	/*OBS: The aggregation is made by the Database (see OrderRepository's Statistics Queries), so a single SELECT
+	  returns only one row per group, no matter how many Orders there are at the informed range*/
+	@Transactional(readOnly = true)
+	public List<OrderStats> findStats(String from, String to, String bucket, String groupBy) {
+		
+		String unit = bucket == null ? "" : bucket.toLowerCase(Locale.ROOT);
+		if(!STATS_BUCKETS.contains(unit)) {
+			throw new InvalidRequestException("Invalid bucket: " + bucket + "! It must be day, week or month");
+		}
+		if(groupBy != null && !groupBy.isEmpty() && !"status".equalsIgnoreCase(groupBy)) {
+			throw new InvalidRequestException("Invalid groupBy: " + groupBy + "! The statistics can only be grouped by status");
+		}
+		
+		Instant start = parseInstant(from);
+		Instant end = parseInstant(to);
+		if(!start.isBefore(end)) {
+			throw new InvalidRequestException("Invalid range! from must be before to");
+		}
+		
+		/*OBS2: The native queries sum the decimal total column itself, so each revenue is rounded to minor units (which also
+		  drops the binary rounding errors accumulated by the Database's floating-point SUM)*/
+		List<OrderStats> stats = new ArrayList<>();
+		if(groupBy == null || groupBy.isEmpty()) {
+			for(Object[] row : orderRepository.findStatsByBucket(unit, start, end)) {
+				stats.add(new OrderStats(toInstant(row[0]), null, ((Number) row[1]).longValue(),
+						MinorUnitsConverter.toMinorUnits(((Number) row[2]).doubleValue())));
+			}
+		}
+		else {
+			for(Object[] row : orderRepository.findStatsByBucketAndStatus(unit, start, end)) {
+				stats.add(new OrderStats(toInstant(row[0]), ((Number) row[1]).intValue(), ((Number) row[2]).longValue(),
+						MinorUnitsConverter.toMinorUnits(((Number) row[3]).doubleValue())));
+			}
+		}
+		return stats;
+	}
+	
+	//Parsing an ISO-8601 instant (2021-01-01T00:00:00Z) informed by the client
+	private static Instant parseInstant(String value) {
+		try {
+			return Instant.parse(value);
+		}
+		catch (DateTimeException e) {
+			throw new InvalidRequestException("Invalid instant: " + value + "! It must follow the ISO-8601 format (2021-01-01T00:00:00Z)");
+		}
+	}
+	
+	//OBS: The native queries return the truncated moments as JDBC Timestamps, read back in UTC as well (hibernate.jdbc.time_zone)
+	private static Instant toInstant(Object value) {
+		return ((Timestamp) value).toInstant();
+	}
+	
+	/*Exporting all Orders one by one to the informed action, reading them from a Database Cursor
+	  (OrderRepository.streamAll()) instead of loading the whole table*/
+	
+	/*OBS: The Orders are read in blocks of EXPORT_FETCH_SIZE, and the graph of each block is initialized at once
+	  (see initializeGraph()) before its Orders are handed to the action. This way, the items, Products and Categories
+	  are loaded in batches for the whole block, instead of one query per Order. Afterwards the Persistence Context is
+	  cleared, so that the memory consumption stays constant no matter how large tb_order is*/
+	@Transactional(readOnly = true)
+	public void exportAll(Consumer<Order> action) {
+		
+		try (Stream<Order> stream = orderRepository.streamAll()) {
+			
+			Iterator<Order> iterator = stream.iterator();
+			List<Order> block = new ArrayList<>(OrderRepository.EXPORT_FETCH_SIZE);
+			
+			while(iterator.hasNext()) {
+				block.add(iterator.next());
+				
+				if(block.size() == OrderRepository.EXPORT_FETCH_SIZE || !iterator.hasNext()) {
+					initializeGraph(block).forEach(action);
+					block.clear();
+					entityManager.clear();
+				}
+			}
+		}
+	}
+	
+	/*The cursor is the (moment, id) pair of the last Order from the page, encoded as an URL-safe Base64 String
+	  so that the clients treat it as an opaque token instead of building it by themselves*/
+	private String encodeCursor(Instant moment, Long id) {
+		String raw = moment.getEpochSecond() + ":" + moment.getNano() + ":" + id;
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+	
+	//Decoding the cursor back into an auxiliary (non-managed) Order carrying only its moment and id
+	private Order decodeCursor(String cursor) {
+		try {
+			String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+			String[] parts = raw.split(":");
+			if(parts.length != 3) {
+				throw new IllegalArgumentException();
+			}
+			Instant moment = Instant.ofEpochSecond(Long.parseLong(parts[0]), Long.parseLong(parts[1]));
+			return new Order(Long.parseLong(parts[2]), moment, null, null);
+		}
+		catch (IllegalArgumentException | DateTimeException e) {
+			throw new InvalidRequestException("Invalid cursor: " + cursor);
+		}
 	}
 }
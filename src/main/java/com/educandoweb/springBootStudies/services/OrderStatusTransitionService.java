@@ -0,0 +1,219 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionRequest;
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionResult;
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionResult.Outcome;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.events.OrderChangedEvent;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+
+/*Service that moves many Orders to another status at once (POST /orders/status-transitions), such as the thousands of
+  Orders SHIPPED by the warehouse each day. Instead of loading, changing and saving each Order, the Orders are handled
+  in batches of orders.status-transition.batch-size: the statuses of a batch are read by a single SELECT, and all of its
+  allowed Orders are moved by a single UPDATE ... WHERE order_status IN (...) (see OrderRepository's Status Transition
+  Queries). Each batch runs at its own transaction, so a large request never holds a long transaction*/
+
+/*OBS: The statuses of a batch are read under lock (SELECT ... FOR UPDATE), so no concurrent request changes them before
+  the UPDATE of the batch. Every allowed Order is therefore moved, and the reported previous status is exactly the one
+  it was moved from (an Order changed by another request just before the read is simply reported with its new status).
+  Without the lock, the UPDATE could skip Orders changed meanwhile, and the status read before it would be stale*/
+
+/*OBS2: Since bulk statements bypass the Entity Listeners, each moved Order is notified here through OrderChangedEvent
+  (with the status it was moved from), so that the UserOrderSummary of its client is updated once the batch is committed*/
+
+@Service
+public class OrderStatusTransitionService {
+
+	//Upper bound for the amount of ids informed at a single request
+	public static final int MAX_IDS = 100000;
+
+	//Lower and upper bounds of the moments when the filter does not restrict them
+	private static final Instant MIN_MOMENT = Instant.parse("0001-01-01T00:00:00Z");
+	private static final Instant MAX_MOMENT = Instant.parse("9999-12-31T23:59:59Z");
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private ApplicationEventPublisher publisher;
+
+	private final TransactionTemplate transactionTemplate;
+
+	//Amount of Orders read and moved per statement (and per transaction)
+	private final int batchSize;
+
+	public OrderStatusTransitionService(PlatformTransactionManager transactionManager,
+			@Value("${orders.status-transition.batch-size:1000}") int batchSize) {
+		this.transactionTemplate = new TransactionTemplate(transactionManager);
+		this.batchSize = batchSize;
+	}
+
+	//Moving the Orders selected by the request (by ids or by filter) to its target status, and reporting each one of them
+	public List<OrderStatusTransitionResult> transition(OrderStatusTransitionRequest request) {
+
+		OrderStatus target = request.getTarget();
+		if(target == null) {
+			throw new InvalidRequestException("Invalid request! The target status must be informed");
+		}
+		if((request.getIds() == null) == (request.getFilter() == null)) {
+			throw new InvalidRequestException("Invalid request! Either the ids or the filter of the Orders must be informed");
+		}
+
+		return request.getIds() != null ? transitionByIds(target, request.getIds()) : transitionByFilter(target, request.getFilter());
+	}
+
+	/*Moving the informed Orders, batch by batch. The results follow the order of the informed ids (the repeated ones are
+	  reported once), and the ids of the Orders that do not exist are reported as NOT_FOUND*/
+	private List<OrderStatusTransitionResult> transitionByIds(OrderStatus target, List<Long> ids) {
+
+		if(ids.size() > MAX_IDS) {
+			throw new InvalidRequestException("Invalid request! At most " + MAX_IDS + " ids can be informed at once");
+		}
+		//OBS: Not ids.contains(null), which immutable Lists (List.of()) answer by throwing a NullPointerException
+		if(ids.stream().anyMatch(Objects::isNull)) {
+			throw new InvalidRequestException("Invalid request! The ids must not be null");
+		}
+
+		List<Long> distinctIds = new ArrayList<>(new LinkedHashSet<>(ids));
+		List<OrderStatusTransitionResult> results = new ArrayList<>(distinctIds.size());
+
+		for(int start = 0; start < distinctIds.size(); start += batchSize) {
+			List<Long> batch = distinctIds.subList(start, Math.min(start + batchSize, distinctIds.size()));
+
+			Map<Long, OrderStatusTransitionResult> batchResults = transactionTemplate.execute(status ->
+					apply(target, orderRepository.findStatusesByIdIn(batch)));
+
+			for(Long id : batch) {
+				OrderStatusTransitionResult result = batchResults.get(id);
+				results.add(result != null ? result : new OrderStatusTransitionResult(id, null, Outcome.NOT_FOUND));
+			}
+		}
+		return results;
+	}
+
+	/*Moving every Order matched by the filter (and allowed to move to the target status), batch by batch in id order.
+	  Only the Orders that can actually be moved are selected, so every reported Order is UPDATED (unless it was changed
+	  meanwhile by another request)*/
+	private List<OrderStatusTransitionResult> transitionByFilter(OrderStatus target, OrderStatusTransitionRequest.Filter filter) {
+
+		Set<OrderStatus> sources = sourcesOf(target);
+		if(filter.getStatus() != null) {
+			if(!sources.contains(filter.getStatus())) {
+				throw new InvalidRequestException("Invalid transition! Orders cannot be moved from " + filter.getStatus() + " to " + target);
+			}
+			sources = EnumSet.of(filter.getStatus());
+		}
+		List<Integer> codes = codesOf(sources);
+
+		Instant from = filter.getFrom() != null ? filter.getFrom() : MIN_MOMENT;
+		Instant to = filter.getTo() != null ? filter.getTo() : MAX_MOMENT;
+		if(!from.isBefore(to)) {
+			throw new InvalidRequestException("Invalid range! from must be before to");
+		}
+
+		List<OrderStatusTransitionResult> results = new ArrayList<>();
+		PageRequest pageRequest = PageRequest.of(0, batchSize);
+		Long after = 0L;
+
+		while(true) {
+			Long last = after;
+			List<Object[]> rows = transactionTemplate.execute(status -> {
+				List<Object[]> batch = orderRepository.findStatusesByFilter(codes, filter.getClientId(), from, to, last, pageRequest);
+				results.addAll(apply(target, batch).values());
+				return batch;
+			});
+
+			if(rows.size() < batchSize) {
+				return results;
+			}
+			after = (Long) rows.get(rows.size() - 1)[0];
+		}
+	}
+
+	/*Moving the Orders of a batch (rows of id, status code and client id) to the target status through a single UPDATE,
+	  and building the result of each one of them (indexed by id, in the order of the rows)*/
+
+	//OBS: Must run inside a transaction, which is the one the UPDATE and the OrderChangedEvents belong to
+	private Map<Long, OrderStatusTransitionResult> apply(OrderStatus target, List<Object[]> rows) {
+
+		Map<Long, OrderStatusTransitionResult> results = new LinkedHashMap<>();
+		Map<Long, OrderStatus> previous = new HashMap<>();
+		Map<Long, Long> clients = new HashMap<>();
+
+		for(Object[] row : rows) {
+			Long id = (Long) row[0];
+			OrderStatus status = OrderStatus.valueOf((Integer) row[1]);
+			previous.put(id, status);
+			clients.put(id, (Long) row[2]);
+
+			if(status == target) {
+				results.put(id, new OrderStatusTransitionResult(id, status, Outcome.UNCHANGED));
+			}
+			else if(!status.canChangeTo(target)) {
+				results.put(id, new OrderStatusTransitionResult(id, status, Outcome.INVALID_TRANSITION));
+			}
+		}
+
+		List<Long> allowed = rows.stream().map(row -> (Long) row[0]).filter(id -> !results.containsKey(id)).collect(Collectors.toList());
+		if(allowed.isEmpty()) {
+			return results;
+		}
+
+		int updated = orderRepository.updateStatus(allowed, codesOf(sourcesOf(target)), target.getCode());
+
+		//OBS: Cannot happen while the rows of the batch are locked, but the batch is rolled back rather than misreported
+		if(updated != allowed.size()) {
+			throw new OptimisticLockingFailureException("Orders of the batch were changed by another request while being moved to " + target);
+		}
+
+		for(Long id : allowed) {
+			results.put(id, new OrderStatusTransitionResult(id, previous.get(id), Outcome.UPDATED));
+		}
+
+		for(Long id : allowed) {
+			if(clients.get(id) != null) {
+				publisher.publishEvent(OrderChangedEvent.statusChanged(clients.get(id), previous.get(id), target));
+			}
+		}
+
+		return results;
+	}
+
+	//Statuses whose Orders are allowed to move to the informed one
+	private static Set<OrderStatus> sourcesOf(OrderStatus target) {
+		Set<OrderStatus> sources = EnumSet.noneOf(OrderStatus.class);
+		for(OrderStatus status : OrderStatus.values()) {
+			if(status.canChangeTo(target)) {
+				sources.add(status);
+			}
+		}
+		return sources;
+	}
+
+	//Int codes persisted at tb_order for the informed statuses
+	private static List<Integer> codesOf(Set<OrderStatus> statuses) {
+		return statuses.stream().map(OrderStatus::getCode).collect(Collectors.toList());
+	}
+}
@@ -0,0 +1,211 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.PeekableIntIterator;
+import org.roaringbitmap.RoaringBitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.events.CatalogChangedEvent;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+
+/*Service that keeps, for each Category, a compressed (Roaring) Bitmap of the ids of its Products, built from the
+  tb_product_category join table. Filtering the Products by several Categories then becomes an intersection (all
+  Categories) or a union (any Category) of Bitmaps computed in memory, instead of loading the Categories' products
+  collections (which would pull every Product Entity into the Persistence Context)*/
+
+/*OBS: The Bitmaps are built from ProductRepository once the application is ready, and then kept up to date Product by
+  Product after each committed write (see CatalogEntityListener). They are guarded by a Read-Write Lock, so many
+  filters run at the same time and only the (rare) updates are exclusive*/
+
+/*OBS2: Products may be written while the Bitmaps are being built from a snapshot of the join table. So the ids of the
+  Products written (and of the Categories deleted) meanwhile are recorded, and their current state is applied over the
+  snapshot before it replaces the live Bitmaps*/
+
+/*OBS3: Roaring Bitmaps hold int values, so the Product ids (taken from seq_product) must stay below Integer.MAX_VALUE*/
+
+@Service
+public class ProductCategoryFilterService {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductCategoryFilterService.class);
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//Category id -> ids of its Products
+	private final Map<Long, RoaringBitmap> productsByCategory = new HashMap<>();
+
+	//Products written and Categories deleted since the snapshot of a running build was taken (null when no build is running)
+	private Set<Integer> changedProducts;
+	private Set<Long> removedCategories;
+
+	//Building the Bitmaps from all the (Product, Category) pairs once the application is ready
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildIndex() {
+		lock.writeLock().lock();
+		try {
+			changedProducts = new HashSet<>();
+			removedCategories = new HashSet<>();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+
+		List<Object[]> pairs;
+		try {
+			pairs = productRepository.findAllCategoryPairs();
+		}
+		catch (RuntimeException e) {
+			stopRecording();
+			throw e;
+		}
+		Map<Long, RoaringBitmap> bitmaps = new HashMap<>();
+		for(Object[] pair : pairs) {
+			bitmaps.computeIfAbsent((Long) pair[1], id -> new RoaringBitmap()).add(Math.toIntExact((Long) pair[0]));
+		}
+
+		lock.writeLock().lock();
+		try {
+			//OBS: The live Bitmaps already hold the current Categories of the Products written since the snapshot
+			for(int productId : changedProducts) {
+				for(RoaringBitmap bitmap : bitmaps.values()) {
+					bitmap.remove(productId);
+				}
+				for(Map.Entry<Long, RoaringBitmap> entry : productsByCategory.entrySet()) {
+					if(entry.getValue().contains(productId)) {
+						bitmaps.computeIfAbsent(entry.getKey(), id -> new RoaringBitmap()).add(productId);
+					}
+				}
+			}
+			bitmaps.keySet().removeAll(removedCategories);
+			bitmaps.values().forEach(RoaringBitmap::runOptimize);
+
+			productsByCategory.clear();
+			productsByCategory.putAll(bitmaps);
+			changedProducts = null;
+			removedCategories = null;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+		log.info("Product category bitmaps built with {} categories and {} assignments", bitmaps.size(), pairs.size());
+	}
+
+	/*Updating the Bitmaps after the commit of each written Product (its current Categories are read from the join table)
+	  or deleted Category (a Category can only be deleted once no Product references it)*/
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if(event.getEntity() instanceof Product) {
+			Product product = (Product) event.getEntity();
+			List<Long> categoryIds = event.isRemoved() ? List.of() : productRepository.findCategoryIdsById(product.getId());
+			replaceCategories(Math.toIntExact(product.getId()), categoryIds);
+		}
+		else if(event.getEntity() instanceof Category && event.isRemoved()) {
+			Long categoryId = ((Category) event.getEntity()).getId();
+			lock.writeLock().lock();
+			try {
+				productsByCategory.remove(categoryId);
+				if(removedCategories != null) {
+					removedCategories.add(categoryId);
+				}
+			}
+			finally {
+				lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/*Finding, in ascending order, up to "limit" ids greater than "after" of the Products that belong to all (matchAll)
+	  or to any of the informed Categories. Unknown Categories have no Products*/
+	public List<Long> findProductIds(Collection<Long> categoryIds, boolean matchAll, long after, int limit) {
+
+		List<Long> ids = new ArrayList<>(limit);
+		if(after >= Integer.MAX_VALUE) {
+			return ids;
+		}
+
+		lock.readLock().lock();
+		try {
+			List<RoaringBitmap> bitmaps = new ArrayList<>(categoryIds.size());
+			for(Long categoryId : categoryIds) {
+				RoaringBitmap bitmap = productsByCategory.get(categoryId);
+				if(bitmap != null) {
+					bitmaps.add(bitmap);
+				}
+				else if(matchAll) {
+					return ids;
+				}
+			}
+			if(bitmaps.isEmpty()) {
+				return ids;
+			}
+
+			//OBS: A single Bitmap is walked as it is, without copying it
+			RoaringBitmap result;
+			if(bitmaps.size() == 1) {
+				result = bitmaps.get(0);
+			}
+			else {
+				RoaringBitmap[] array = bitmaps.toArray(new RoaringBitmap[0]);
+				result = matchAll ? FastAggregation.and(array) : FastAggregation.or(array);
+			}
+
+			PeekableIntIterator iterator = result.getIntIterator();
+			iterator.advanceIfNeeded((int) Math.max(after + 1, 0));
+			while(iterator.hasNext() && ids.size() < limit) {
+				ids.add((long) iterator.next());
+			}
+			return ids;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void stopRecording() {
+		lock.writeLock().lock();
+		try {
+			changedProducts = null;
+			removedCategories = null;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void replaceCategories(int productId, List<Long> categoryIds) {
+		lock.writeLock().lock();
+		try {
+			for(RoaringBitmap bitmap : productsByCategory.values()) {
+				bitmap.remove(productId);
+			}
+			for(Long categoryId : categoryIds) {
+				productsByCategory.computeIfAbsent(categoryId, id -> new RoaringBitmap()).add(productId);
+			}
+			if(changedProducts != null) {
+				changedProducts.add(productId);
+			}
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+}
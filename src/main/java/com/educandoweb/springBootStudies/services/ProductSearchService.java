@@ -0,0 +1,495 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import com.educandoweb.springBootStudies.dto.ProductSummary;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.events.CatalogChangedEvent;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+
+/*Service that answers the Product full-text search (GET /products/search) from an in-memory Inverted Index over the
+  Products' name and description, instead of a "LIKE '%term%'" query (which cannot use any Database index and scans
+  the whole tb_product):
+  - Tokens: the texts are lower-cased, stripped of accents and split at every character that is not a letter or a digit
+  - Documents: each indexed Product gets a sequential int number (its position at the arrays below)
+  - Postings: each token points to the sorted numbers of the Products containing it, each one with a weight
+    (NAME_WEIGHT per occurrence at the name plus 1 per occurrence at the description)
+  - Dictionary: the tokens are kept sorted, so all the tokens starting with a prefix are found by a range lookup*/
+
+/*OBS: The postings are kept at primitive arrays (int numbers and float weights) instead of Collections of boxed
+  values, so that a search walks plain arrays. Each search also needs score buffers as large as the document count
+  (12 bytes per document, 3.6 MB for 300k Products), so the buffers are taken from a pool of SCRATCH_POOL_SIZE and
+  returned to it, instead of being kept by every Tomcat thread that ever searched. Searches beyond the pool size
+  allocate buffers that are simply discarded afterwards*/
+
+/*OBS2: The index is built from ProductRepository once the application is ready, and then kept up to date Product by
+  Product after each committed write (see CatalogEntityListener). Reads and writes of the index are guarded by a
+  Read-Write Lock, so many searches run at the same time and only the (rare) index updates are exclusive*/
+
+/*OBS3: Since Products may be written while the index is being built, each indexed Product keeps its version (an
+  older version never replaces a newer one), and the ids of the deleted Products are remembered (so that a row read by
+  the build before the deletion, or a late event of an update committed before it, does not index them again)*/
+
+/*OBS4: The document number of a deleted Product is released right away and reused by the next indexed Product, so
+  the arrays below and the score buffers grow with the largest amount of Products indexed at the same time, not with
+  every Product ever indexed. Only the last MAX_REMOVED_IDS deleted ids are remembered, except during the build, when
+  every deletion is remembered until the build ends (the build may have read any of their rows before the deletion)*/
+
+@Service
+public class ProductSearchService {
+
+	private static final Logger log = LoggerFactory.getLogger(ProductSearchService.class);
+
+	//Upper bound for the amount of results requested by the clients
+	public static final int MAX_RESULTS = 100;
+
+	//Weight of each occurrence of a token at the Product's name (an occurrence at the description weighs 1)
+	private static final float NAME_WEIGHT = 3f;
+
+	//Factor applied to the tokens that only start with a query term ("lap" -> "laptop"), so exact matches rank first
+	private static final float PREFIX_FACTOR = 0.5f;
+
+	//Upper bound for the amount of dictionary tokens a single (short) query term may expand into by prefix
+	private static final int MAX_PREFIX_EXPANSIONS = 200;
+
+	//Shorter query terms only match whole tokens (a single letter would be the prefix of a large part of the dictionary)
+	private static final int MIN_PREFIX_LENGTH = 2;
+
+	//Amount of deleted Product ids remembered once the index is built (see OBS4)
+	private static final int MAX_REMOVED_IDS = 10_000;
+
+	private static final Pattern ACCENTS = Pattern.compile("\\p{M}+");
+	private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+	//Sorted dictionary: token -> Postings
+	private final NavigableMap<String, Postings> dictionary = new TreeMap<>();
+
+	//Document number of each indexed Product id
+	private final Map<Long, Integer> documents = new HashMap<>();
+
+	//Per document number: the Summary returned by the searches (null while the number is free), its version, and the Postings it is at
+	private ProductSummary[] summaries = new ProductSummary[1024];
+	private Integer[] versions = new Integer[1024];
+	private Postings[][] documentPostings = new Postings[1024][];
+	private int documentCount;
+	private int liveDocuments;
+
+	//Document numbers released by deleted Products, reused before any new number is taken (see OBS4)
+	private int[] freeDocuments = new int[64];
+	private int freeCount;
+
+	//Ids of the deleted Products, oldest first (see OBS3 and OBS4), and whether the index is being built
+	private final Set<Long> removedIds = new LinkedHashSet<>();
+	private boolean building;
+
+	//Score buffers kept for reuse by the searches (each one only reset at the positions its search touched)
+	private static final int SCRATCH_POOL_SIZE = Math.max(2, Runtime.getRuntime().availableProcessors());
+	private final BlockingQueue<Scratch> scratchPool = new ArrayBlockingQueue<>(SCRATCH_POOL_SIZE);
+
+	//Postings of a single token: sorted document numbers and their weights
+	private static class Postings {
+
+		private final String token;
+		private int[] documents = new int[4];
+		private float[] weights = new float[4];
+		private int size;
+
+		private Postings(String token) {
+			this.token = token;
+		}
+
+		private void add(int document, float weight) {
+			int position = Arrays.binarySearch(documents, 0, size, document);
+			if(position >= 0) {
+				weights[position] = weight;
+				return;
+			}
+			position = -position - 1;
+			if(size == documents.length) {
+				documents = Arrays.copyOf(documents, size * 2);
+				weights = Arrays.copyOf(weights, size * 2);
+			}
+			System.arraycopy(documents, position, documents, position + 1, size - position);
+			System.arraycopy(weights, position, weights, position + 1, size - position);
+			documents[position] = document;
+			weights[position] = weight;
+			size++;
+		}
+
+		private void remove(int document) {
+			int position = Arrays.binarySearch(documents, 0, size, document);
+			if(position >= 0) {
+				System.arraycopy(documents, position + 1, documents, position, size - position - 1);
+				System.arraycopy(weights, position + 1, weights, position, size - position - 1);
+				size--;
+			}
+		}
+	}
+
+	/*Buffers of a search, indexed by document number: "matched" holds how many query terms the document matched so far,
+	  "best" its best weight for the current term, and "scores" the sum of its best weights*/
+	private static class Scratch {
+
+		private int[] matched = new int[0];
+		private float[] best = new float[0];
+		private float[] scores = new float[0];
+
+		private void ensureCapacity(int capacity) {
+			if(matched.length < capacity) {
+				matched = new int[capacity];
+				best = new float[capacity];
+				scores = new float[capacity];
+			}
+		}
+	}
+
+	//Building the index from all the Products once the application is ready
+	@EventListener(ApplicationReadyEvent.class)
+	public void buildIndex() {
+		long start = System.nanoTime();
+		setBuilding(true);
+		List<Object[]> rows;
+		try {
+			rows = productRepository.findAllSearchRows();
+			for(Object[] row : rows) {
+				index((Long) row[0], (Integer) row[1], (String) row[2], (String) row[3], (Long) row[4], (String) row[5]);
+			}
+		}
+		finally {
+			setBuilding(false);
+		}
+		log.info("Product search index built with {} products in {} ms", rows.size(), (System.nanoTime() - start) / 1_000_000);
+	}
+
+	//Updating the index after the commit of each written Product (Categories are not indexed)
+	@TransactionalEventListener(fallbackExecution = true)
+	public void onCatalogChanged(CatalogChangedEvent event) {
+		if(event.getEntity() instanceof Product) {
+			Product product = (Product) event.getEntity();
+			if(event.isRemoved()) {
+				remove(product.getId());
+			}
+			else {
+				index(product.getId(), product.getVersion(), product.getName(), product.getDescription(), product.getPrice(), product.getImgUrl());
+			}
+		}
+	}
+
+	/*Searching the Products that contain ALL the query terms (each one either as a whole token or as the prefix of a
+	  token), ranked by the sum of the weights of their best matching token for each term, where each weight is scaled by
+	  the rarity of the token (log(1 + Products / Products containing it)). Ties are broken by the Product id*/
+
+	/*OBS: The terms are matched from the rarest to the most common one, so that the documents still matching all the
+	  previous terms (the candidates) shrink as early as possible*/
+	public List<ProductSummary> search(String query, int limit) {
+
+		if(limit < 1 || limit > MAX_RESULTS) {
+			throw new InvalidRequestException("Invalid limit! It must be between 1 and " + MAX_RESULTS);
+		}
+		Set<String> terms = new LinkedHashSet<>(tokenize(query));
+		if(terms.isEmpty()) {
+			throw new InvalidRequestException("Invalid query! It must contain at least one letter or digit");
+		}
+
+		lock.readLock().lock();
+		try {
+			//Expanding each term into the dictionary tokens it matches (with their factors), and sorting the terms by rarity
+			List<Map<Postings, Float>> expansions = new ArrayList<>(terms.size());
+			for(String term : terms) {
+				Map<Postings, Float> expansion = expand(term);
+				if(expansion.isEmpty()) {
+					return Collections.emptyList();
+				}
+				expansions.add(expansion);
+			}
+			expansions.sort((a, b) -> Long.compare(postingCount(a), postingCount(b)));
+
+			Scratch buffers = scratchPool.poll();
+			if(buffers == null) {
+				buffers = new Scratch();
+			}
+			buffers.ensureCapacity(documentCount);
+			int[] matched = buffers.matched;
+			float[] best = buffers.best;
+			float[] scores = buffers.scores;
+
+			int[] candidates = new int[0];
+			int candidateCount = 0;
+			for(int term = 0; term < expansions.size(); term++) {
+
+				for(Map.Entry<Postings, Float> entry : expansions.get(term).entrySet()) {
+					Postings postings = entry.getKey();
+					float factor = entry.getValue() * (float) Math.log(1.0 + (double) liveDocuments / postings.size);
+					for(int i = 0; i < postings.size; i++) {
+						int document = postings.documents[i];
+						float weight = postings.weights[i] * factor;
+						if(matched[document] == term) {
+							//First token of this term found at a document that matched all the previous terms
+							matched[document] = term + 1;
+							best[document] = weight;
+							if(term == 0) {
+								if(candidateCount == candidates.length) {
+									candidates = Arrays.copyOf(candidates, Math.max(16, candidateCount * 2));
+								}
+								candidates[candidateCount++] = document;
+							}
+						}
+						else if(matched[document] == term + 1 && weight > best[document]) {
+							best[document] = weight;
+						}
+					}
+				}
+
+				//Keeping only the candidates that matched this term too (the others have their buffers reset)
+				int kept = 0;
+				for(int i = 0; i < candidateCount; i++) {
+					int document = candidates[i];
+					if(matched[document] == term + 1) {
+						scores[document] += best[document];
+						candidates[kept++] = document;
+					}
+					else {
+						matched[document] = 0;
+						scores[document] = 0f;
+					}
+				}
+				candidateCount = kept;
+			}
+
+			List<ProductSummary> result = top(candidates, candidateCount, scores, limit);
+
+			for(int i = 0; i < candidateCount; i++) {
+				matched[candidates[i]] = 0;
+				scores[candidates[i]] = 0f;
+			}
+			scratchPool.offer(buffers);
+			return result;
+		}
+		finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	//Dictionary tokens equal to the term (factor 1) or starting with it (factor PREFIX_FACTOR)
+	private Map<Postings, Float> expand(String term) {
+		Map<Postings, Float> expansion = new LinkedHashMap<>();
+		if(term.length() < MIN_PREFIX_LENGTH) {
+			Postings postings = dictionary.get(term);
+			if(postings != null) {
+				expansion.put(postings, 1f);
+			}
+			return expansion;
+		}
+		for(Postings postings : dictionary.subMap(term, true, term + Character.MAX_VALUE, true).values()) {
+			if(expansion.size() == MAX_PREFIX_EXPANSIONS) {
+				break;
+			}
+			expansion.put(postings, postings.token.equals(term) ? 1f : PREFIX_FACTOR);
+		}
+		return expansion;
+	}
+
+	private static long postingCount(Map<Postings, Float> expansion) {
+		long count = 0;
+		for(Postings postings : expansion.keySet()) {
+			count += postings.size;
+		}
+		return count;
+	}
+
+	/*Selecting the "limit" best scored candidates, kept sorted at a small array (a candidate that does not beat the
+	  worst kept one costs a single comparison), instead of sorting every candidate*/
+	private List<ProductSummary> top(int[] candidates, int candidateCount, float[] scores, int limit) {
+		int[] best = new int[Math.min(limit, candidateCount)];
+		int size = 0;
+		for(int i = 0; i < candidateCount; i++) {
+			int document = candidates[i];
+			if(size == best.length && !ranksBefore(document, best[size - 1], scores)) {
+				continue;
+			}
+			int position = size == best.length ? size - 1 : size++;
+			while(position > 0 && ranksBefore(document, best[position - 1], scores)) {
+				best[position] = best[position - 1];
+				position--;
+			}
+			best[position] = document;
+		}
+		List<ProductSummary> result = new ArrayList<>(size);
+		for(int i = 0; i < size; i++) {
+			result.add(summaries[best[i]]);
+		}
+		return result;
+	}
+
+	private boolean ranksBefore(int document, int other, float[] scores) {
+		if(scores[document] != scores[other]) {
+			return scores[document] > scores[other];
+		}
+		return summaries[document].getId() < summaries[other].getId();
+	}
+
+	/*Adding (or replacing) a Product at the index. Since the index may be built while Products are being written, an
+	  older version of a Product never replaces a newer one that was already indexed, and a deleted Product is never
+	  indexed again*/
+	private void index(Long id, Integer version, String name, String description, long price, String imgUrl) {
+
+		Map<String, Float> weights = new HashMap<>();
+		for(String token : tokenize(name)) {
+			weights.merge(token, NAME_WEIGHT, Float::sum);
+		}
+		for(String token : tokenize(description)) {
+			weights.merge(token, 1f, Float::sum);
+		}
+
+		lock.writeLock().lock();
+		try {
+			if(removedIds.contains(id)) {
+				return;
+			}
+			Integer document = documents.get(id);
+			if(document == null) {
+				document = newDocument();
+				documents.put(id, document);
+				liveDocuments++;
+			}
+			else if(versions[document] != null && version != null && versions[document] > version) {
+				return;
+			}
+			else {
+				removePostings(document);
+			}
+
+			Postings[] postings = new Postings[weights.size()];
+			int i = 0;
+			for(Map.Entry<String, Float> entry : weights.entrySet()) {
+				postings[i] = dictionary.computeIfAbsent(entry.getKey(), Postings::new);
+				postings[i++].add(document, entry.getValue());
+			}
+			summaries[document] = new ProductSummary(id, name, price, imgUrl);
+			versions[document] = version;
+			documentPostings[document] = postings;
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	/*OBS: The document number of the deleted Product is released for reuse (see OBS4), and its id is remembered even if
+	  it was never indexed (see OBS3)*/
+	private void remove(Long id) {
+		lock.writeLock().lock();
+		try {
+			Integer document = documents.remove(id);
+			if(document != null) {
+				removePostings(document);
+				summaries[document] = null;
+				versions[document] = null;
+				liveDocuments--;
+				if(freeCount == freeDocuments.length) {
+					freeDocuments = Arrays.copyOf(freeDocuments, freeCount * 2);
+				}
+				freeDocuments[freeCount++] = document;
+			}
+			removedIds.remove(id);
+			removedIds.add(id);
+			forgetOldRemovedIds();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	private void setBuilding(boolean building) {
+		lock.writeLock().lock();
+		try {
+			this.building = building;
+			forgetOldRemovedIds();
+		}
+		finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	//Keeping only the last MAX_REMOVED_IDS deleted ids, unless the index is being built (see OBS4)
+	private void forgetOldRemovedIds() {
+		if(!building) {
+			Iterator<Long> oldest = removedIds.iterator();
+			for(int excess = removedIds.size() - MAX_REMOVED_IDS; excess > 0; excess--) {
+				oldest.next();
+				oldest.remove();
+			}
+		}
+	}
+
+	private int newDocument() {
+		if(freeCount > 0) {
+			return freeDocuments[--freeCount];
+		}
+		if(documentCount == summaries.length) {
+			summaries = Arrays.copyOf(summaries, documentCount * 2);
+			versions = Arrays.copyOf(versions, documentCount * 2);
+			documentPostings = Arrays.copyOf(documentPostings, documentCount * 2);
+		}
+		return documentCount++;
+	}
+
+	//OBS: Tokens left without documents are dropped from the dictionary, so that prefix lookups do not walk over them
+	private void removePostings(int document) {
+		Postings[] postings = documentPostings[document];
+		if(postings != null) {
+			for(Postings list : postings) {
+				list.remove(document);
+				if(list.size == 0) {
+					dictionary.remove(list.token);
+				}
+			}
+			documentPostings[document] = null;
+		}
+	}
+
+	//Splitting a text into lower-cased tokens without accents ("Café-Brasil" -> ["cafe", "brasil"])
+	static List<String> tokenize(String text) {
+		List<String> tokens = new ArrayList<>();
+		if(text == null) {
+			return tokens;
+		}
+		String normalized = ACCENTS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("").toLowerCase(Locale.ROOT);
+		for(String token : SEPARATORS.split(normalized)) {
+			if(!token.isEmpty()) {
+				tokens.add(token);
+			}
+		}
+		return tokens;
+	}
+}
@@ -1,13 +1,35 @@
 package com.educandoweb.springBootStudies.services;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
+import javax.persistence.CacheRetrieveMode;
+import javax.persistence.CacheStoreMode;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.educandoweb.springBootStudies.dto.CursorPage;
+import com.educandoweb.springBootStudies.dto.ProductSummary;
+import com.educandoweb.springBootStudies.config.RetryConfig;
+import com.educandoweb.springBootStudies.entities.Category;
 import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.repositories.CategoryRepository;
 import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.exceptions.DataBaseException;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
 
 /*Registering the class as a Spring Component in order to make it available for the Spring's 
   Dependency-Injection Mechanism which, in this case, will be useful at declaring Product 
@@ -21,26 +43,260 @@ import com.educandoweb.springBootStudies.repositories.ProductRepository;
 @Service
 public class ProductService {
 
+	//Upper bound for the page size requested by the clients at the Category filter
+	public static final int MAX_PAGE_LIMIT = 1000;
+
 	/*In order for Spring Framework to provide the required dependence definitions and associate an 
 	instance of ProductRepository at ProductService, it is required to put the following annotation 
 	above the Dependency attribute*/
 	@Autowired
 	private ProductRepository productRepository;
 	
-	//Finding All Products/Database Table Rows
+	//Declaring CategoryRepository Dependence, used to associate existing Categories to the written Products
+	@Autowired
+	private CategoryRepository categoryRepository;
+	
+	//Declaring the dependence to the in-memory Bitmaps of Product ids per Category, used by the Category filter
+	@Autowired
+	private ProductCategoryFilterService categoryFilterService;
+	
+	//Injecting the JPA EntityManager in order to skip the Second-Level Cache at the loads cached under an ETag (see OBS4)
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	/*OBS: The read methods below are cached at the local Caffeine Cache (see CacheConfig and application.properties),
+	  so repeated catalog reads are answered from memory instead of the Database. Each entry is keyed by the ETag the
+	  caller read from the Database right before the call (see the ETag methods below), so a cached body is only ever
+	  served under the ETag it was loaded with: once a write commits (at this instance or at any other one), the next
+	  request reads the new ETag, misses the old entry and loads the new state. The write methods still evict the
+	  Lists, and the entries left behind by the writes are never read again and expire with the Cache's TTL*/
+	
+	/*OBS2: Since cached Products are served after their Persistence Context is closed, their lazy categories
+	  collections are initialized before being cached (in batches, through hibernate.default_batch_fetch_size)*/
+	
+	/*OBS3: Without the ETag at the key, a read that loaded the old state right before a write could put it back into the
+	  Cache right after the write's eviction, and it would then be served under the new ETag until the TTL expired*/
+	
+	/*OBS4: The same would happen if the Products and Categories were loaded from Hibernate's Second-Level Cache (see
+	  Product and application.properties): that Cache is local too, so after a write made at another instance it still
+	  holds the old Product while the ETag read from the Database is already the new one. The loads below therefore read
+	  from the Database only (refreshing the Second-Level Cache with what they read, see bypassSecondLevelCache()). It
+	  costs nothing to the repeated reads, which are answered by the Caffeine entry without loading anything*/
+	
+	//Finding All Products/Database Table Rows (eTag is the one returned by findAllETag() right before, see OBS above)
+	
+	@Cacheable(value = "products", key = "#eTag")
+	@Transactional(readOnly = true)
+	public List<Product> findAll(String eTag){
+		bypassSecondLevelCache();
+		List<Product> list = productRepository.findAll();
+		list.forEach(prod -> Hibernate.initialize(prod.getCategories()));
+		return list;
+	}
+	
+	/*Finding the Summaries (id, name, price and imgUrl) of All Products, for clients that do not show the Categories.
+	  A single SELECT over tb_product only, and no managed Product is created (eTag as at findAll())*/
+	@Cacheable(value = "productSummaries", key = "#eTag")
+	@Transactional(readOnly = true)
+	public List<ProductSummary> findAllSummaries(String eTag){
+		return productRepository.findAllSummaries();
+	}
+	
+	/*Finding one page of the Products that belong to all (match=all) or to any (match=any) of the informed Categories.
+	  The ids of the page are selected in memory by ProductCategoryFilterService (in ascending order, starting right after
+	  the "after" cursor), and only those Products are read from the Database (with their Categories, in batches)*/
+	
+	/*OBS: As at the Keyset Pagination of the Orders, the "nextCursor" of the page (here, the id of its last Product) must be
+	  sent back at the "after" parameter to get the following page*/
+	@Transactional(readOnly = true)
+	public CursorPage<Product> findPageByCategories(List<Long> categoryIds, String match, String after, int limit) {
+		
+		List<Long> ids = findIdsByCategories(categoryIds, match, after, limit);
+		
+		List<Product> list = ids.isEmpty() ? new ArrayList<>() : productRepository.findAllByIdInOrderById(ids.subList(0, Math.min(ids.size(), limit)));
+		list.forEach(prod -> Hibernate.initialize(prod.getCategories()));
+		
+		return new CursorPage<>(list, nextCursor(ids, limit));
+	}
+	
+	//Same as above, but returning only the Summaries (id, name, price and imgUrl) of the Products
+	@Transactional(readOnly = true)
+	public CursorPage<ProductSummary> findSummaryPageByCategories(List<Long> categoryIds, String match, String after, int limit) {
+		
+		List<Long> ids = findIdsByCategories(categoryIds, match, after, limit);
+		
+		List<ProductSummary> list = ids.isEmpty() ? new ArrayList<>() : productRepository.findSummariesByIdIn(ids.subList(0, Math.min(ids.size(), limit)));
+		
+		return new CursorPage<>(list, nextCursor(ids, limit));
+	}
+	
+	//Validating the Category filter and selecting its ids (one extra id is selected only to find out whether there is a next page)
+	private List<Long> findIdsByCategories(List<Long> categoryIds, String match, String after, int limit) {
+		
+		if(categoryIds == null || categoryIds.isEmpty()) {
+			throw new InvalidRequestException("Invalid categories! At least one Category id must be informed");
+		}
+		if(!"all".equalsIgnoreCase(match) && !"any".equalsIgnoreCase(match)) {
+			throw new InvalidRequestException("Invalid match: " + match + "! It must be all or any");
+		}
+		if(limit < 1 || limit > MAX_PAGE_LIMIT) {
+			throw new InvalidRequestException("Invalid limit! It must be between 1 and " + MAX_PAGE_LIMIT);
+		}
+		
+		long afterId = 0;
+		if(after != null && !after.isEmpty()) {
+			try {
+				afterId = Long.parseLong(after);
+			}
+			catch (NumberFormatException e) {
+				throw new InvalidRequestException("Invalid cursor: " + after);
+			}
+		}
+		
+		return categoryFilterService.findProductIds(categoryIds, "all".equalsIgnoreCase(match), afterId, limit + 1);
+	}
+	
+	private static String nextCursor(List<Long> ids, int limit) {
+		return ids.size() > limit ? String.valueOf(ids.get(limit - 1)) : null;
+	}
+	
+	/*ETags (strong validators) of the Product End Points, computed from the version columns only (see VersionStamp), so
+	  that ProductResource can answer an unchanged poll with 304 (Not Modified) before loading any Product. They are not
+	  cached, since they must reflect the Database even after a write made at another instance (and they are the keys
+	  of the cached Products, see the OBS above)*/
+	
+	/*OBS: Products are serialized along with their Categories' names, so the ETag of the Product List also covers the
+	  Categories' table (renaming a Category changes the List without updating any Product)*/
+	public String findAllETag() {
+		return "\"products-" + productRepository.findVersionStamp() + "-" + categoryRepository.findVersionStamp() + "\"";
+	}
+	
+	//OBS2: The Summaries do not carry Categories, so their ETag only covers the Products' table
+	public String findAllSummariesETag() {
+		return "\"product-summaries-" + productRepository.findVersionStamp() + "\"";
+	}
 	
-	public List<Product> findAll(){
-		return productRepository.findAll();
+	//ETag of a single Product (throwing a Customized Exception if there is no such Product)
+	//OBS: The version of the Product is followed by the id and version of each one of its Categories ("product-1-3-2.0-5.1")
+	public String findETagById(Long id) {
+		List<Object[]> rows = productRepository.findVersionsById(id);
+		if(rows.isEmpty()) {
+			throw new ResourceNotFoundException(id);
+		}
+		StringBuilder eTag = new StringBuilder("\"product-").append(id).append('-').append(rows.get(0)[0]);
+		for(Object[] row : rows) {
+			if(row[1] != null) {
+				eTag.append('-').append(row[1]).append('.').append(row[2]);
+			}
+		}
+		return eTag.append('"').toString();
 	}
 	
-	//Finding Products/Database Table Rows by IDs/Primary Keys
-	public Product findById(Long id) {
+	//Finding Products/Database Table Rows by IDs/Primary Keys (eTag is the one returned by findETagById() right before)
+	@Cacheable(value = "productById", key = "{#id, #eTag}")
+	@Transactional(readOnly = true)
+	public Product findById(Long id, String eTag) {
+		
+		bypassSecondLevelCache();
 		
 		//OBS: the operation findByid() from JPA CRUD returns an Optional-typed object
 		Optional<Product> prod = productRepository.findById(id);
 		
-		//Returning Product type through Optional Object Method .get()
-		return prod.get();
+		//Returning Product type through Optional Object Method .get() (with .orElseThrow() Method, if the .get() does not work, a Customized Exception will be thrown
+		Product entity = prod.orElseThrow(() -> new ResourceNotFoundException(id));
+		Hibernate.initialize(entity.getCategories());
+		return entity;
+		
+	}
+	
+	/*Making the Persistence Context of the current transaction read the Products, their Categories collections and the
+	  Categories from the Database instead of the Second-Level Cache, and overwrite the Cache's entries with what it read
+	  (see OBS4 above). The Persistence Context is discarded along with the transaction, so the other reads keep the Cache*/
+	private void bypassSecondLevelCache() {
+		entityManager.setProperty("javax.persistence.cache.retrieveMode", CacheRetrieveMode.BYPASS);
+		entityManager.setProperty("javax.persistence.cache.storeMode", CacheStoreMode.REFRESH);
+	}
+	
+	//Inserting Product at the Database and returning the Inserted Product
+	@CacheEvict(value = { "products", "productSummaries" }, allEntries = true)
+	@Transactional
+	public Product insert(Product product) {
+		
+		//Replacing the informed Categories (which only need to carry their ids) by JPA-Monitored references
+		updateCategories(product, product);
+		
+		return productRepository.save(product);
+	}
+	
+	//Deleting the Product at the Database
+	@CacheEvict(value = { "products", "productSummaries" }, allEntries = true)
+	public void delete(Long id) {
+		try {
+			
+			productRepository.deleteById(id);
+			
+		} catch (EmptyResultDataAccessException e) {
+			throw new ResourceNotFoundException(id);
+		}
+		catch (DataIntegrityViolationException e) {
+
+			//OBS: Products referenced by OrderItems cannot be deleted
+			throw new DataBaseException(e.getMessage());
+			
+		}
+	}
+	
+	//Updating JPA-Monitored Product and then adding it to the Database
+	
+	/*OBS: As at UserService.update(), the Product is only updated while it still has the ETag informed at ifMatch (the
+	  same ETag returned by GET /products/{id}), and a concurrent update makes the method run again (see RetryConfig)*/
+	@Retryable(interceptor = RetryConfig.OPTIMISTIC_LOCK_RETRY)
+	@CacheEvict(value = { "products", "productSummaries" }, allEntries = true)
+	@Transactional
+	public Product update(Long id, Product editedProduct, String ifMatch) {
+		
+		try {
+			
+			//Preparing a JPA-Monitored Product through .getOne() (without Database Interaction) before modifying it
+			Product entity = productRepository.getOne(id);
+			
+			/*Checking the If-Match header. The Product is loaded before the ETag query, so that a change committed in between
+			  is still caught by the @Version check of the UPDATE*/
+			Hibernate.initialize(entity);
+			ConditionalUpdates.checkIfMatch(ifMatch, findETagById(id));
+			
+			updateData(entity, editedProduct);
+			
+			//Saving updates at the Database
+			return productRepository.save(entity);
+			
+		}
+		
+		catch (EntityNotFoundException e) {
+
+			throw new ResourceNotFoundException(id);
+			
+		}
+	}
+	
+	//Setting Product entity's allowed attributes according to the editedProduct set (the Id will remain the same)
+	private void updateData(Product entity, Product editedProduct) {
+		entity.setName(editedProduct.getName());
+		entity.setDescription(editedProduct.getDescription());
+		entity.setPrice(editedProduct.getPrice());
+		entity.setImgUrl(editedProduct.getImgUrl());
+		updateCategories(entity, editedProduct);
+	}
+	
+	//Replacing the entity's Categories by references to the Categories (ids) informed at the editedProduct
+	private void updateCategories(Product entity, Product editedProduct) {
+		
+		Long[] ids = editedProduct.getCategories().stream().map(Category::getId).toArray(Long[]::new);
 		
+		entity.getCategories().clear();
+		for(Long categoryId : ids) {
+			entity.getCategories().add(categoryRepository.findById(categoryId)
+					.orElseThrow(() -> new ResourceNotFoundException(categoryId)));
+		}
 	}
 }
@@ -0,0 +1,217 @@
+package com.educandoweb.springBootStudies.services;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.entities.UserOrderSummary;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.events.OrderChangedEvent;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.UserOrderSummaryRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
+
+/*Service that keeps the Order Summary of each User (see UserOrderSummary) up to date. Every committed write of an Order
+  (see OrderEntityListener and OrderStatusTransitionService) is applied to the summary of the client of that Order as a
+  change of its figures (see OrderChangedEvent), so that reading a summary is always a single Primary Key lookup at
+  tb_user_order_summary, and keeping it up to date costs the same whatever the amount of Orders of the client*/
+
+/*OBS: The figures are only aggregated from tb_order (through one GROUP BY query over the idx_order_client index) when a
+  summary is created, at the first write of a client without summary (a new client, or a client whose Orders were
+  placed before the summaries existed). From then on, each write only changes the figures it affects, and the moment
+  of the last Order is only looked up again when that Order stops counting (deleted, moved away or moved earlier)*/
+
+/*OBS2: The summaries are not locked. Each one holds an Optimistic Locking Version, so when two transactions apply
+  changes to the same summary at the same time, the second one fails at its commit and is repeated from a fresh read
+  of the summary (up to MAX_APPLY_ATTEMPTS times), now adding its changes on top of the first one's*/
+
+/*OBS3: A single transaction may write many Orders (a group commit of OrderIngestionService, for instance). So the
+  changes are collected through the whole transaction (see PendingChanges), and all of them are applied at once after
+  the commit, with APPLY_CHUNK_SIZE clients per transaction (one SELECT of their summaries, and one batched UPDATE)*/
+
+/*OBS4: A summary created from tb_order already counts every committed Order of its client. The changes of a concurrent
+  transaction of the same client, committed before that creation but applied after it, would be counted twice. Such
+  writes never overlap at the group commits of OrderIngestionService (a single writer applies each commit before the
+  next one starts), and a client only goes without summary until its first write*/
+
+@Service
+public class UserOrderSummaryService {
+
+	//Amount of clients whose changes are applied by a single transaction
+	public static final int APPLY_CHUNK_SIZE = 500;
+
+	//Amount of times the changes of a chunk are applied before a conflict is given up
+	public static final int MAX_APPLY_ATTEMPTS = 5;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserOrderSummaryRepository summaryRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	//Injecting the JPA EntityManager in order to insert the new summaries without a SELECT per summary (see apply())
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	//OBS: Called for every flushed write of an Order, while the transaction of the write is still open
+	@EventListener
+	public void onOrderChanged(OrderChangedEvent event) {
+		if(!TransactionSynchronizationManager.isSynchronizationActive()) {
+			applyAll(Map.of(event.getUserId(), List.of(event)));
+			return;
+		}
+		for(TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+			if(synchronization instanceof PendingChanges) {
+				((PendingChanges) synchronization).add(event);
+				return;
+			}
+		}
+		PendingChanges pending = new PendingChanges();
+		pending.add(event);
+		TransactionSynchronizationManager.registerSynchronization(pending);
+	}
+
+	//Changes of the Orders written by the current transaction (per client), applied once it is committed
+	private class PendingChanges implements TransactionSynchronization {
+
+		private final Map<Long, List<OrderChangedEvent>> changes = new LinkedHashMap<>();
+
+		private void add(OrderChangedEvent event) {
+			changes.computeIfAbsent(event.getUserId(), userId -> new ArrayList<>()).add(event);
+		}
+
+		@Override
+		public void afterCommit() {
+			applyAll(changes);
+		}
+	}
+
+	/*Applying the changes to the summaries of their clients at new transactions (the transaction of the write is already
+	  committed by then). A chunk whose summaries were changed meanwhile (Optimistic Locking conflict), or whose new
+	  summary was inserted meanwhile (Primary Key violation), is rolled back and applied again*/
+	private void applyAll(Map<Long, List<OrderChangedEvent>> changes) {
+		TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+		transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+		List<Long> ids = new ArrayList<>(changes.keySet());
+		for(int i = 0; i < ids.size(); i += APPLY_CHUNK_SIZE) {
+			List<Long> chunk = ids.subList(i, Math.min(ids.size(), i + APPLY_CHUNK_SIZE));
+			for(int attempt = 1; ; attempt++) {
+				try {
+					transaction.executeWithoutResult(status -> apply(chunk, changes));
+					break;
+				}
+				catch (OptimisticLockingFailureException | DataIntegrityViolationException e) {
+					if(attempt == MAX_APPLY_ATTEMPTS) {
+						throw e;
+					}
+				}
+			}
+		}
+	}
+
+	/*Applying the changes of the informed Users to their summaries, and creating (from their Orders) the summaries that
+	  do not exist yet. The UPDATEs and INSERTs are flushed at the commit, where the versions of the summaries are checked*/
+	private void apply(List<Long> userIds, Map<Long, List<OrderChangedEvent>> changes) {
+		Map<Long, UserOrderSummary> summaries = new HashMap<>();
+		summaryRepository.findAllById(userIds).forEach(summary -> summaries.put(summary.getUserId(), summary));
+
+		List<Long> missing = new ArrayList<>();
+		Set<Long> withdrawn = new HashSet<>();
+		for(Long userId : userIds) {
+			UserOrderSummary summary = summaries.get(userId);
+			if(summary == null) {
+				missing.add(userId);
+				continue;
+			}
+			for(OrderChangedEvent event : changes.get(userId)) {
+				summary.apply(event.getPreviousStatus(), event.getStatus(), event.getTotalDelta(), event.getMoment());
+				if(event.isMomentWithdrawn()) {
+					withdrawn.add(userId);
+				}
+			}
+		}
+
+		if(!withdrawn.isEmpty()) {
+			withdrawn.forEach(userId -> summaries.get(userId).setLastOrderMoment(null));
+			for(Object[] row : orderRepository.findLastMomentsByClientIds(withdrawn)) {
+				summaries.get((Long) row[0]).setLastOrderMoment((Instant) row[1]);
+			}
+		}
+
+		if(!missing.isEmpty()) {
+			create(missing);
+		}
+	}
+
+	//Creating the summaries of the informed Users, filled from their (already committed) Orders
+	private void create(List<Long> userIds) {
+		Map<Long, UserOrderSummary> summaries = new HashMap<>();
+		for(Long userId : userIds) {
+			UserOrderSummary summary = new UserOrderSummary(userId);
+			entityManager.persist(summary);
+			summaries.put(userId, summary);
+		}
+		//OBS: The sum of the totals is computed by the Database over the decimal column, so it is rounded to minor units here
+		for(Object[] row : orderRepository.findClientStatsByStatus(userIds)) {
+			long spent = row[3] == null ? 0 : MinorUnitsConverter.toMinorUnits(((Number) row[3]).doubleValue());
+			summaries.get((Long) row[0]).add(OrderStatus.valueOf((Integer) row[1]), (Long) row[2], spent, (Instant) row[4]);
+		}
+	}
+
+	/*Finding the Order Summary of a User. Users who never placed an Order have no stored summary, so an empty one is
+	  returned for them (and a ResourceNotFoundException is thrown only if the User itself does not exist)*/
+	@Transactional(readOnly = true)
+	public UserOrderSummary findByUserId(Long userId) {
+		return summaryRepository.findById(userId).orElseGet(() -> {
+			if(!userRepository.existsById(userId)) {
+				throw new ResourceNotFoundException(userId);
+			}
+			return new UserOrderSummary(userId);
+		});
+	}
+
+	//Finding all the stored Order Summaries, by User id (read with a single SELECT)
+	@Transactional(readOnly = true)
+	public Map<Long, UserOrderSummary> findAllByUserId() {
+		Map<Long, UserOrderSummary> map = new HashMap<>();
+		for(UserOrderSummary summary : summaryRepository.findAll()) {
+			map.put(summary.getUserId(), summary);
+		}
+		return map;
+	}
+
+	//Removing the summary of a deleted User (if there is one)
+	@Transactional
+	public void deleteByUserId(Long userId) {
+		summaryRepository.findById(userId).ifPresent(summaryRepository::delete);
+	}
+}
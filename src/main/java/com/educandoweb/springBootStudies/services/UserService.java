@@ -1,19 +1,27 @@
 package com.educandoweb.springBootStudies.services;
 
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
+import javax.persistence.EntityManager;
 import javax.persistence.EntityNotFoundException;
+import javax.persistence.PersistenceContext;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.retry.annotation.Retryable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import com.educandoweb.springBootStudies.config.RetryConfig;
 import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.UserOrderSummary;
 import com.educandoweb.springBootStudies.repositories.UserRepository;
 import com.educandoweb.springBootStudies.services.exceptions.DataBaseException;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
 import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
 
 /*Registering the class as a Spring Component in order to make it available for the Spring's 
@@ -28,18 +36,49 @@ import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundExc
 @Service
 public class UserService {
 
+	//Amount of Users flushed at once during Bulk Insertions (the same value as hibernate.jdbc.batch_size)
+	public static final int BULK_BATCH_SIZE = 50;
+	
+	//Upper bound for the amount of Users accepted by a single Bulk Insertion
+	public static final int MAX_BULK_SIZE = 100000;
+
 	/*In order for Spring Framework to provide the required dependence definitions and associate an 
 	instance of UserRepository at UserService, it is required to put the following annotation 
 	above the Dependency attribute*/
 	@Autowired
 	private UserRepository userRepository;
 	
+	//Injecting the JPA EntityManager in order to flush and release the Bulk Inserted Users batch by batch
+	@PersistenceContext
+	private EntityManager entityManager;
+	
+	//Declaring the dependence to the Order Summaries of the Users (kept up to date on every Order write)
+	@Autowired
+	private UserOrderSummaryService orderSummaryService;
+	
 	//Finding All Users/Database Table Rows
 	
 	public List<User> findAll(){
 		return userRepository.findAll();
 	}
 	
+	/*Finding All Users along with their Order Summaries (2 SELECTs: one for the Users and one for all the stored
+	  summaries). Users who never placed an Order receive an empty summary*/
+	@Transactional(readOnly = true)
+	public List<User> findAllWithOrderSummaries(){
+		List<User> users = userRepository.findAll();
+		Map<Long, UserOrderSummary> summaries = orderSummaryService.findAllByUserId();
+		for(User user : users) {
+			user.setOrderSummary(summaries.getOrDefault(user.getId(), new UserOrderSummary(user.getId())));
+		}
+		return users;
+	}
+	
+	//Finding the Order Summary of a User (a single Primary Key lookup, see UserOrderSummaryService)
+	public UserOrderSummary findOrderSummary(Long id) {
+		return orderSummaryService.findByUserId(id);
+	}
+	
 	//Finding Users/Database Table Rows by IDs/Primary Keys
 	public User findById(Long id) {
 		
@@ -50,15 +89,55 @@ public class UserService {
 		return user.orElseThrow(() -> new ResourceNotFoundException(id));
 		
 	}
+	//ETag (strong validator) of a User, built from its version, which is sent back by the clients at the If-Match header of the updates
+	public String eTagOf(User user) {
+		return "\"user-" + user.getId() + "-" + user.getVersion() + "\"";
+	}
+	
 	//Inserting User at the Database and returning the Inserted User
 	public User insertUser(User user) {
 		return userRepository.save(user);
 	}
+	
+	/*Inserting many Users at the Database in a single Transaction and returning the Inserted Users. The Users are
+	  flushed every BULK_BATCH_SIZE persists, so that Hibernate sends their INSERTs as JDBC Batches, and then the
+	  Persistence Context is cleared to keep its memory (and its dirty-checking work) bounded no matter the list size*/
+	
+	/*OBS: Calling userRepository.saveAll() here would issue a SELECT for every User with an id set by the client
+	  (merge), and would keep all of them managed until the end of the Transaction*/
+	@Transactional
+	public List<User> insertAll(List<User> users) {
+		
+		if(users.size() > MAX_BULK_SIZE) {
+			throw new InvalidRequestException("Too many users! A bulk insertion accepts at most " + MAX_BULK_SIZE);
+		}
+		
+		int pending = 0;
+		
+		for(User user : users) {
+			
+			//Ignoring client-provided ids, since they are always taken from the User Sequence
+			user.setId(null);
+			entityManager.persist(user);
+			
+			if(++pending == BULK_BATCH_SIZE) {
+				entityManager.flush();
+				entityManager.clear();
+				pending = 0;
+			}
+		}
+		
+		entityManager.flush();
+		entityManager.clear();
+		
+		return users;
+	}
 	//Deleting the User at the Database
 	public void delete(Long id) {
 		try {
 			
 			userRepository.deleteById(id);
+			orderSummaryService.deleteByUserId(id);
 			
 		} catch (EmptyResultDataAccessException e) {
 			throw new ResourceNotFoundException(id);
@@ -72,7 +151,12 @@ public class UserService {
 	
 	//Updating JPA-Monitored User and then adding it to the Database
 	
-	public User update (Long id, User editedUser) {
+	/*OBS: The update is applied only if the User still has the ETag informed at ifMatch (when it is informed, see
+	  ConditionalUpdates). If another update of the same User is committed meanwhile, the @Version check makes the commit
+	  fail, and the whole method is executed again at a new transaction (see RetryConfig)*/
+	@Retryable(interceptor = RetryConfig.OPTIMISTIC_LOCK_RETRY)
+	@Transactional
+	public User update (Long id, User editedUser, String ifMatch) {
 		
 		try {
 			
@@ -86,6 +170,9 @@ public class UserService {
 			
 			User entity = userRepository.getOne(id);
 			
+			//Checking the If-Match header against the version just read (which makes the proxy load the User)
+			ConditionalUpdates.checkIfMatch(ifMatch, eTagOf(entity));
+			
 			//Modifying Monitored User entity before saving it at the Database
 			updateData(entity, editedUser);
 			
@@ -0,0 +1,15 @@
+package com.educandoweb.springBootStudies.services.exceptions;
+
+/*This Custom Exception is responsible to be thrown at Service Layer whenever an Idempotency-Key is sent again
+  along with a request different from the one it was first used with (see IdempotencyService)*/
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public IdempotencyKeyReusedException(String key) {
+
+		super("The Idempotency-Key " + key + " was already used with a different request");
+
+	}
+}
@@ -0,0 +1,15 @@
+package com.educandoweb.springBootStudies.services.exceptions;
+
+/*This Custom Exception is responsible to be thrown at Service Layer whenever
+  the client sends malformed or out-of-range parameters (invalid cursors, limits, etc)*/
+
+public class InvalidRequestException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public InvalidRequestException(String message) {
+
+		super(message);
+
+	}
+}
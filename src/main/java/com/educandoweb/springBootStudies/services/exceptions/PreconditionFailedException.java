@@ -0,0 +1,16 @@
+package com.educandoweb.springBootStudies.services.exceptions;
+
+/*This Custom Exception is responsible to be thrown at Service Layer whenever an update is sent with an If-Match header
+  that does not match the current ETag of the resource, that is, the client is updating a version it did not read
+  (see ConditionalUpdates)*/
+
+public class PreconditionFailedException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	public PreconditionFailedException(String eTag) {
+
+		super("The resource was modified since it was read! Its current ETag is " + eTag);
+
+	}
+}
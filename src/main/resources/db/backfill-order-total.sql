@@ -0,0 +1,10 @@
+-- One-off backfill of the persisted Order Total (tb_order.total, see Order.getTotal()).
+-- Run it once at every existing Database (after the total column is created and before the application starts
+-- serving with it), since the Orders stored before that column existed have no total, and from then on the
+-- application only adjusts the stored total by the Subtotal changes, never recomputing it.
+-- The amounts are stored at double precision columns (see MinorUnitsConverter), so the sum is rounded to the cent,
+-- storing the same value the application would (the cast is needed since PostgreSQL only rounds NUMERIC values).
+UPDATE tb_order o
+   SET total = ROUND(CAST(COALESCE((SELECT SUM(i.price * i.quantity)
+                                      FROM tb_order_item i
+                                     WHERE i.order_id = o.id), 0) AS NUMERIC), 2);
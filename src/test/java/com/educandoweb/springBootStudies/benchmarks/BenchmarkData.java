@@ -0,0 +1,74 @@
+package com.educandoweb.springBootStudies.benchmarks;
+
+import java.lang.reflect.Field;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Payment;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+
+/*Auxiliary Class that builds the detached Entity graphs measured by the Benchmarks. Every value is derived
+  from the indexes only (no random numbers, no current time), so that each run measures exactly the same data*/
+
+final class BenchmarkData {
+
+	private static final Instant BASE_MOMENT = Instant.parse("2021-01-01T00:00:00Z");
+
+	private BenchmarkData() {
+
+	}
+
+	static List<Category> categories(int count) {
+		List<Category> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			list.add(new Category((long) i + 1, "Category " + i));
+		}
+		return list;
+	}
+
+	//Every Product belongs to two Categories, as the products seeded at TestConfig
+	static List<Product> products(int count, List<Category> categories) {
+		List<Product> list = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			Product product = new Product((long) i + 1, "Product " + i, "Description of the product " + i, 1000 + (i % 500) * 125, "https://img/" + i + ".png");
+			product.getCategories().add(categories.get(i % categories.size()));
+			product.getCategories().add(categories.get((i + 1) % categories.size()));
+			list.add(product);
+		}
+		return list;
+	}
+
+	//Building a fully populated Order (client, items with their products and categories, payment)
+	static Order order(long id, int itemCount, List<Product> products) {
+		User client = new User(id, "Client " + id, "client" + id + "@mail.com", "988888888", "123456");
+		Order order = new Order(id, BASE_MOMENT.plusSeconds(id * 60), OrderStatus.PAID, client);
+		for (int i = 0; i < itemCount; i++) {
+			Product product = products.get((int) ((id + i) % products.size()));
+			OrderItem item = new OrderItem(order, product, 1 + i % 5, product.getPrice());
+			order.addItem(item);
+			productItems(product).add(item);
+		}
+		order.setPayment(new Payment(id, order.getMoment().plusSeconds(3600), order));
+		return order;
+	}
+
+	/*Product does not expose its OrderItems (they are only read through getOrders()), so the Set
+	  is reached by reflection in order to link the Products to the Orders built above*/
+	@SuppressWarnings("unchecked")
+	static Set<OrderItem> productItems(Product product) {
+		try {
+			Field field = Product.class.getDeclaredField("items");
+			field.setAccessible(true);
+			return (Set<OrderItem>) field.get(product);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package com.educandoweb.springBootStudies.benchmarks;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+
+/*Benchmarks of the Entity methods called on every serialized Order/Product (see the "benchmark" profile at pom.xml).
+  The "size" parameter is the amount of items of the measured Order and the amount of Orders referencing the measured Product*/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class EntityBenchmark {
+
+	@Param({ "1", "10", "100" })
+	private int size;
+
+	private Order order;
+	private OrderItem item;
+	private Product product;
+
+	//Cycling through all the codes, so that the loop at OrderStatus.valueOf(int) is measured for every position
+	private int[] codes;
+	private int codeIndex;
+
+	@Setup
+	public void setup() {
+		List<Category> categories = BenchmarkData.categories(5);
+		List<Product> products = BenchmarkData.products(size, categories);
+		order = BenchmarkData.order(1L, size, products);
+		item = order.getItems().iterator().next();
+
+		//Every one of the "size" Orders below has one item of the same Product
+		product = BenchmarkData.products(1, categories).get(0);
+		List<Product> single = List.of(product);
+		for (long id = 1; id <= size; id++) {
+			BenchmarkData.order(id, 1, single);
+		}
+
+		OrderStatus[] values = OrderStatus.values();
+		codes = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			codes[i] = values[i].getCode();
+		}
+	}
+
+	@Benchmark
+	public long orderGetTotal() {
+		return order.getTotal();
+	}
+
+	@Benchmark
+	public long orderItemGetSubtotal() {
+		return item.getSubtotal();
+	}
+
+	@Benchmark
+	public OrderStatus orderStatusValueOf() {
+		int code = codes[codeIndex];
+		codeIndex = (codeIndex + 1) % codes.length;
+		return OrderStatus.valueOf(code);
+	}
+
+	@Benchmark
+	public Set<Order> productGetOrders() {
+		return product.getOrders();
+	}
+}
@@ -0,0 +1,63 @@
+package com.educandoweb.springBootStudies.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+/*Benchmarks of the Jackson Serialization of the Resources' responses (see the "benchmark" profile at pom.xml).
+  "size" is the amount of items of the serialized Order and the amount of Products of the serialized List*/
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms1g", "-Xmx1g" })
+public class JsonSerializationBenchmark {
+
+	@Param({ "1", "10", "100" })
+	private int size;
+
+	private ObjectMapper objectMapper;
+	private Order order;
+	private List<Product> products;
+
+	@Setup
+	public void setup() {
+		//Configuring the ObjectMapper the same way Spring Boot configures the one used by the Resources
+		objectMapper = Jackson2ObjectMapperBuilder.json().featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS).build();
+
+		List<Category> categories = BenchmarkData.categories(5);
+		products = BenchmarkData.products(size, categories);
+		order = BenchmarkData.order(1L, size, products);
+	}
+
+	@Benchmark
+	public byte[] serializeOrder() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(order);
+	}
+
+	@Benchmark
+	public byte[] serializeProductList() throws JsonProcessingException {
+		return objectMapper.writeValueAsBytes(products);
+	}
+}
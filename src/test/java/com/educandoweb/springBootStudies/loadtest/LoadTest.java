@@ -0,0 +1,231 @@
+package com.educandoweb.springBootStudies.loadtest;
+
+import java.io.File;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.orm.jpa.SharedEntityManagerCreator;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.SpringBootDemoApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*End-to-end HTTP Load Test (run through the "loadtest" profile at pom.xml: mvn -Ploadtest test). It boots the
+  application on the "test" profile (H2 in-memory) at a random port, seeds a synthetic dataset (LoadTestSeeder),
+  drives the GET End Points with concurrent clients and writes the throughput and the p50/p99/p999 latencies of
+  each End Point into a JSON file (target/loadtest-result.json by default)*/
+
+/*OBS: Each client waits for its response before sending the next request (closed loop), so the latencies show
+  the behavior under the load of "clients" concurrent users, not under a fixed arrival rate*/
+
+public final class LoadTest {
+
+	//Highest latency tracked by the Histograms (in microseconds)
+	private static final long MAX_LATENCY_MICROS = TimeUnit.MINUTES.toMicros(1);
+
+	private LoadTest() {
+
+	}
+
+	public static void main(String[] args) throws Exception {
+		LoadTestConfig config = new LoadTestConfig();
+
+		//Command line arguments take precedence over the spring.profiles.active set at application.properties
+		ConfigurableApplicationContext context = SpringApplication.run(SpringBootDemoApplication.class,
+				"--spring.profiles.active=test", "--server.port=0", "--spring.jpa.show-sql=false",
+				"--spring.jpa.properties.hibernate.format_sql=false");
+
+		try {
+			LoadTestSeeder seeder = new LoadTestSeeder(
+					SharedEntityManagerCreator.createSharedEntityManager(context.getBean(EntityManagerFactory.class)),
+					new TransactionTemplate(context.getBean(PlatformTransactionManager.class)), config);
+			long seedStart = System.nanoTime();
+			seeder.seed();
+			long seedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - seedStart);
+
+			String baseUrl = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+			List<Endpoint> endpoints = endpoints(seeder);
+			Map<String, Object> result = run(config, baseUrl, endpoints);
+			result.put("seedMillis", seedMillis);
+
+			File output = new File(config.output);
+			output.getAbsoluteFile().getParentFile().mkdirs();
+			new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(output, result);
+			System.out.println("Load Test results written at " + output.getAbsolutePath());
+		} finally {
+			SpringApplication.exit(context);
+		}
+	}
+
+	//The End Points driven by the clients, each one chosen with the same probability
+	private static List<Endpoint> endpoints(LoadTestSeeder seeder) {
+		List<Endpoint> list = new ArrayList<>();
+		list.add(new Endpoint("GET /users", random -> "/users"));
+		list.add(new Endpoint("GET /users/{id}", random -> "/users/" + pick(seeder.getUserIds(), random)));
+		list.add(new Endpoint("GET /products", random -> "/products"));
+		list.add(new Endpoint("GET /products/{id}", random -> "/products/" + pick(seeder.getProductIds(), random)));
+		list.add(new Endpoint("GET /categories", random -> "/categories"));
+		list.add(new Endpoint("GET /categories/{id}", random -> "/categories/" + pick(seeder.getCategoryIds(), random)));
+		list.add(new Endpoint("GET /orders?limit=50", random -> "/orders?limit=50"));
+		list.add(new Endpoint("GET /orders/{id}", random -> "/orders/" + pick(seeder.getOrderIds(), random)));
+		return list;
+	}
+
+	private static Map<String, Object> run(LoadTestConfig config, String baseUrl, List<Endpoint> endpoints) throws Exception {
+		HttpClient httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1)
+				.connectTimeout(Duration.ofSeconds(5)).build();
+
+		long measureStart = System.nanoTime() + TimeUnit.SECONDS.toNanos(config.warmupSeconds);
+		long measureEnd = measureStart + TimeUnit.SECONDS.toNanos(config.durationSeconds);
+
+		ExecutorService executor = Executors.newFixedThreadPool(config.clients);
+		List<Future<ClientStats>> futures = new ArrayList<>();
+		for (int i = 0; i < config.clients; i++) {
+			SplittableRandom random = new SplittableRandom(config.seed + i);
+			futures.add(executor.submit(() -> drive(httpClient, baseUrl, endpoints, random, measureStart, measureEnd)));
+		}
+
+		ClientStats total = new ClientStats(endpoints.size());
+		for (Future<ClientStats> future : futures) {
+			total.add(future.get());
+		}
+		executor.shutdown();
+
+		Map<String, Object> result = new LinkedHashMap<>();
+		result.put("finishedAt", Instant.now().toString());
+		Map<String, Object> settings = new LinkedHashMap<>();
+		settings.put("users", config.users);
+		settings.put("categories", config.categories);
+		settings.put("products", config.products);
+		settings.put("orders", config.orders);
+		settings.put("itemsPerOrder", config.itemsPerOrder);
+		settings.put("clients", config.clients);
+		settings.put("warmupSeconds", config.warmupSeconds);
+		settings.put("durationSeconds", config.durationSeconds);
+		settings.put("seed", config.seed);
+		result.put("config", settings);
+
+		Map<String, Object> perEndpoint = new LinkedHashMap<>();
+		Histogram all = new Histogram(MAX_LATENCY_MICROS, 3);
+		long allErrors = 0;
+		for (int i = 0; i < endpoints.size(); i++) {
+			perEndpoint.put(endpoints.get(i).name, summary(total.latencies[i], total.errors[i], config.durationSeconds));
+			all.add(total.latencies[i]);
+			allErrors += total.errors[i];
+		}
+		result.put("total", summary(all, allErrors, config.durationSeconds));
+		result.put("endpoints", perEndpoint);
+		return result;
+	}
+
+	//Loop of a single client: requests sent before measureStart are the warm-up, and are not recorded
+	private static ClientStats drive(HttpClient httpClient, String baseUrl, List<Endpoint> endpoints,
+			SplittableRandom random, long measureStart, long measureEnd) {
+		ClientStats stats = new ClientStats(endpoints.size());
+		long now;
+		while ((now = System.nanoTime()) < measureEnd) {
+			int index = random.nextInt(endpoints.size());
+			HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + endpoints.get(index).path.apply(random)))
+					.timeout(Duration.ofSeconds(30)).GET().build();
+			boolean success;
+			try {
+				HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+				success = response.statusCode() / 100 == 2;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				success = false;
+			}
+			long end = System.nanoTime();
+			if (now >= measureStart && end <= measureEnd) {
+				if (success) {
+					stats.latencies[index].recordValue(Math.min(MAX_LATENCY_MICROS, TimeUnit.NANOSECONDS.toMicros(end - now)));
+				} else {
+					stats.errors[index]++;
+				}
+			}
+		}
+		return stats;
+	}
+
+	private static Map<String, Object> summary(Histogram histogram, long errors, int durationSeconds) {
+		Map<String, Object> map = new LinkedHashMap<>();
+		map.put("requests", histogram.getTotalCount());
+		map.put("errors", errors);
+		map.put("throughputPerSecond", round((double) histogram.getTotalCount() / durationSeconds));
+		Map<String, Object> latency = new LinkedHashMap<>();
+		latency.put("p50", millis(histogram.getValueAtPercentile(50.0)));
+		latency.put("p99", millis(histogram.getValueAtPercentile(99.0)));
+		latency.put("p999", millis(histogram.getValueAtPercentile(99.9)));
+		latency.put("max", millis(histogram.getMaxValue()));
+		latency.put("mean", round(histogram.getMean() / 1000.0));
+		map.put("latencyMillis", latency);
+		return map;
+	}
+
+	private static double millis(long micros) {
+		return round(micros / 1000.0);
+	}
+
+	private static double round(double value) {
+		return Math.round(value * 1000.0) / 1000.0;
+	}
+
+	private static Long pick(List<Long> ids, SplittableRandom random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+
+	private static class Endpoint {
+
+		private final String name;
+		private final Function<SplittableRandom, String> path;
+
+		Endpoint(String name, Function<SplittableRandom, String> path) {
+			this.name = name;
+			this.path = path;
+		}
+	}
+
+	//Latencies (only of successful responses) and errors recorded by a client for each End Point
+	private static class ClientStats {
+
+		private final Histogram[] latencies;
+		private final long[] errors;
+
+		ClientStats(int endpoints) {
+			latencies = new Histogram[endpoints];
+			errors = new long[endpoints];
+			for (int i = 0; i < endpoints; i++) {
+				latencies[i] = new Histogram(MAX_LATENCY_MICROS, 3);
+			}
+		}
+
+		void add(ClientStats other) {
+			for (int i = 0; i < latencies.length; i++) {
+				latencies[i].add(other.latencies[i]);
+				errors[i] += other.errors[i];
+			}
+		}
+	}
+}
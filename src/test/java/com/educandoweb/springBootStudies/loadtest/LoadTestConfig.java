@@ -0,0 +1,27 @@
+package com.educandoweb.springBootStudies.loadtest;
+
+/*Load Test settings, read from System Properties (see the "loadtest" profile at pom.xml for their default values)*/
+
+class LoadTestConfig {
+
+	final int users = intProperty("loadtest.users", 1000);
+	final int categories = intProperty("loadtest.categories", 20);
+	final int products = intProperty("loadtest.products", 2000);
+	final int orders = intProperty("loadtest.orders", 10000);
+	final int itemsPerOrder = intProperty("loadtest.itemsPerOrder", 3);
+
+	final int clients = intProperty("loadtest.clients", 16);
+	final int warmupSeconds = intProperty("loadtest.warmupSeconds", 10);
+	final int durationSeconds = intProperty("loadtest.durationSeconds", 30);
+	final long seed = Long.getLong("loadtest.seed", 42L);
+
+	final String output = System.getProperty("loadtest.output", "target/loadtest-result.json");
+
+	private static int intProperty(String name, int defaultValue) {
+		int value = Integer.getInteger(name, defaultValue);
+		if (value < 1) {
+			throw new IllegalArgumentException(name + " must be positive, but was " + value);
+		}
+		return value;
+	}
+}
@@ -0,0 +1,125 @@
+package com.educandoweb.springBootStudies.loadtest;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.function.IntConsumer;
+
+import javax.persistence.EntityManager;
+
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Payment;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+
+/*Seeds the H2 Database of the Load Test with a synthetic dataset of the configured size. The data only depends on
+  the configured seed, so that two builds are always compared against the same dataset*/
+
+class LoadTestSeeder {
+
+	//The same value as hibernate.jdbc.batch_size
+	private static final int BATCH_SIZE = 50;
+
+	private static final Instant BASE_MOMENT = Instant.parse("2021-01-01T00:00:00Z");
+
+	private final EntityManager entityManager;
+	private final TransactionTemplate transactionTemplate;
+	private final LoadTestConfig config;
+
+	private final List<Long> userIds = new ArrayList<>();
+	private final List<Long> categoryIds = new ArrayList<>();
+	private final List<Long> productIds = new ArrayList<>();
+	private final List<Long> orderIds = new ArrayList<>();
+
+	LoadTestSeeder(EntityManager entityManager, TransactionTemplate transactionTemplate, LoadTestConfig config) {
+		this.entityManager = entityManager;
+		this.transactionTemplate = transactionTemplate;
+		this.config = config;
+	}
+
+	void seed() {
+		SplittableRandom random = new SplittableRandom(config.seed);
+
+		inBatches(config.users, i -> {
+			User user = new User(null, "User " + i, "user" + i + "@loadtest.com", "9" + (10000000 + i), "123456");
+			entityManager.persist(user);
+			userIds.add(user.getId());
+		});
+
+		inBatches(config.categories, i -> {
+			Category category = new Category(null, "Category " + i);
+			entityManager.persist(category);
+			categoryIds.add(category.getId());
+		});
+
+		inBatches(config.products, i -> {
+			Product product = new Product(null, "Product " + i, "Synthetic product number " + i, 100 + random.nextInt(500000), "");
+			product.getCategories().add(entityManager.getReference(Category.class, pick(categoryIds, random)));
+			product.getCategories().add(entityManager.getReference(Category.class, pick(categoryIds, random)));
+			entityManager.persist(product);
+			productIds.add(product.getId());
+		});
+
+		OrderStatus[] statuses = OrderStatus.values();
+		inBatches(config.orders, i -> {
+			User client = entityManager.getReference(User.class, pick(userIds, random));
+			OrderStatus status = statuses[random.nextInt(statuses.length)];
+			Order order = new Order(null, BASE_MOMENT.plusSeconds(i * 60L), status, client);
+			entityManager.persist(order);
+
+			for (int j = 0; j < config.itemsPerOrder; j++) {
+				Product product = entityManager.find(Product.class, pick(productIds, random));
+				OrderItem item = new OrderItem(order, product, 1 + random.nextInt(5), product.getPrice());
+				//Two items of the same Product would share the same Primary Key
+				if (!order.getItems().contains(item)) {
+					order.addItem(item);
+					entityManager.persist(item);
+				}
+			}
+
+			if (status != OrderStatus.WAITING_PAYMENT && status != OrderStatus.CANCELED) {
+				order.setPayment(new Payment(null, order.getMoment().plusSeconds(3600), order));
+			}
+			orderIds.add(order.getId());
+		});
+	}
+
+	//Persisting "count" entities in Transactions of BATCH_SIZE entities each, so that every Persistence Context remains small
+	private void inBatches(int count, IntConsumer persist) {
+		for (int start = 0; start < count; start += BATCH_SIZE) {
+			int from = start;
+			int to = Math.min(count, start + BATCH_SIZE);
+			transactionTemplate.executeWithoutResult(status -> {
+				for (int i = from; i < to; i++) {
+					persist.accept(i);
+				}
+			});
+		}
+	}
+
+	private static Long pick(List<Long> ids, SplittableRandom random) {
+		return ids.get(random.nextInt(ids.size()));
+	}
+
+	List<Long> getUserIds() {
+		return userIds;
+	}
+
+	List<Long> getCategoryIds() {
+		return categoryIds;
+	}
+
+	List<Long> getProductIds() {
+		return productIds;
+	}
+
+	List<Long> getOrderIds() {
+		return orderIds;
+	}
+}
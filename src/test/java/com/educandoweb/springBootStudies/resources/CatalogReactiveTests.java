@@ -0,0 +1,155 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import com.educandoweb.springBootStudies.config.ReactiveCatalogServer;
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.repositories.CategoryRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.CatalogReactiveService;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/*Reactive catalog End Points (see CatalogReactiveResource), requested through the Reactor Netty Server started by
+  ReactiveCatalogServer at a random port. The catalog is written through JPA and read back through R2DBC, both
+  connected to the in-memory H2 Database of the test profile*/
+
+/*OBS: The Products outnumber CATEGORY_BATCH_SIZE, so that their Categories are read in more than one block*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogReactiveTests {
+
+	private static final int PRODUCTS = CatalogReactiveService.CATEGORY_BATCH_SIZE + 20;
+
+	@Autowired
+	private ReactiveCatalogServer server;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	private WebTestClient client;
+
+	private Category books;
+	private Category computers;
+
+	//Names of the Categories of each seeded Product
+	private final Map<Long, List<String>> categoriesByProduct = new HashMap<>();
+
+	@BeforeAll
+	void seed() {
+		client = WebTestClient.bindToServer().baseUrl("http://localhost:" + server.getPort()).build();
+
+		books = new Category(null, "Books");
+		computers = new Category(null, "Computers");
+		categoryRepository.saveAll(List.of(books, computers));
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < PRODUCTS; i++) {
+			Product product = new Product(null, "Reactive " + i, "Description " + i, 1250 + i, "");
+			product.getCategories().add(i % 2 == 0 ? books : computers);
+			if (i % 3 == 0) {
+				product.getCategories().add(computers);
+			}
+			products.add(product);
+		}
+		productRepository.saveAll(products);
+
+		for (Product product : products) {
+			List<String> names = new ArrayList<>();
+			product.getCategories().forEach(category -> names.add(category.getName()));
+			names.sort(null);
+			categoriesByProduct.put(product.getId(), names);
+		}
+	}
+
+	@Test
+	void findProductByIdReturnsItsCategories() {
+		Long id = categoriesByProduct.keySet().stream().min(Long::compare).orElseThrow();
+
+		client.get().uri("/products/{id}", id).exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON)
+				.expectBody()
+				.jsonPath("$.id").isEqualTo(id)
+				.jsonPath("$.name").isEqualTo("Reactive 0")
+				.jsonPath("$.price").isEqualTo(12.5)
+				.jsonPath("$.categories.length()").isEqualTo(2);
+	}
+
+	@Test
+	void findAllProductsReturnsEveryProductWithItsCategories() {
+		List<JsonNode> products = client.get().uri("/products").accept(MediaType.APPLICATION_JSON).exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_JSON)
+				.expectBodyList(JsonNode.class).returnResult().getResponseBody();
+
+		assertCatalog(products);
+	}
+
+	@Test
+	void findAllProductsStreamsNewlineDelimitedJson() {
+		List<JsonNode> products = client.get().uri("/products").accept(MediaType.APPLICATION_NDJSON).exchange()
+				.expectStatus().isOk()
+				.expectHeader().contentType(MediaType.APPLICATION_NDJSON)
+				.returnResult(JsonNode.class).getResponseBody().collectList().block();
+
+		assertCatalog(products);
+	}
+
+	@Test
+	void findCategoriesReadsThemThroughR2dbc() {
+		client.get().uri("/categories/{id}", books.getId()).exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$.name").isEqualTo("Books");
+
+		client.get().uri("/categories").exchange()
+				.expectStatus().isOk()
+				.expectBody().jsonPath("$[?(@.id == " + computers.getId() + ")].name").isEqualTo("Computers");
+	}
+
+	@Test
+	void errorsUseTheStandardErrorBody() {
+		client.get().uri("/products/{id}", Long.MAX_VALUE).exchange()
+				.expectStatus().isNotFound()
+				.expectBody().jsonPath("$.status").isEqualTo(404).jsonPath("$.path").isEqualTo("/products/" + Long.MAX_VALUE);
+
+		client.get().uri("/categories/abc").exchange()
+				.expectStatus().isBadRequest()
+				.expectBody().jsonPath("$.status").isEqualTo(400);
+	}
+
+	//Checking that every seeded Product was returned once, with the names of all its Categories
+	private void assertCatalog(List<JsonNode> products) {
+		Map<Long, List<String>> returned = new HashMap<>();
+		for (JsonNode product : products) {
+			Long id = product.get("id").asLong();
+			if (categoriesByProduct.containsKey(id)) {
+				List<String> names = new ArrayList<>();
+				product.get("categories").forEach(category -> names.add(category.get("name").asText()));
+				names.sort(null);
+				assertTrue(returned.put(id, names) == null, "Product " + id + " was returned twice");
+			}
+		}
+		assertEquals(categoriesByProduct, returned);
+	}
+}
@@ -0,0 +1,227 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.GZIPInputStream;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.util.StreamUtils;
+
+import com.educandoweb.springBootStudies.dto.CatalogSnapshot;
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.repositories.CategoryRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.CatalogSnapshotService;
+import com.educandoweb.springBootStudies.services.ProductService;
+
+/*Pre-serialized catalog Lists (see CatalogSnapshotService and CatalogSnapshot): the negotiation between the identity and
+  gzip encodings, the 304 (Not Modified) answered from the snapshot's ETags, the rebuild after a Product or Category
+  write, and the usual serialization while no snapshot has been built*/
+
+/*OBS: Unlike the other test classes, the snapshots are enabled here. The periodic refresh is pushed out of the way, so
+  the snapshots are only rebuilt at startup and after the writes, and each test waits for the queued rebuilds to finish
+  (by running an empty task at the single rebuild thread) before reading them*/
+
+/*OBS2: Since these properties start an application context of their own, it gets an in-memory Database of its own too,
+  instead of recreating the schema of the one shared by the other test classes (whose contexts stay cached)*/
+
+@SpringBootTest(properties = { "catalog.snapshot.enabled=true", "catalog.snapshot.refresh-interval=1h",
+		"spring.datasource.url=jdbc:h2:mem:snapshotdb;DB_CLOSE_ON_EXIT=FALSE", "spring.r2dbc.url=r2dbc:h2:mem:///snapshotdb" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class CatalogSnapshotTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CatalogSnapshotService catalogSnapshotService;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	private Long productId;
+	private Long categoryId;
+
+	//Product and Category renamed by writesRebuildTheSnapshots() (the other tests only read productId and categoryId)
+	private Long writtenProductId;
+	private Long writtenCategoryId;
+
+	@BeforeAll
+	void seed() {
+		Category category = categoryRepository.save(new Category(null, "Snapshot Lights"));
+		Product product = new Product(null, "Snapshot Lamp", "Desk lamp", 3990, "");
+		product.getCategories().add(category);
+		productId = productRepository.save(product).getId();
+		categoryId = category.getId();
+
+		Category written = categoryRepository.save(new Category(null, "Snapshot Shades"));
+		Product writtenProduct = new Product(null, "Snapshot Shade", "Lamp shade", 1490, "");
+		writtenProduct.getCategories().add(written);
+		writtenProductId = productRepository.save(writtenProduct).getId();
+		writtenCategoryId = written.getId();
+	}
+
+	@Test
+	void encodingIsNegotiated() throws Exception {
+		CatalogSnapshot snapshot = awaitRebuilds().getProducts();
+		assertNotNull(snapshot);
+		String gzipETag = snapshot.getETag().replaceAll("\"$", "-gzip\"");
+
+		//Identity when gzip is not listed, or is disabled through "q=0"
+		for (String acceptEncoding : new String[] { null, "identity", "deflate, br", "gzip;q=0", "br, gzip; q=0.00" }) {
+			MvcResult result = getProducts(acceptEncoding, null).andExpect(status().isOk())
+					.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+					.andExpect(header().string(HttpHeaders.ETAG, snapshot.getETag()))
+					.andExpect(header().string(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING))
+					.andExpect(jsonPath("$[?(@.id == " + productId + ")].name").value("Snapshot Lamp"))
+					.andReturn();
+			assertArrayEquals(snapshot.getJson(), result.getResponse().getContentAsByteArray(), "Accept-Encoding: " + acceptEncoding);
+		}
+
+		//Gzip when it is listed with a non-zero weight, or through "*"
+		for (String acceptEncoding : new String[] { "gzip", "deflate, gzip", "gzip;q=0.5", "*" }) {
+			MvcResult result = getProducts(acceptEncoding, null).andExpect(status().isOk())
+					.andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+					.andExpect(header().string(HttpHeaders.ETAG, gzipETag))
+					.andReturn();
+			assertArrayEquals(snapshot.getJson(), gunzip(result.getResponse().getContentAsByteArray()), "Accept-Encoding: " + acceptEncoding);
+		}
+	}
+
+	//Each encoding has its own ETag, so a client only gets a 304 for the bytes it already holds
+	@Test
+	void matchingETagIsAnsweredWithNotModified() throws Exception {
+		CatalogSnapshot snapshot = awaitRebuilds().getProducts();
+		String gzipETag = snapshot.getETag().replaceAll("\"$", "-gzip\"");
+
+		getProducts(null, snapshot.getETag()).andExpect(status().isNotModified())
+				.andExpect(content().bytes(new byte[0]));
+		getProducts("gzip", gzipETag).andExpect(status().isNotModified())
+				.andExpect(content().bytes(new byte[0]));
+
+		getProducts("gzip", snapshot.getETag()).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, gzipETag));
+		getProducts(null, gzipETag).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, snapshot.getETag()));
+	}
+
+	@Test
+	void writesRebuildTheSnapshots() throws Exception {
+		CatalogSnapshot products = awaitRebuilds().getProducts();
+		CatalogSnapshot categories = catalogSnapshotService.getCategories();
+
+		mockMvc.perform(put("/products/" + writtenProductId).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Snapshot Round Shade\",\"description\":\"Round shade\",\"price\":19.9,\"imgUrl\":\"\",\"categories\":[{\"id\":" + writtenCategoryId + "}]}"))
+				.andExpect(status().isOk());
+
+		CatalogSnapshot rebuilt = awaitRebuilds().getProducts();
+		assertNotEquals(products.getETag(), rebuilt.getETag());
+		assertTrue(json(rebuilt).contains("Snapshot Round Shade"));
+		getProducts(null, products.getETag()).andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, rebuilt.getETag()))
+				.andExpect(jsonPath("$[?(@.id == " + writtenProductId + ")].name").value("Snapshot Round Shade"));
+
+		//Renaming the Category rebuilds both Lists, since the Products are serialized with their Categories' names
+		mockMvc.perform(put("/categories/" + writtenCategoryId).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Snapshot Lampshades\"}"))
+				.andExpect(status().isOk());
+
+		awaitRebuilds();
+		assertNotEquals(categories.getETag(), catalogSnapshotService.getCategories().getETag());
+		assertNotEquals(rebuilt.getETag(), catalogSnapshotService.getProducts().getETag());
+		assertTrue(json(catalogSnapshotService.getProducts()).contains("Snapshot Lampshades"));
+		mockMvc.perform(get("/categories").header(HttpHeaders.IF_NONE_MATCH, categories.getETag()))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, catalogSnapshotService.getCategories().getETag()))
+				.andExpect(jsonPath("$[?(@.id == " + writtenCategoryId + ")].name").value("Snapshot Lampshades"));
+	}
+
+	//Without snapshots (not built yet), the Lists are loaded and serialized as usual, in identity encoding
+	@Test
+	void listsAreSerializedWhileNoSnapshotIsBuilt() throws Exception {
+		Object service = AopTestUtils.getUltimateTargetObject(awaitRebuilds());
+		ReflectionTestUtils.setField(service, "products", null);
+		ReflectionTestUtils.setField(service, "categories", null);
+		try {
+			String eTag = productService.findAllETag();
+			getProducts("gzip", null).andExpect(status().isOk())
+					.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+					.andExpect(header().string(HttpHeaders.ETAG, eTag))
+					.andExpect(jsonPath("$[?(@.id == " + productId + ")].categories[0].id").value(categoryId.intValue()));
+			getProducts("gzip", eTag).andExpect(status().isNotModified());
+
+			mockMvc.perform(get("/categories").header(HttpHeaders.ACCEPT_ENCODING, "gzip"))
+					.andExpect(status().isOk())
+					.andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+					.andExpect(jsonPath("$[?(@.id == " + categoryId + ")].id").value(categoryId.intValue()));
+		}
+		finally {
+			ReflectionTestUtils.invokeMethod(service, "rebuild");
+		}
+	}
+
+	//Waiting for the rebuilds queued so far (the rebuild thread runs its tasks in order)
+	private CatalogSnapshotService awaitRebuilds() throws Exception {
+		Object service = AopTestUtils.getUltimateTargetObject(catalogSnapshotService);
+		ExecutorService executor = (ExecutorService) ReflectionTestUtils.getField(service, "executor");
+		executor.submit(() -> { }).get();
+		return catalogSnapshotService;
+	}
+
+	private ResultActions getProducts(String acceptEncoding, String ifNoneMatch) throws Exception {
+		MockHttpServletRequestBuilder request = get("/products");
+		if (acceptEncoding != null) {
+			request.header(HttpHeaders.ACCEPT_ENCODING, acceptEncoding);
+		}
+		if (ifNoneMatch != null) {
+			request.header(HttpHeaders.IF_NONE_MATCH, ifNoneMatch);
+		}
+		return mockMvc.perform(request);
+	}
+
+	private static String json(CatalogSnapshot snapshot) {
+		return new String(snapshot.getJson(), StandardCharsets.UTF_8);
+	}
+
+	private static byte[] gunzip(byte[] gzip) throws IOException {
+		try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzip))) {
+			return StreamUtils.copyToByteArray(in);
+		}
+	}
+}
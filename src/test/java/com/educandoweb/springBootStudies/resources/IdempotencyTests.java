@@ -0,0 +1,287 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.IdempotencyService;
+import com.educandoweb.springBootStudies.services.exceptions.IdempotencyKeyReusedException;
+
+/*Idempotency-Key of the creation End Points (see IdempotencyService): concurrent duplicates coalesced onto a single
+  creation, retries replaying the first response, keys reused with another body, and the keys of failed or timed-out
+  creations. The End Points are requested through MockMvc, and the failure cases call the Service directly, with
+  creations completed by the test itself*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IdempotencyTests {
+
+	private static final long TIMEOUT_SECONDS = 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private IdempotencyService idempotencyService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	private final ExecutorService clients = Executors.newFixedThreadPool(2);
+
+	private Long clientId;
+	private Long productId;
+
+	@BeforeAll
+	void seed() {
+		clientId = userRepository.save(new User(null, "Bob Grey", "bob@gmail.com", "955555555", "123456")).getId();
+		productId = productRepository.save(new Product(null, "Monitor", "Wide", 99900, "")).getId();
+	}
+
+	@AfterAll
+	void stopClients() {
+		clients.shutdownNow();
+	}
+
+	@Test
+	void concurrentRequestsWithTheSameKeyCreateOneOrder() throws Exception {
+		String key = UUID.randomUUID().toString();
+		long orders = ordersOfClient();
+
+		List<Future<MockHttpServletResponse>> requests = new ArrayList<>();
+		for (int i = 0; i < 2; i++) {
+			requests.add(clients.submit(() -> perform(postOrder(1).header(IdempotencyService.IDEMPOTENCY_KEY, key))));
+		}
+		MockHttpServletResponse first = requests.get(0).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		MockHttpServletResponse second = requests.get(1).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		assertEquals(201, first.getStatus());
+		assertEquals(201, second.getStatus());
+		assertEquals(first.getContentAsString(), second.getContentAsString());
+		assertEquals(first.getHeader(HttpHeaders.LOCATION), second.getHeader(HttpHeaders.LOCATION));
+		assertEquals(orders + 1, ordersOfClient());
+	}
+
+	@Test
+	void concurrentDuplicatesWaitForTheFirstCreation() throws Exception {
+		AtomicInteger creations = new AtomicInteger();
+		CompletableFuture<ResponseEntity<?>> creation = new CompletableFuture<>();
+		Supplier<CompletableFuture<? extends ResponseEntity<?>>> create = () -> {
+			creations.incrementAndGet();
+			return creation;
+		};
+
+		String scope = scope();
+		CompletableFuture<ResponseEntity<?>> first = idempotencyService.executeAsync("k", scope, "body", null, create);
+		CompletableFuture<ResponseEntity<?>> duplicate = idempotencyService.executeAsync("k", scope, "body", null, create);
+		assertFalse(duplicate.isDone());
+
+		creation.complete(ResponseEntity.status(201).body("created"));
+
+		assertEquals(1, creations.get());
+		assertNull(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).getHeaders().getFirst(IdempotencyService.IDEMPOTENT_REPLAYED));
+		ResponseEntity<?> replayed = duplicate.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertEquals(201, replayed.getStatusCodeValue());
+		assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.IDEMPOTENT_REPLAYED));
+		assertEquals("\"created\"", new String((byte[]) replayed.getBody()));
+	}
+
+	@Test
+	void retryReplaysStatusLocationAndBody() throws Exception {
+		String key = UUID.randomUUID().toString();
+		String email = key + "@gmail.com";
+
+		MockHttpServletResponse first = perform(postUser(email).header(IdempotencyService.IDEMPOTENCY_KEY, key));
+		MockHttpServletResponse retry = perform(postUser(email).header(IdempotencyService.IDEMPOTENCY_KEY, key));
+
+		assertEquals(201, first.getStatus());
+		assertNull(first.getHeader(IdempotencyService.IDEMPOTENT_REPLAYED));
+		assertEquals(201, retry.getStatus());
+		assertEquals("true", retry.getHeader(IdempotencyService.IDEMPOTENT_REPLAYED));
+		assertEquals(first.getHeader(HttpHeaders.LOCATION), retry.getHeader(HttpHeaders.LOCATION));
+		assertEquals(first.getContentAsString(), retry.getContentAsString());
+		assertEquals(1, userRepository.findAll().stream().filter(user -> email.equals(user.getEmail())).count());
+
+		//Without a key (or with another one), the same body creates another User
+		assertEquals(201, perform(postUser(email)).getStatus());
+		assertEquals(2, userRepository.findAll().stream().filter(user -> email.equals(user.getEmail())).count());
+	}
+
+	@Test
+	void keyReusedWithAnotherBodyIsRejected() throws Exception {
+		String key = UUID.randomUUID().toString();
+		long orders = ordersOfClient();
+
+		assertEquals(201, perform(postOrder(1).header(IdempotencyService.IDEMPOTENCY_KEY, key)).getStatus());
+		assertEquals(422, perform(postOrder(2).header(IdempotencyService.IDEMPOTENCY_KEY, key)).getStatus());
+		assertEquals(orders + 1, ordersOfClient());
+
+		//The same key is independent at another End Point
+		assertEquals(201, perform(postUser(key + "@gmail.com").header(IdempotencyService.IDEMPOTENCY_KEY, key)).getStatus());
+	}
+
+	@Test
+	void failedCreationReleasesTheKey() throws Exception {
+		String scope = scope();
+		AtomicInteger creations = new AtomicInteger();
+
+		CompletableFuture<ResponseEntity<?>> failed = idempotencyService.executeAsync("k", scope, "body", null, () -> {
+			creations.incrementAndGet();
+			return CompletableFuture.failedFuture(new IllegalStateException("boom"));
+		});
+		assertThrows(ExecutionException.class, () -> failed.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		//A creation answered with an error status does not keep the key either
+		ResponseEntity<?> rejected = idempotencyService.executeAsync("k", scope, "body", null, () -> {
+			creations.incrementAndGet();
+			return CompletableFuture.completedFuture(ResponseEntity.status(409).body("conflict"));
+		}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertEquals(409, rejected.getStatusCodeValue());
+
+		//Neither does a creation that throws before returning its future
+		assertThrows(IllegalStateException.class, () -> idempotencyService.executeAsync("k", scope, "body", null, () -> {
+			creations.incrementAndGet();
+			throw new IllegalStateException("boom");
+		}));
+
+		ResponseEntity<?> created = idempotencyService.executeAsync("k", scope, "body", null, () -> {
+			creations.incrementAndGet();
+			return CompletableFuture.completedFuture(ResponseEntity.status(201).body("created"));
+		}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertEquals(201, created.getStatusCodeValue());
+		assertEquals(4, creations.get());
+	}
+
+	@Test
+	void timedOutCreationKeepsTheKeyInFlight() throws Exception {
+		String scope = scope();
+		AtomicInteger creations = new AtomicInteger();
+		CompletableFuture<ResponseEntity<?>> creation = new CompletableFuture<>();
+		Supplier<CompletableFuture<? extends ResponseEntity<?>>> create = () -> {
+			creations.incrementAndGet();
+			return creation;
+		};
+
+		CompletableFuture<ResponseEntity<?>> timedOut = idempotencyService.executeAsync("k", scope, "body", Duration.ofMillis(50), create);
+		ExecutionException e = assertThrows(ExecutionException.class, () -> timedOut.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof TimeoutException);
+
+		//The retry does not create again: it waits for the creation that is still running, and replays its outcome
+		CompletableFuture<ResponseEntity<?>> retry = idempotencyService.executeAsync("k", scope, "body", Duration.ofSeconds(TIMEOUT_SECONDS), create);
+		assertFalse(retry.isDone());
+		creation.complete(ResponseEntity.status(201).body("created"));
+
+		ResponseEntity<?> replayed = retry.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertEquals(201, replayed.getStatusCodeValue());
+		assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.IDEMPOTENT_REPLAYED));
+		assertEquals(1, creations.get());
+
+		//A different body is still rejected while the key is in flight
+		CompletableFuture<ResponseEntity<?>> pending = new CompletableFuture<>();
+		String otherScope = scope();
+		idempotencyService.executeAsync("k", otherScope, "body", Duration.ofMillis(50), () -> pending);
+		assertThrows(IdempotencyKeyReusedException.class, () -> idempotencyService.executeAsync("k", otherScope, "other", null, () -> pending));
+	}
+
+	@Test
+	void timedOutCreationThatFailsReleasesTheKey() throws Exception {
+		String scope = scope();
+		AtomicInteger creations = new AtomicInteger();
+		CompletableFuture<ResponseEntity<?>> creation = new CompletableFuture<>();
+
+		CompletableFuture<ResponseEntity<?>> timedOut = idempotencyService.executeAsync("k", scope, "body", Duration.ofMillis(50), () -> {
+			creations.incrementAndGet();
+			return creation;
+		});
+		assertThrows(ExecutionException.class, () -> timedOut.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		//A retry waiting for the creation fails along with it, and the next one creates again
+		CompletableFuture<ResponseEntity<?>> waiting = idempotencyService.executeAsync("k", scope, "body", null, () -> creation);
+		creation.completeExceptionally(new IllegalStateException("boom"));
+		ExecutionException e = assertThrows(ExecutionException.class, () -> waiting.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertTrue(e.getCause() instanceof IllegalStateException);
+
+		ResponseEntity<?> created = idempotencyService.executeAsync("k", scope, "body", null, () -> {
+			creations.incrementAndGet();
+			return CompletableFuture.completedFuture(ResponseEntity.status(201).body("created"));
+		}).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		assertNull(created.getHeaders().getFirst(IdempotencyService.IDEMPOTENT_REPLAYED));
+		assertEquals(2, creations.get());
+	}
+
+	//Unique End Point name, so that the keys of a test do not collide with the ones of the other tests
+	private static String scope() {
+		return "test-" + UUID.randomUUID();
+	}
+
+	//Performing a request (dispatching it again when it is answered asynchronously) and returning its response
+	private MockHttpServletResponse perform(MockHttpServletRequestBuilder request) throws Exception {
+		MvcResult result = mockMvc.perform(request).andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			result.getAsyncResult(TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS));
+			result = mockMvc.perform(asyncDispatch(result)).andReturn();
+		}
+		return result.getResponse();
+	}
+
+	private MockHttpServletRequestBuilder postOrder(int quantity) {
+		return post("/orders").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"clientId\":" + clientId + ",\"items\":[{\"productId\":" + productId + ",\"quantity\":" + quantity + "}]}");
+	}
+
+	private static MockHttpServletRequestBuilder postUser(String email) {
+		return post("/users").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Ann Blue\",\"email\":\"" + email + "\",\"phone\":\"944444444\",\"password\":\"123456\"}");
+	}
+
+	private long ordersOfClient() {
+		return orderRepository.findAll().stream().filter(order -> clientId.equals(order.getClient().getId())).count();
+	}
+}
@@ -0,0 +1,125 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Instant;
+
+import org.junit.jupiter.api.Test;
+
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*Amounts held in minor units (see MinorUnitsConverter, MinorUnitsSerializer and MinorUnitsDeserializer): the rounding of
+  the decimal amounts read from the Database and from the JSON, the overflow checks of the Subtotals and Totals, and the
+  JSON round trip that keeps prices, subtotals and totals at the decimal format the API has always used*/
+
+/*OBS: No application context is needed, the amounts are converted by the entities and by a plain Jackson ObjectMapper*/
+
+class MinorUnitsTests {
+
+	private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+	private final MinorUnitsConverter converter = new MinorUnitsConverter();
+
+	@Test
+	void databaseAmountsAreRoundedToTheNearestMinorUnit() {
+		//12.99 is stored as the closest double (12.9899999999999984...), and 12.99 * 100 is 1298.9999999999998
+		assertEquals(1299L, converter.convertToEntityAttribute(12.99));
+		assertEquals(1299L, converter.convertToEntityAttribute(12.989999999999998));
+		assertEquals(1L, converter.convertToEntityAttribute(0.005));
+		assertEquals(0L, converter.convertToEntityAttribute(0.0049));
+		assertEquals(-1299L, converter.convertToEntityAttribute(-12.99));
+		assertEquals(-1L, converter.convertToEntityAttribute(-0.005));
+		assertEquals(0L, converter.convertToEntityAttribute(null));
+
+		assertEquals(12.99, converter.convertToDatabaseColumn(1299L));
+		assertEquals(-0.01, converter.convertToDatabaseColumn(-1L));
+	}
+
+	@Test
+	void jsonAmountsAreRoundedHalfUp() throws Exception {
+		assertEquals(1299, price("12.99"));
+		assertEquals(1299, price("\"12.99\""));
+		assertEquals(1200, price("12"));
+		assertEquals(1, price("0.005"));
+		assertEquals(0, price("0.0049"));
+		assertEquals(-1299, price("-12.99"));
+		assertEquals(-1, price("-0.005"));
+		assertEquals(0, price("null"));
+
+		assertThrows(JsonMappingException.class, () -> price("\"twelve\""));
+		assertThrows(JsonMappingException.class, () -> price("true"));
+		assertThrows(JsonMappingException.class, () -> price("1e30"));
+	}
+
+	@Test
+	void overflowingTotalsFailWithoutChangingTheOrder() {
+		Order order = new Order(null, Instant.parse("2030-01-01T00:00:00Z"), OrderStatus.PAID, null);
+		OrderItem expensive = new OrderItem(order, product(1L), 1, Long.MAX_VALUE - 10);
+		OrderItem cheap = new OrderItem(order, product(2L), 1, 100);
+		order.addItem(expensive);
+
+		//Math.addExact() at Order.adjustTotal(): the OrderItem that would overflow the Total is not added
+		assertThrows(ArithmeticException.class, () -> order.addItem(cheap));
+		assertEquals(Long.MAX_VALUE - 10, order.getTotal());
+		assertEquals(1, order.getItems().size());
+
+		//The same at the price and quantity changes of an added OrderItem, which are not applied either
+		order.removeItem(expensive);
+		order.addItem(cheap);
+		order.addItem(new OrderItem(order, product(3L), 1, Long.MAX_VALUE - 200));
+		assertThrows(ArithmeticException.class, () -> cheap.setPrice(300));
+		assertThrows(ArithmeticException.class, () -> cheap.setQuantity(3));
+		assertEquals(100, cheap.getSubtotal());
+		assertEquals(Long.MAX_VALUE - 100, order.getTotal());
+
+		//Math.multiplyExact() at the Subtotal
+		OrderItem huge = new OrderItem(order, product(4L), 1, Long.MAX_VALUE / 2 + 1);
+		assertThrows(ArithmeticException.class, () -> huge.setQuantity(2));
+		assertEquals(1, huge.getQuantity());
+	}
+
+	//Prices, Subtotals and Totals are written as the same decimal numbers the JSON was read with
+	@Test
+	void jsonRoundTripKeepsTheDecimalFormat() throws Exception {
+		Product product = objectMapper.readValue("{\"id\":1,\"name\":\"Pen\",\"price\":12.99}", Product.class);
+		assertEquals(1299, product.getPrice());
+		assertEquals("12.99", objectMapper.readTree(objectMapper.writeValueAsString(product)).get("price").toString());
+
+		Order order = new Order(1L, Instant.parse("2030-01-01T00:00:00Z"), OrderStatus.PAID,
+				new User(1L, "Client", "client@gmail.com", "999999999", "123456"));
+		order.addItem(new OrderItem(order, product, 3, product.getPrice()));
+		order.addItem(new OrderItem(order, product(2L), 2, 5));
+		order.addItem(new OrderItem(order, product(3L), 1, 100));
+
+		JsonNode json = objectMapper.readTree(objectMapper.writeValueAsString(order));
+		assertEquals("40.07", json.get("total").toString());
+		for (JsonNode item : json.get("items")) {
+			String price = item.get("price").toString();
+			String subtotal = item.get("subtotal").toString();
+			assertTrue(price.equals("12.99") && subtotal.equals("38.97") || price.equals("0.05") && subtotal.equals("0.1")
+					|| price.equals("1.0") && subtotal.equals("1.0"), "price " + price + ", subtotal " + subtotal);
+
+			//Reading the written price back gives the same amount in minor units
+			assertEquals(objectMapper.readValue("{\"price\":" + price + "}", Product.class).getPrice(),
+					item.get("price").decimalValue().movePointRight(2).longValueExact());
+		}
+	}
+
+	private long price(String json) throws Exception {
+		return objectMapper.readValue("{\"price\":" + json + "}", Product.class).getPrice();
+	}
+
+	private static Product product(Long id) {
+		return new Product(id, "Product " + id, "", 100, "");
+	}
+}
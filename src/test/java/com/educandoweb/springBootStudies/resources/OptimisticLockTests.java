@@ -0,0 +1,168 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.UserService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*Optimistic Locking of the updates (see ConditionalUpdates and RetryConfig): the If-Match header of PUT /users/{id},
+  and the retries of an update whose row was changed by another transaction meanwhile*/
+
+/*OBS: The version conflicts are real ones. UserService saves the User through a Mockito mock delegating to
+  UserRepository, which commits a concurrent change of the same User (at a separate transaction) right before the
+  save, so the @Version check of the UPDATE fails at the commit*/
+
+@SpringBootTest(properties = {
+		"optimistic-lock.retry.max-attempts=" + OptimisticLockTests.MAX_ATTEMPTS,
+		"optimistic-lock.retry.initial-delay=1ms",
+		"optimistic-lock.retry.max-delay=5ms",
+		"catalog.snapshot.enabled=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OptimisticLockTests {
+
+	static final int MAX_ATTEMPTS = 3;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserService userService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private Long userId;
+
+	//Amount of the next saves of UserService that are preceded by a concurrent change of the same User
+	private final AtomicInteger concurrentChanges = new AtomicInteger();
+	//Amount of concurrent changes committed so far
+	private final AtomicInteger changes = new AtomicInteger();
+
+	@BeforeEach
+	void setUp() {
+		userId = userRepository.save(new User(null, "Alex Green", "alex@gmail.com", "977777777", "123456")).getId();
+
+		UserRepository serviceUserRepository = mock(UserRepository.class, delegatesTo(userRepository));
+		doAnswer(invocation -> {
+			if (concurrentChanges.getAndUpdate(pending -> Math.max(pending - 1, 0)) > 0) {
+				changeConcurrently(userId);
+			}
+			return userRepository.save(invocation.getArgument(0));
+		}).when(serviceUserRepository).save(any());
+		setServiceUserRepository(serviceUserRepository);
+	}
+
+	@AfterEach
+	void tearDown() {
+		setServiceUserRepository(userRepository);
+		concurrentChanges.set(0);
+	}
+
+	@Test
+	void updateWithTheCurrentETagSucceedsAndAStaleOneFails() throws Exception {
+		String eTag = mockMvc.perform(get("/users/" + userId)).andExpect(status().isOk())
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+		String newETag = mockMvc.perform(putUser("Alex Brown").header(HttpHeaders.IF_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value("Alex Brown"))
+				.andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		assertNotEquals(eTag, newETag);
+
+		mockMvc.perform(putUser("Alex Black").header(HttpHeaders.IF_MATCH, eTag))
+				.andExpect(status().isPreconditionFailed());
+
+		mockMvc.perform(get("/users/" + userId))
+				.andExpect(jsonPath("$.name").value("Alex Brown"))
+				.andExpect(header().string(HttpHeaders.ETAG, newETag));
+	}
+
+	@Test
+	void conflictingUpdateIsRetriedAndCounted() {
+		Counter conflicts = meterRegistry.counter("optimistic.lock.conflicts");
+		double before = conflicts.count();
+		concurrentChanges.set(1);
+
+		Integer version = userRepository.findById(userId).orElseThrow().getVersion();
+
+		User edited = new User(null, "Alex Brown", "alex.brown@gmail.com", "977777777", null);
+		User updated = userService.update(userId, edited, null);
+
+		//The first attempt lost against the concurrent change, and the second one was applied on top of it
+		assertEquals(before + 1, conflicts.count());
+		User stored = userRepository.findById(userId).orElseThrow();
+		assertEquals("alex.brown@gmail.com", stored.getEmail());
+		assertEquals(version + 2, stored.getVersion());
+		assertEquals(stored.getVersion(), updated.getVersion());
+	}
+
+	@Test
+	void updateConflictingAtEveryAttemptIsAnsweredWithConflict() throws Exception {
+		Counter conflicts = meterRegistry.counter("optimistic.lock.conflicts");
+		double before = conflicts.count();
+		concurrentChanges.set(Integer.MAX_VALUE);
+
+		mockMvc.perform(putUser("Alex Brown")).andExpect(status().isConflict());
+
+		assertEquals(before + MAX_ATTEMPTS, conflicts.count());
+		assertEquals("Alex Green", userRepository.findById(userId).orElseThrow().getName());
+	}
+
+	//Changing the phone of the User at a separate, already committed, transaction (a new phone each time, so the version always grows)
+	private void changeConcurrently(Long id) {
+		String phone = String.valueOf(966666666 + changes.incrementAndGet());
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		template.executeWithoutResult(status -> userRepository.findById(id).orElseThrow().setPhone(phone));
+	}
+
+	private void setServiceUserRepository(UserRepository repository) {
+		Object service = AopTestUtils.getUltimateTargetObject(userService);
+		ReflectionTestUtils.setField(service, "userRepository", repository);
+	}
+
+	private MockHttpServletRequestBuilder putUser(String name) {
+		return put("/users/" + userId).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"" + name + "\",\"email\":\"alex@gmail.com\",\"phone\":\"977777777\"}");
+	}
+}
@@ -0,0 +1,122 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.educandoweb.springBootStudies.config.AsyncConfig;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*Dedicated Executor of the asynchronous Order End Points (see AsyncConfig and OrderResource.async()): a request that
+  finds every thread busy and the queue full is rejected with 503 (Service Unavailable) right away, and a queued request
+  that does not start within orders.async.timeout is answered with 503 as well once the timeout expires*/
+
+/*OBS: The Executor is shrunk to 2 threads (as many as the Hikari Connections) and a queue of 1 task, and its threads are
+  held by tasks waiting on a latch, which is released after each test. Since these properties start an application
+  context of their own, it gets an in-memory Database of its own too*/
+
+@SpringBootTest(properties = { "catalog.snapshot.enabled=false", "spring.datasource.hikari.maximum-pool-size=2",
+		"orders.async.queue-capacity=1", "orders.async.timeout=300ms",
+		"spring.datasource.url=jdbc:h2:mem:executordb;DB_CLOSE_ON_EXIT=FALSE", "spring.r2dbc.url=r2dbc:h2:mem:///executordb" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class OrderExecutorTests {
+
+	private static final int THREADS = 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	@Qualifier(AsyncConfig.ORDER_EXECUTOR)
+	private ThreadPoolTaskExecutor orderExecutor;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	private final CountDownLatch release = new CountDownLatch(1);
+
+	@AfterEach
+	void releaseExecutor() throws Exception {
+		release.countDown();
+		orderExecutor.getThreadPoolExecutor().getQueue().clear();
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (orderExecutor.getActiveCount() > 0 && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+		}
+	}
+
+	@Test
+	void saturatedExecutorIsAnsweredWithServiceUnavailable() throws Exception {
+		occupyThreads();
+		orderExecutor.execute(this::awaitRelease);
+		double rejected = rejectedCount();
+
+		MvcResult result = mockMvc.perform(get("/orders?view=summary")).andReturn();
+		assertFalse(result.getRequest().isAsyncStarted(), "The rejected request must not start asynchronously");
+		status().isServiceUnavailable().match(result);
+		jsonPath("$.status").value(503).match(result);
+		jsonPath("$.error").value("Service Unavailable").match(result);
+
+		assertEquals(rejected + 1, rejectedCount());
+	}
+
+	@Test
+	void queuedRequestTimesOutWithServiceUnavailable() throws Exception {
+		occupyThreads();
+
+		long start = System.nanoTime();
+		MvcResult result = mockMvc.perform(get("/orders?view=summary")).andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isServiceUnavailable())
+				.andExpect(jsonPath("$.message").value("The request took too long to be processed"));
+
+		long elapsed = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+		assertTrue(elapsed >= 300 && elapsed < 5000, "Answered after " + elapsed + " ms");
+	}
+
+	/*Holding every thread of the Executor until the test ends. Each task is only submitted once the previous one has
+	  started, since with idle threads the tasks go through the queue (of a single task) before a thread takes them*/
+	private void occupyThreads() throws Exception {
+		for (int i = 0; i < THREADS; i++) {
+			CountDownLatch started = new CountDownLatch(1);
+			orderExecutor.execute(() -> {
+				started.countDown();
+				awaitRelease();
+			});
+			assertTrue(started.await(10, TimeUnit.SECONDS));
+		}
+	}
+
+	private void awaitRelease() {
+		try {
+			release.await(30, TimeUnit.SECONDS);
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private double rejectedCount() {
+		return meterRegistry.get("executor.rejected").tag("name", "orders").counter().count();
+	}
+}
@@ -0,0 +1,151 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderItemRepository;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*Newline-Delimited JSON export of the Orders (see OrderResource.export() and OrderService.exportAll()): with more Orders
+  than fit in one fetched block, each stored Order is written exactly once, as a single well-formed JSON object per line,
+  with its Items and a Total matching the sum of their Subtotals*/
+
+/*OBS: Since more than EXPORT_FETCH_SIZE Orders are seeded (in 2035), the class gets an in-memory Database of its own, so
+  the other test classes (which walk or list every stored Order) are not slowed down by them*/
+
+@SpringBootTest(properties = { "catalog.snapshot.enabled=false",
+		"spring.datasource.url=jdbc:h2:mem:exportdb;DB_CLOSE_ON_EXIT=FALSE", "spring.r2dbc.url=r2dbc:h2:mem:///exportdb" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderExportTests {
+
+	//More Orders than fetched per block, so that the export crosses at least two block boundaries
+	private static final int ORDERS = OrderRepository.EXPORT_FETCH_SIZE * 2 + 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	//Expected Total (in minor units) of each seeded Order that has Items
+	private final Map<Long, Long> totals = new HashMap<>();
+
+	@BeforeAll
+	void seed() {
+		User client = userRepository.save(new User(null, "Export Client", "export@gmail.com", "966666666", "123456"));
+		Product product = productRepository.save(new Product(null, "Export Product", "Exported product", 1299, ""));
+
+		Instant moment = Instant.parse("2035-03-10T08:00:00Z");
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < ORDERS; i++) {
+			orders.add(new Order(null, moment.plusSeconds(i), OrderStatus.PAID, client));
+		}
+		orderRepository.saveAll(orders);
+
+		//A few Orders with Items, one of them at each block boundary
+		for (int quantity = 1; quantity <= 3; quantity++) {
+			int index = quantity * OrderRepository.EXPORT_FETCH_SIZE - 1;
+			int amount = quantity;
+			Long id = new TransactionTemplate(transactionManager).execute(transaction -> {
+				Order order = new Order(null, moment.minusSeconds(index), OrderStatus.SHIPPED, client);
+				OrderItem item = new OrderItem(order, product, amount, product.getPrice());
+				order.addItem(item);
+				orderRepository.save(order);
+				orderItemRepository.save(item);
+				return order.getId();
+			});
+			totals.put(id, quantity * 1299L);
+		}
+	}
+
+	@Test
+	void eachOrderIsExportedAsOneJsonLine() throws Exception {
+		MvcResult result = mockMvc.perform(get("/orders/export")).andReturn();
+		result = mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk()).andReturn();
+
+		assertTrue(MediaType.parseMediaType(result.getResponse().getContentType()).isCompatibleWith(MediaType.APPLICATION_NDJSON));
+		String body = result.getResponse().getContentAsString();
+		assertTrue(body.endsWith("\n"), "The last line must end with a line break");
+
+		Set<Long> ids = new TreeSet<>();
+		String[] lines = body.substring(0, body.length() - 1).split("\n", -1);
+		for (String line : lines) {
+			JsonNode order = objectMapper.readTree(line);
+			assertTrue(order.isObject(), "Not a JSON object: " + line);
+			assertTrue(ids.add(order.get("id").asLong()), "Order exported twice: " + order.get("id"));
+			assertTrue(order.get("client").isObject());
+
+			//The Total is the sum of the Subtotals of the exported Items
+			BigDecimal subtotals = BigDecimal.ZERO;
+			for (JsonNode item : order.get("items")) {
+				subtotals = subtotals.add(item.get("subtotal").decimalValue());
+			}
+			assertEquals(0, subtotals.compareTo(order.get("total").decimalValue()), line);
+
+			Long expected = totals.get(order.get("id").asLong());
+			if (expected != null) {
+				assertEquals(1, order.get("items").size());
+				assertEquals(expected, order.get("total").decimalValue().movePointRight(2).longValueExact());
+			}
+		}
+
+		Set<Long> storedIds = orderRepository.findAllSummaries().stream().map(OrderSummary::getId)
+				.collect(Collectors.toCollection(TreeSet::new));
+		assertTrue(storedIds.size() > ORDERS);
+		assertEquals(storedIds.size(), lines.length);
+		assertEquals(storedIds, ids);
+	}
+}
@@ -0,0 +1,308 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.educandoweb.springBootStudies.dto.OrderRequest;
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.OrderIngestionService;
+import com.educandoweb.springBootStudies.services.exceptions.ResourceNotFoundException;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/*Group Commit of the created Orders (see OrderIngestionService): concurrent submissions written by a single transaction,
+  missing clients and Products rejecting only their own submission, the one-by-one fallback of a failed group, and the
+  503 (Service Unavailable) answer of a full queue*/
+
+/*OBS: The groups are made deterministic by pausing the writer thread. The writer reads the clients through a Mockito mock
+  delegating to UserRepository, whose first read waits at a gate, so the submissions sent meanwhile are queued and taken
+  by the writer as a single group once the gate is opened*/
+
+@SpringBootTest(properties = {
+		"orders.ingest.queue-capacity=" + OrderIngestionTests.QUEUE_CAPACITY,
+		"catalog.snapshot.enabled=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderIngestionTests {
+
+	static final int QUEUE_CAPACITY = 4;
+
+	private static final long TIMEOUT_SECONDS = 10;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OrderIngestionService orderIngestionService;
+
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	private UserRepository writerUserRepository;
+
+	private final ExecutorService clients = Executors.newFixedThreadPool(QUEUE_CAPACITY);
+
+	private volatile CountDownLatch gate;
+	private volatile CountDownLatch paused;
+
+	private Long clientId;
+	private Long keyboardId;
+	private Long mouseId;
+	private Long yachtId;
+
+	@BeforeAll
+	void seed() {
+		clientId = userRepository.save(new User(null, "Maria Brown", "maria@gmail.com", "988888888", "123456")).getId();
+		keyboardId = productRepository.save(new Product(null, "Keyboard", "Mechanical", 1500, "")).getId();
+		mouseId = productRepository.save(new Product(null, "Mouse", "Wireless", 2500, "")).getId();
+		//Priced so that its maximum quantity overflows the total (see OrderItem.getSubtotal())
+		yachtId = productRepository.save(new Product(null, "Yacht", "Luxury", 5_000_000_000L, "")).getId();
+
+		writerUserRepository = mock(UserRepository.class, delegatesTo(userRepository));
+		setWriterUserRepository(writerUserRepository);
+	}
+
+	@BeforeEach
+	void stubWriterGate() {
+		reset(writerUserRepository);
+		doAnswer(invocation -> {
+			CountDownLatch current = gate;
+			if (current != null) {
+				paused.countDown();
+				current.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+			}
+			return userRepository.findAllById(invocation.getArgument(0));
+		}).when(writerUserRepository).findAllById(any());
+	}
+
+	@AfterEach
+	void openWriterGate() {
+		resumeWriter();
+	}
+
+	@AfterAll
+	void stopClients() {
+		clients.shutdownNow();
+		setWriterUserRepository(userRepository);
+	}
+
+	@Test
+	void concurrentSubmissionsAreWrittenAsOneGroup() throws Exception {
+		DistributionSummary groups = meterRegistry.summary("orders.ingest.group.size");
+		long groupCount = groups.count();
+		double groupOrders = groups.totalAmount();
+
+		CompletableFuture<List<OrderSummary>> blocker = pauseWriter();
+		List<Future<CompletableFuture<List<OrderSummary>>>> submissions = new ArrayList<>();
+		submissions.add(clients.submit(() -> orderIngestionService.submit(List.of(order(keyboardId, 2, mouseId, 1)))));
+		submissions.add(clients.submit(() -> orderIngestionService.submit(List.of(order(keyboardId, 1, keyboardId, 2)))));
+		submissions.add(clients.submit(() -> orderIngestionService.submit(List.of(order(mouseId, 1), order(mouseId, 3)))));
+		submissions.add(clients.submit(() -> orderIngestionService.submit(List.of(order(mouseId, 2)))));
+		awaitQueued(submissions.size());
+		resumeWriter();
+
+		List<List<OrderSummary>> results = new ArrayList<>();
+		for (Future<CompletableFuture<List<OrderSummary>>> submission : submissions) {
+			results.add(submission.get(TIMEOUT_SECONDS, TimeUnit.SECONDS).get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		}
+		blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		//The paused group of the blocker, and then a single group with the 5 Orders of the 4 concurrent submissions
+		assertEquals(groupCount + 2, groups.count());
+		assertEquals(groupOrders + 1 + 5, groups.totalAmount());
+
+		//Repeated Products are merged into a single item, and the Summaries of a batch follow the order of its request
+		assertTotals(results.get(0), 2 * 1500 + 2500);
+		assertTotals(results.get(1), 3 * 1500);
+		assertTotals(results.get(2), 2500, 3 * 2500);
+		assertTotals(results.get(3), 2 * 2500);
+
+		Set<Long> ids = new HashSet<>();
+		for (List<OrderSummary> summaries : results) {
+			for (OrderSummary summary : summaries) {
+				assertEquals(clientId, summary.getClientId());
+				assertTrue(ids.add(summary.getId()), "Order id " + summary.getId() + " was assigned twice");
+				assertEquals(summary.getTotal(), orderRepository.findById(summary.getId()).orElseThrow().getTotal());
+			}
+		}
+		assertEquals(5, ids.size());
+	}
+
+	@Test
+	void missingReferencesOnlyRejectTheirOwnSubmission() throws Exception {
+		CompletableFuture<List<OrderSummary>> blocker = pauseWriter();
+		CompletableFuture<List<OrderSummary>> first = orderIngestionService.submit(List.of(order(keyboardId, 1)));
+		CompletableFuture<List<OrderSummary>> missingClient = orderIngestionService.submit(List.of(clientOrder(-1L, keyboardId, 1)));
+		CompletableFuture<List<OrderSummary>> missingProduct = orderIngestionService.submit(List.of(order(mouseId, 1), order(-2L, 1)));
+		CompletableFuture<List<OrderSummary>> last = orderIngestionService.submit(List.of(order(mouseId, 1)));
+		resumeWriter();
+
+		assertTotals(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 1500);
+		assertTotals(last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 2500);
+		assertFailure(ResourceNotFoundException.class, missingClient);
+		assertFailure(ResourceNotFoundException.class, missingProduct);
+		blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		//The rest of the group was committed as it was: the clients were read once by each of the two groups
+		verify(writerUserRepository, times(2)).findAllById(any());
+	}
+
+	@Test
+	void failedGroupIsWrittenAgainOneByOne() throws Exception {
+		long orders = orderRepository.count();
+
+		CompletableFuture<List<OrderSummary>> blocker = pauseWriter();
+		CompletableFuture<List<OrderSummary>> first = orderIngestionService.submit(List.of(order(keyboardId, 1)));
+		CompletableFuture<List<OrderSummary>> overflow = orderIngestionService.submit(List.of(order(yachtId, Integer.MAX_VALUE)));
+		CompletableFuture<List<OrderSummary>> last = orderIngestionService.submit(List.of(order(mouseId, 1)));
+		resumeWriter();
+
+		assertTotals(first.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 1500);
+		assertTotals(last.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 2500);
+		assertFailure(ArithmeticException.class, overflow);
+		blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+		//The blocker group, the failed group and then one transaction per request of the failed group
+		verify(writerUserRepository, times(2 + 3)).findAllById(any());
+		assertEquals(orders + 3, orderRepository.count());
+	}
+
+	@Test
+	void fullQueueIsAnsweredWithServiceUnavailable() throws Exception {
+		CompletableFuture<List<OrderSummary>> blocker = pauseWriter();
+		List<CompletableFuture<List<OrderSummary>>> queued = new ArrayList<>();
+		for (int i = 0; i < QUEUE_CAPACITY; i++) {
+			queued.add(orderIngestionService.submit(List.of(order(keyboardId, 1))));
+		}
+
+		assertThrows(RejectedExecutionException.class, () -> orderIngestionService.submit(List.of(order(keyboardId, 1))));
+
+		MvcResult result = mockMvc.perform(post("/orders").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"clientId\":" + clientId + ",\"items\":[{\"productId\":" + keyboardId + ",\"quantity\":1}]}"))
+				.andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isServiceUnavailable());
+		} else {
+			status().isServiceUnavailable().match(result);
+		}
+
+		//The queued requests are still written once the writer catches up
+		resumeWriter();
+		blocker.get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+		for (CompletableFuture<List<OrderSummary>> submission : queued) {
+			assertTotals(submission.get(TIMEOUT_SECONDS, TimeUnit.SECONDS), 1500);
+		}
+	}
+
+	private void setWriterUserRepository(UserRepository repository) {
+		Object writer = AopTestUtils.getUltimateTargetObject(orderIngestionService);
+		ReflectionTestUtils.setField(writer, "userRepository", repository);
+	}
+
+	//Submitting an Order and holding the writer thread while it reads the clients of its group
+	private CompletableFuture<List<OrderSummary>> pauseWriter() throws InterruptedException {
+		paused = new CountDownLatch(1);
+		gate = new CountDownLatch(1);
+		CompletableFuture<List<OrderSummary>> blocker = orderIngestionService.submit(List.of(order(keyboardId, 1)));
+		assertTrue(paused.await(TIMEOUT_SECONDS, TimeUnit.SECONDS), "The order writer did not take the first submission");
+		return blocker;
+	}
+
+	private void resumeWriter() {
+		CountDownLatch current = gate;
+		gate = null;
+		if (current != null) {
+			current.countDown();
+		}
+	}
+
+	private void awaitQueued(int submissions) throws InterruptedException {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS);
+		while (meterRegistry.get("orders.ingest.queue.size").gauge().value() < submissions) {
+			assertTrue(System.nanoTime() < deadline, "The submissions were not queued");
+			Thread.sleep(10);
+		}
+	}
+
+	//Order of the seeded client for (Product id, quantity) pairs
+	private OrderRequest order(Object... items) {
+		return clientOrder(clientId, items);
+	}
+
+	private static OrderRequest clientOrder(Long clientId, Object... items) {
+		OrderRequest request = new OrderRequest();
+		request.setClientId(clientId);
+		for (int i = 0; i < items.length; i += 2) {
+			request.getItems().add(new OrderRequest.Item((Long) items[i], (Integer) items[i + 1]));
+		}
+		return request;
+	}
+
+	private static void assertTotals(List<OrderSummary> summaries, long... totals) {
+		assertEquals(totals.length, summaries.size());
+		for (int i = 0; i < totals.length; i++) {
+			assertEquals(totals[i], summaries.get(i).getTotal());
+		}
+	}
+
+	private static void assertFailure(Class<? extends Throwable> cause, CompletableFuture<?> submission) {
+		ExecutionException e = assertThrows(ExecutionException.class, () -> submission.get(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertEquals(cause, e.getCause().getClass());
+	}
+}
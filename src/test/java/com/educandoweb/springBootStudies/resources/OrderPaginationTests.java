@@ -0,0 +1,156 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import com.educandoweb.springBootStudies.dto.OrderSummary;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.OrderService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*Keyset (Cursor) Pagination of the Orders (see OrderService.findPage() and findSummaryPage()): walking every page with
+  the returned cursors visits each Order exactly once, in (moment, id) order, even when many Orders share the same
+  moment, and malformed or tampered cursors and out-of-range limits are answered with 400 (Bad Request)*/
+
+/*OBS: The walks go over every Order of the shared test Database. Since more Orders share the seeded moment than fit in
+  a page, at least one cursor always points inside that group of Orders*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderPaginationTests {
+
+	private static final Instant MOMENT = Instant.parse("2033-07-20T15:30:00.123456Z");
+
+	//Size of the pages walked, smaller than the amount of Orders sharing MOMENT
+	private static final int LIMIT = 3;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@BeforeAll
+	void seed() {
+		User client = userRepository.save(new User(null, "Page Client", "page@gmail.com", "977777777", "123456"));
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < 7; i++) {
+			orders.add(new Order(null, MOMENT, OrderStatus.PAID, client));
+		}
+		orders.add(new Order(null, MOMENT.minusNanos(1000), OrderStatus.PAID, client));
+		orders.add(new Order(null, MOMENT.plusNanos(1000), OrderStatus.SHIPPED, client));
+		orders.add(new Order(null, MOMENT.plusSeconds(86400), OrderStatus.DELIVERED, client));
+		orderRepository.saveAll(orders);
+	}
+
+	@Test
+	void walkingThePagesVisitsEachOrderOnce() throws Exception {
+		assertEquals(expectedIds(), walk("/orders?limit=" + LIMIT));
+	}
+
+	@Test
+	void walkingTheSummaryPagesVisitsEachOrderOnce() throws Exception {
+		assertEquals(expectedIds(), walk("/orders?view=summary&limit=" + LIMIT));
+	}
+
+	@Test
+	void invalidCursorsAreRejected() throws Exception {
+		String[] cursors = {
+				"not*base64",
+				encode("garbage"),
+				encode("1:2"),
+				encode("1:2:3:4"),
+				encode("x:0:1"),
+				encode("1:0:99999999999999999999"),
+				encode("99999999999999999:0:1")
+		};
+		for (String cursor : cursors) {
+			perform("/orders?limit=" + LIMIT + "&after=" + cursor, status().isBadRequest());
+			perform("/orders?view=summary&limit=" + LIMIT + "&after=" + cursor, status().isBadRequest());
+		}
+	}
+
+	@Test
+	void outOfRangeLimitsAreRejected() throws Exception {
+		for (int limit : new int[] { 0, -1, OrderService.MAX_PAGE_LIMIT + 1 }) {
+			perform("/orders?limit=" + limit, status().isBadRequest());
+			perform("/orders?view=summary&limit=" + limit, status().isBadRequest());
+		}
+		perform("/orders?limit=" + OrderService.MAX_PAGE_LIMIT, status().isOk());
+	}
+
+	//Following the cursors from the first page to the last one, and returning the ids of the Orders in the order they came
+	private List<Long> walk(String url) throws Exception {
+		List<Long> ids = new ArrayList<>();
+		String cursor = null;
+		do {
+			JsonNode page = objectMapper.readTree(perform(cursor == null ? url : url + "&after=" + cursor, status().isOk()));
+			JsonNode content = page.get("content");
+			content.forEach(order -> ids.add(order.get("id").asLong()));
+			cursor = page.get("nextCursor").isNull() ? null : page.get("nextCursor").asText();
+			if (cursor == null) {
+				assertTrue(content.size() <= LIMIT);
+			} else {
+				assertEquals(LIMIT, content.size());
+			}
+		} while (cursor != null);
+		return ids;
+	}
+
+	//Ids of all the stored Orders, sorted by (moment, id)
+	private List<Long> expectedIds() {
+		return orderRepository.findAllSummaries().stream()
+				.sorted(Comparator.comparing(OrderSummary::getMoment).thenComparing(OrderSummary::getId))
+				.map(OrderSummary::getId).collect(Collectors.toList());
+	}
+
+	//Performing a GET request (dispatching it again when it is answered asynchronously) and returning its body
+	private String perform(String url, ResultMatcher expected) throws Exception {
+		MvcResult result = mockMvc.perform(get(url)).andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			result = mockMvc.perform(asyncDispatch(result)).andExpect(expected).andReturn();
+		} else {
+			expected.match(result);
+		}
+		return result.getResponse().getContentAsString();
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
@@ -0,0 +1,154 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.dto.OrderStats;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderItemRepository;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.OrderService;
+
+/*Order statistics (see OrderService.findStats()): Orders placed right before and right after midnight, and at the
+  first and last instants of a month, fall at the expected day and month buckets, each bucket starting at its truncated
+  UTC instant with its own amount of Orders and revenue, and the range includes "from" while excluding "to"*/
+
+/*OBS: The Orders are placed in 2034, a year no other test class writes to, so the buckets only hold the seeded ones*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderStatsTests {
+
+	private static final String FROM = "2034-01-31T00:00:00Z";
+	private static final String TO = "2034-03-01T00:00:00Z";
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private OrderService orderService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private User client;
+	private Product product;
+
+	@BeforeAll
+	void seed() {
+		client = userRepository.save(new User(null, "Stats Client", "stats@gmail.com", "988888888", "123456"));
+		product = productRepository.save(new Product(null, "Stats Product", "Counted product", 100, ""));
+
+		//Right before "from", at "from", right before and at midnight, at the last instant of February, and at "to"
+		placeOrder("2034-01-30T23:59:59.999Z", OrderStatus.PAID, 9900);
+		placeOrder("2034-01-31T00:00:00Z", OrderStatus.PAID, 300);
+		placeOrder("2034-01-31T23:59:59.999Z", OrderStatus.PAID, 1000);
+		placeOrder("2034-02-01T00:00:00Z", OrderStatus.PAID, 2000);
+		placeOrder("2034-02-01T12:00:00Z", OrderStatus.SHIPPED, 1999);
+		placeOrder("2034-02-28T23:59:59.999Z", OrderStatus.PAID, 500);
+		placeOrder("2034-03-01T00:00:00Z", OrderStatus.PAID, 700);
+	}
+
+	@Test
+	void dayBucketsSplitAtMidnight() {
+		assertEquals(List.of(
+				"2034-01-31T00:00:00Z null 2 1300",
+				"2034-02-01T00:00:00Z null 2 3999",
+				"2034-02-28T00:00:00Z null 1 500"),
+				describe(orderService.findStats(FROM, TO, "day", null)));
+	}
+
+	@Test
+	void monthBucketsSplitAtTheFirstDay() {
+		assertEquals(List.of(
+				"2034-01-01T00:00:00Z null 2 1300",
+				"2034-02-01T00:00:00Z null 3 4499"),
+				describe(orderService.findStats(FROM, TO, "month", null)));
+
+		//Moving "to" one millisecond forward includes the Order placed at the first instant of March
+		assertEquals(List.of(
+				"2034-01-01T00:00:00Z null 2 1300",
+				"2034-02-01T00:00:00Z null 3 4499",
+				"2034-03-01T00:00:00Z null 1 700"),
+				describe(orderService.findStats(FROM, "2034-03-01T00:00:00.001Z", "month", null)));
+	}
+
+	@Test
+	void bucketsAreSplitByStatus() {
+		assertEquals(List.of(
+				"2034-01-01T00:00:00Z PAID 2 1300",
+				"2034-02-01T00:00:00Z PAID 2 2500",
+				"2034-02-01T00:00:00Z SHIPPED 1 1999"),
+				describe(orderService.findStats(FROM, TO, "month", "status")));
+	}
+
+	//The End Point serializes the bucket start as an UTC instant, and the revenue as a decimal amount
+	@Test
+	void statsAreServedAsJson() throws Exception {
+		MvcResult result = mockMvc.perform(get("/orders/stats").param("from", FROM).param("to", TO).param("bucket", "month"))
+				.andReturn();
+		mockMvc.perform(asyncDispatch(result))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.length()").value(2))
+				.andExpect(jsonPath("$[1].bucket").value("2034-02-01T00:00:00Z"))
+				.andExpect(jsonPath("$[1].orders").value(3))
+				.andExpect(jsonPath("$[1].revenue").value(44.99));
+	}
+
+	//Placing an Order with a single item priced at "total" minor units (at a transaction of its own)
+	private void placeOrder(String moment, OrderStatus status, long total) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> {
+			Order order = new Order(null, Instant.parse(moment), status, client);
+			OrderItem item = new OrderItem(order, product, 1, total);
+			order.addItem(item);
+			orderRepository.save(order);
+			orderItemRepository.save(item);
+		});
+	}
+
+	//Describing each row as "bucket status orders revenue", so that a whole result is compared at once
+	private static List<String> describe(List<OrderStats> stats) {
+		return stats.stream()
+				.map(row -> row.getBucket() + " " + row.getOrderStatus() + " " + row.getOrders() + " " + row.getRevenue())
+				.collect(Collectors.toList());
+	}
+}
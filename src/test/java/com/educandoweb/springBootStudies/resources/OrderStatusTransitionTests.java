@@ -0,0 +1,271 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.AdditionalAnswers.delegatesTo;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.OrderStatusTransitionService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/*Bulk status transitions (POST /orders/status-transitions, see OrderStatusTransitionService): the outcome reported for
+  each Order, by ids and by filter, and the status each Order ends up with. The batch size is kept small, so that every
+  request is handled in several batches*/
+
+/*OBS: The Orders of each test belong to a client of their own and are placed at a year of their own, since the in-memory
+  Database is shared with the other test classes*/
+
+@SpringBootTest(properties = {
+		"orders.status-transition.batch-size=" + OrderStatusTransitionTests.BATCH_SIZE,
+		"catalog.snapshot.enabled=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderStatusTransitionTests {
+
+	static final int BATCH_SIZE = 2;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ObjectMapper objectMapper;
+
+	@Autowired
+	private OrderStatusTransitionService orderStatusTransitionService;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	//Year of the Orders seeded by the next test
+	private int year = 2040;
+
+	//The allowed transitions: one step forward, or any status but CANCELED to CANCELED
+	@Test
+	void canChangeToAllowsOneStepForwardOrCancellation() {
+		for (OrderStatus from : OrderStatus.values()) {
+			for (OrderStatus to : OrderStatus.values()) {
+				boolean allowed = from != OrderStatus.CANCELED
+						&& (to == OrderStatus.CANCELED || to.getCode() == from.getCode() + 1);
+				assertEquals(allowed, from.canChangeTo(to), from + " -> " + to);
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() {
+		setServiceOrderRepository(orderRepository);
+	}
+
+	@Test
+	void eachStepForwardIsApplied() throws Exception {
+		List<Long> ids = seed(OrderStatus.WAITING_PAYMENT, OrderStatus.PAID, OrderStatus.SHIPPED);
+
+		assertOutcome(transition("PAID", ids.get(0)), ids.get(0), "WAITING_PAYMENT", "UPDATED");
+		assertOutcome(transition("SHIPPED", ids.get(1)), ids.get(1), "PAID", "UPDATED");
+		assertOutcome(transition("DELIVERED", ids.get(2)), ids.get(2), "SHIPPED", "UPDATED");
+
+		assertEquals(List.of(OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED), statusesOf(ids));
+	}
+
+	@Test
+	void forbiddenStepsAreReportedAndLeftUntouched() throws Exception {
+		List<Long> ids = seed(OrderStatus.WAITING_PAYMENT, OrderStatus.DELIVERED, OrderStatus.CANCELED, OrderStatus.PAID);
+
+		JsonNode results = transition("SHIPPED", ids.toArray(new Long[0]));
+
+		//Skipping a step, going backwards and leaving CANCELED are forbidden, while PAID -> SHIPPED is still applied
+		assertOutcome(results.get(0), ids.get(0), "WAITING_PAYMENT", "INVALID_TRANSITION");
+		assertOutcome(results.get(1), ids.get(1), "DELIVERED", "INVALID_TRANSITION");
+		assertOutcome(results.get(2), ids.get(2), "CANCELED", "INVALID_TRANSITION");
+		assertOutcome(results.get(3), ids.get(3), "PAID", "UPDATED");
+
+		assertEquals(List.of(OrderStatus.WAITING_PAYMENT, OrderStatus.DELIVERED, OrderStatus.CANCELED, OrderStatus.SHIPPED), statusesOf(ids));
+	}
+
+	@Test
+	void anyStatusButCanceledCanBeCanceled() throws Exception {
+		List<Long> ids = seed(OrderStatus.WAITING_PAYMENT, OrderStatus.PAID, OrderStatus.SHIPPED, OrderStatus.DELIVERED, OrderStatus.CANCELED);
+
+		JsonNode results = transition("CANCELED", ids.toArray(new Long[0]));
+
+		assertOutcome(results.get(0), ids.get(0), "WAITING_PAYMENT", "UPDATED");
+		assertOutcome(results.get(1), ids.get(1), "PAID", "UPDATED");
+		assertOutcome(results.get(2), ids.get(2), "SHIPPED", "UPDATED");
+		assertOutcome(results.get(3), ids.get(3), "DELIVERED", "UPDATED");
+		assertOutcome(results.get(4), ids.get(4), "CANCELED", "UNCHANGED");
+
+		statusesOf(ids).forEach(status -> assertEquals(OrderStatus.CANCELED, status));
+	}
+
+	@Test
+	void unchangedMissingAndRepeatedIdsAreReportedOnce() throws Exception {
+		List<Long> ids = seed(OrderStatus.SHIPPED, OrderStatus.PAID);
+		Long missing = Long.MAX_VALUE;
+
+		JsonNode results = transition("SHIPPED", ids.get(0), missing, ids.get(1), ids.get(0));
+
+		//The results follow the informed ids, and the missing Order has no previous status
+		assertEquals(3, results.size());
+		assertOutcome(results.get(0), ids.get(0), "SHIPPED", "UNCHANGED");
+		assertEquals(missing, results.get(1).get("id").asLong());
+		assertEquals("NOT_FOUND", results.get(1).get("outcome").asText());
+		assertFalse(results.get(1).has("previousStatus"));
+		assertOutcome(results.get(2), ids.get(1), "PAID", "UPDATED");
+	}
+
+	@Test
+	void filterMovesOnlyTheMatchedOrders() throws Exception {
+		List<Long> ids = seed(OrderStatus.PAID, OrderStatus.PAID, OrderStatus.WAITING_PAYMENT, OrderStatus.PAID, OrderStatus.PAID, OrderStatus.DELIVERED);
+		Long clientId = orderRepository.findById(ids.get(0)).orElseThrow().getClient().getId();
+		Instant from = orderRepository.findById(ids.get(0)).orElseThrow().getMoment();
+		//The last PAID Order is placed after "to", so it is left behind
+		Instant to = orderRepository.findById(ids.get(4)).orElseThrow().getMoment();
+
+		JsonNode results = perform("{\"target\":\"SHIPPED\",\"filter\":{\"clientId\":" + clientId
+				+ ",\"from\":\"" + from + "\",\"to\":\"" + to + "\"}}");
+
+		//Only the Orders able to move are selected, across more than one batch and in id order
+		assertEquals(3, results.size());
+		assertOutcome(results.get(0), ids.get(0), "PAID", "UPDATED");
+		assertOutcome(results.get(1), ids.get(1), "PAID", "UPDATED");
+		assertOutcome(results.get(2), ids.get(3), "PAID", "UPDATED");
+
+		assertEquals(List.of(OrderStatus.SHIPPED, OrderStatus.SHIPPED, OrderStatus.WAITING_PAYMENT, OrderStatus.SHIPPED,
+				OrderStatus.PAID, OrderStatus.DELIVERED), statusesOf(ids));
+
+		//A filter status that cannot move to the target, or an empty range, is rejected
+		mockMvc.perform(post("/orders/status-transitions").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"target\":\"SHIPPED\",\"filter\":{\"status\":\"DELIVERED\"}}"))
+				.andExpect(status().isBadRequest());
+		mockMvc.perform(post("/orders/status-transitions").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"target\":\"SHIPPED\",\"filter\":{\"from\":\"" + to + "\",\"to\":\"" + from + "\"}}"))
+				.andExpect(status().isBadRequest());
+	}
+
+	/*A concurrent request trying to cancel an Order read by a batch waits until the batch is committed, so the batch
+	  reports the status the Order was actually moved from, and the cancellation is applied on top of it afterwards*/
+	@Test
+	void concurrentChangeWaitsForTheBatch() throws Exception {
+		List<Long> ids = seed(OrderStatus.PAID);
+		Long id = ids.get(0);
+		List<CompletableFuture<Integer>> cancellations = new ArrayList<>();
+
+		OrderRepository serviceOrderRepository = mock(OrderRepository.class, delegatesTo(orderRepository));
+		doAnswer(invocation -> {
+			List<Object[]> rows = orderRepository.findStatusesByIdIn(invocation.getArgument(0));
+			CompletableFuture<Integer> cancellation = CompletableFuture.supplyAsync(() -> cancel(id));
+			cancellations.add(cancellation);
+
+			//The row is locked by the batch, so the cancellation cannot be committed before the UPDATE
+			TimeUnit.MILLISECONDS.sleep(300);
+			assertFalse(cancellation.isDone(), "The Order was changed while locked by the batch");
+			return rows;
+		}).when(serviceOrderRepository).findStatusesByIdIn(any());
+		setServiceOrderRepository(serviceOrderRepository);
+
+		assertOutcome(transition("SHIPPED", id), id, "PAID", "UPDATED");
+
+		assertEquals(1, cancellations.get(0).get(5, TimeUnit.SECONDS));
+		assertEquals(OrderStatus.CANCELED, statusesOf(ids).get(0));
+	}
+
+	//Seeding one Order per informed status, for a new client and one minute apart (in id order) at a new year
+	private List<Long> seed(OrderStatus... statuses) {
+		int seedYear = year++;
+		User client = userRepository.save(new User(null, "Transition " + seedYear, "transition" + seedYear + "@gmail.com", "988888888", "123456"));
+
+		List<Order> orders = new ArrayList<>();
+		for (int i = 0; i < statuses.length; i++) {
+			orders.add(new Order(null, Instant.parse(seedYear + "-03-01T10:00:00Z").plusSeconds(60L * i), statuses[i], client));
+		}
+		List<Long> ids = new ArrayList<>();
+		orderRepository.saveAll(orders).forEach(order -> ids.add(order.getId()));
+		return ids;
+	}
+
+	private JsonNode transition(String target, Long... ids) throws Exception {
+		JsonNode results = perform("{\"target\":\"" + target + "\",\"ids\":" + List.of(ids) + "}");
+		return ids.length == 1 ? results.get(0) : results;
+	}
+
+	private JsonNode perform(String body) throws Exception {
+		String response = mockMvc.perform(post("/orders/status-transitions").contentType(MediaType.APPLICATION_JSON).content(body))
+				.andExpect(status().isOk())
+				.andReturn().getResponse().getContentAsString();
+		return objectMapper.readTree(response);
+	}
+
+	private void assertOutcome(JsonNode result, Long id, String previousStatus, String outcome) {
+		assertEquals(id, result.get("id").asLong());
+		assertEquals(previousStatus, result.get("previousStatus").asText(), "Previous status of Order " + id);
+		assertEquals(outcome, result.get("outcome").asText(), "Outcome of Order " + id);
+	}
+
+	private List<OrderStatus> statusesOf(List<Long> ids) {
+		Map<Long, OrderStatus> statuses = new HashMap<>();
+		orderRepository.findAllById(ids).forEach(order -> statuses.put(order.getId(), order.getOrderStatus()));
+		List<OrderStatus> ordered = new ArrayList<>();
+		ids.forEach(id -> ordered.add(statuses.get(id)));
+		assertTrue(!ordered.contains(null));
+		return ordered;
+	}
+
+	//Cancelling the Order through the same bulk UPDATE, at a separate transaction (returns the amount of moved Orders)
+	private Integer cancel(Long id) {
+		List<Integer> sources = new ArrayList<>();
+		for (OrderStatus status : OrderStatus.values()) {
+			if (status.canChangeTo(OrderStatus.CANCELED)) {
+				sources.add(status.getCode());
+			}
+		}
+		TransactionTemplate template = new TransactionTemplate(transactionManager);
+		template.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+		return template.execute(status -> orderRepository.updateStatus(List.of(id), sources, OrderStatus.CANCELED.getCode()));
+	}
+
+	private void setServiceOrderRepository(OrderRepository repository) {
+		Object service = AopTestUtils.getUltimateTargetObject(orderStatusTransitionService);
+		ReflectionTestUtils.setField(service, "orderRepository", repository);
+	}
+}
@@ -0,0 +1,202 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import org.hibernate.Hibernate;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.converters.MinorUnitsConverter;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderItemRepository;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+
+/*Persisted Order Total (see Order.getTotal()): addItem(), removeItem() and the OrderItems' price and quantity changes
+  keep it equal to the sum of the Subtotals, a stored OrderItem changes it without loading the Order's items, and the
+  deploy backfill (db/backfill-order-total.sql) recomputes the same total from tb_order_item*/
+
+/*OBS: The first tests only use the entities themselves, the others write and read the Orders through the Database*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class OrderTotalTests {
+
+	private static final Instant MOMENT = Instant.parse("2032-03-01T09:00:00Z");
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	@PersistenceContext
+	private EntityManager entityManager;
+
+	private User client;
+	private Product pen;
+	private Product notebook;
+
+	@BeforeAll
+	void seed() {
+		client = userRepository.save(new User(null, "Total Client", "total@gmail.com", "966666666", "123456"));
+		pen = productRepository.save(new Product(null, "Total Pen", "Blue pen", 350, ""));
+		notebook = productRepository.save(new Product(null, "Total Notebook", "Ruled notebook", 1299, ""));
+	}
+
+	@Test
+	void addedAndRemovedItemsChangeTheTotal() {
+		Order order = new Order(null, MOMENT, OrderStatus.PAID, client);
+		OrderItem pens = new OrderItem(order, pen, 3, 350);
+		OrderItem notebooks = new OrderItem(order, notebook, 2, 1299);
+
+		order.addItem(pens);
+		order.addItem(notebooks);
+		assertTotal(order, 3 * 350 + 2 * 1299);
+
+		//Adding the same OrderItem again does not count it twice
+		order.addItem(pens);
+		assertTotal(order, 3 * 350 + 2 * 1299);
+
+		order.removeItem(pens);
+		assertTotal(order, 2 * 1299);
+
+		//A removed OrderItem no longer changes the Total
+		pens.setQuantity(10);
+		assertTotal(order, 2 * 1299);
+
+		order.removeItem(notebooks);
+		assertTotal(order, 0);
+	}
+
+	@Test
+	void priceAndQuantityChangesAdjustTheTotal() {
+		Order order = new Order(null, MOMENT, OrderStatus.PAID, client);
+		OrderItem pens = new OrderItem(order, pen, 3, 350);
+		OrderItem notebooks = new OrderItem(order, notebook, 2, 1299);
+		order.addItem(pens);
+		order.addItem(notebooks);
+
+		pens.setQuantity(5);
+		assertTotal(order, 5 * 350 + 2 * 1299);
+
+		notebooks.setPrice(999);
+		assertTotal(order, 5 * 350 + 2 * 999);
+
+		pens.setQuantity(0);
+		assertTotal(order, 2 * 999);
+	}
+
+	//An OrderItem that was not added to its Order (through addItem()) is not counted at the Total
+	@Test
+	void itemsNotAddedAreNotCounted() {
+		Order order = new Order(null, MOMENT, OrderStatus.PAID, client);
+		OrderItem pens = new OrderItem(order, pen, 3, 350);
+
+		pens.setQuantity(4);
+		pens.setPrice(400);
+		assertTotal(order, 0);
+
+		order.addItem(pens);
+		assertTotal(order, 4 * 400);
+	}
+
+	@Test
+	void storedItemChangesTheTotalWithoutLoadingTheItems() {
+		Long orderId = placeOrder();
+
+		inTransaction(() -> {
+			OrderItem pens = entityManager.createQuery(
+					"SELECT i FROM OrderItem i WHERE i.id.order.id = :order AND i.id.product.id = :product", OrderItem.class)
+					.setParameter("order", orderId).setParameter("product", pen.getId()).getSingleResult();
+			pens.setQuantity(7);
+			assertFalse(Hibernate.isInitialized(pens.getOrder().getItems()));
+		});
+
+		assertEquals(7 * 350 + 2 * 1299, storedTotal(orderId));
+		inTransaction(() -> assertTotal(orderRepository.findById(orderId).orElseThrow(), 7 * 350 + 2 * 1299));
+	}
+
+	@Test
+	void backfillRecomputesTheTotalFromTheItems() throws Exception {
+		Long orderId = placeOrder();
+		jdbcTemplate.update("UPDATE tb_order SET total = 0 WHERE id = ?", orderId);
+
+		//The script is run as shipped, without its comment lines and final semicolon
+		String backfill = StreamUtils.copyToString(new ClassPathResource("db/backfill-order-total.sql").getInputStream(), StandardCharsets.UTF_8);
+		jdbcTemplate.update(backfill.replaceAll("(?m)^--.*$", "").trim().replaceAll(";$", ""));
+
+		assertEquals(3 * 350 + 2 * 1299, storedTotal(orderId));
+	}
+
+	//Placing an Order with 3 pens and 2 notebooks (at a transaction of its own)
+	private Long placeOrder() {
+		return new TransactionTemplate(transactionManager).execute(transaction -> {
+			Order order = new Order(null, MOMENT, OrderStatus.PAID, client);
+			OrderItem pens = new OrderItem(order, pen, 3, 350);
+			OrderItem notebooks = new OrderItem(order, notebook, 2, 1299);
+			order.addItem(pens);
+			order.addItem(notebooks);
+			orderRepository.save(order);
+			orderItemRepository.saveAll(List.of(pens, notebooks));
+			return order.getId();
+		});
+	}
+
+	private void inTransaction(Runnable runnable) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> runnable.run());
+	}
+
+	//Total stored at tb_order, in minor units (checking that it is exactly the decimal amount the application writes)
+	private long storedTotal(Long orderId) {
+		double total = jdbcTemplate.queryForObject("SELECT total FROM tb_order WHERE id = ?", Double.class, orderId);
+		long minorUnits = MinorUnitsConverter.toMinorUnits(total);
+		assertEquals(MinorUnitsConverter.toMajorUnits(minorUnits), total);
+		return minorUnits;
+	}
+
+	//Checking the Total of the Order against the sum of the Subtotals of its items
+	private static void assertTotal(Order order, long expected) {
+		long subtotals = 0;
+		for (OrderItem item : order.getItems()) {
+			subtotals += item.getSubtotal();
+		}
+		assertEquals(expected, subtotals);
+		assertEquals(expected, order.getTotal());
+	}
+}
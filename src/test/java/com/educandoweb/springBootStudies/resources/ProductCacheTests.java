@@ -0,0 +1,134 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.ProductService;
+
+/*Cached Products and their ETags (see ProductService): after a write, GET returns the new body along with the new ETag,
+  whether the write went through ProductService (which evicts the Lists) or not (a write made at another instance, which
+  neither evicts this instance's Caffeine entries nor updates its Second-Level Cache)*/
+
+/*OBS: The pre-serialized catalog is disabled, so that GET /products is answered from the cached List as well. The Caches
+  are cleared before each test, since the schema of the shared in-memory Database may have been recreated by another
+  test context meanwhile (restarting the ids, and therefore repeating ids and versions already cached)*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ProductCacheTests {
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private ProductService productService;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	private Long productId;
+
+	@BeforeEach
+	void seed() {
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		productId = productRepository.save(new Product(null, "Cached Lamp", "Desk lamp", 3990, "")).getId();
+	}
+
+	@Test
+	void updateThroughTheServiceServesTheNewBodyAndETag() throws Exception {
+		String eTag = getProduct("Cached Lamp");
+		String listETag = getList("Cached Lamp");
+
+		mockMvc.perform(put("/products/" + productId).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Cached Floor Lamp\",\"description\":\"Floor lamp\",\"price\":59.9,\"imgUrl\":\"\",\"categories\":[]}"))
+				.andExpect(status().isOk());
+
+		String newETag = getProduct("Cached Floor Lamp");
+		assertNotEquals(eTag, newETag);
+		assertNotEquals(listETag, getList("Cached Floor Lamp"));
+
+		//The former ETag no longer matches, so the client receives the new body instead of a 304
+		mockMvc.perform(get("/products/" + productId).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isOk())
+				.andExpect(header().string(HttpHeaders.ETAG, newETag));
+	}
+
+	@Test
+	void writeWithoutEvictionServesTheNewBodyAndETag() throws Exception {
+		String eTag = getProduct("Cached Lamp");
+		String listETag = getList("Cached Lamp");
+
+		//Written through plain JDBC, as another instance would: nothing is evicted and Hibernate never sees the UPDATE
+		jdbcTemplate.update("UPDATE tb_product SET name = ?, version = version + 1 WHERE id = ?", "Cached Reading Lamp", productId);
+
+		assertNotEquals(eTag, getProduct("Cached Reading Lamp"));
+		assertNotEquals(listETag, getList("Cached Reading Lamp"));
+	}
+
+	/*A read that loaded the old state right before a write, and put it into the Cache right after the write's eviction,
+	  cannot make GET serve the old state under the new ETag*/
+	@Test
+	void oldStateCachedAfterTheWriteIsNotServed() throws Exception {
+		String eTag = productService.findETagById(productId);
+		Product old = productService.findById(productId, eTag);
+
+		mockMvc.perform(put("/products/" + productId).contentType(MediaType.APPLICATION_JSON)
+				.content("{\"name\":\"Cached Wall Lamp\",\"description\":\"Wall lamp\",\"price\":45.0,\"imgUrl\":\"\",\"categories\":[]}"))
+				.andExpect(status().isOk());
+
+		//The late read puts what it loaded under the ETag it read before loading it
+		cacheManager.getCache("productById").put(List.of(productId, eTag), old);
+		assertEquals("Cached Lamp", productService.findById(productId, eTag).getName());
+
+		String newETag = getProduct("Cached Wall Lamp");
+		assertNotEquals(eTag, newETag);
+		assertEquals(newETag, productService.findETagById(productId));
+	}
+
+	//Performing GET /products/{id}, checking the name of the Product and returning its ETag
+	private String getProduct(String name) throws Exception {
+		MvcResult result = mockMvc.perform(get("/products/" + productId))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.name").value(name))
+				.andReturn();
+		return result.getResponse().getHeader(HttpHeaders.ETAG);
+	}
+
+	//Performing GET /products, checking the name of the Product within the List and returning the ETag of the List
+	private String getList(String name) throws Exception {
+		MvcResult result = mockMvc.perform(get("/products"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$[?(@.id == " + productId + ")].name").value(name))
+				.andReturn();
+		return result.getResponse().getHeader(HttpHeaders.ETAG);
+	}
+}
@@ -0,0 +1,105 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.events.CatalogChangedEvent;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.ProductCategoryFilterService;
+
+/*Behavior of the Category Bitmaps (see ProductCategoryFilterService): "all" (intersection) and "any" (union) filters
+  walked through the "after" cursor, and the Product and Category writes that race with the startup build. The join
+  table is mocked through the Repository*/
+
+class ProductCategoryFilterTests {
+
+	private ProductRepository productRepository;
+	private ProductCategoryFilterService filterService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		filterService = new ProductCategoryFilterService();
+		ReflectionTestUtils.setField(filterService, "productRepository", productRepository);
+	}
+
+	@Test
+	void allAndAnyFiltersFollowTheCursor() {
+		//Products 1 and 4 belong to Categories 10 and 20, Product 2 to 10 only, Product 3 to 20 only and Product 5 to 30
+		when(productRepository.findAllCategoryPairs()).thenReturn(pairs(1, 10, 1, 20, 2, 10, 3, 20, 4, 10, 4, 20, 5, 30));
+		filterService.buildIndex();
+
+		assertEquals(List.of(1L, 2L, 3L, 4L), filterService.findProductIds(List.of(10L, 20L), false, 0, 10));
+		assertEquals(List.of(1L, 2L), filterService.findProductIds(List.of(10L, 20L), false, 0, 2));
+		assertEquals(List.of(3L, 4L), filterService.findProductIds(List.of(10L, 20L), false, 2, 2));
+		assertEquals(List.of(1L, 4L), filterService.findProductIds(List.of(10L, 20L), true, 0, 10));
+		assertEquals(List.of(4L), filterService.findProductIds(List.of(10L, 20L), true, 1, 10));
+		assertEquals(List.of(), filterService.findProductIds(List.of(10L, 20L), true, 4, 10));
+	}
+
+	@Test
+	void unknownCategoriesHaveNoProducts() {
+		when(productRepository.findAllCategoryPairs()).thenReturn(pairs(1, 10, 2, 20));
+		filterService.buildIndex();
+
+		assertEquals(List.of(), filterService.findProductIds(List.of(10L, 99L), true, 0, 10));
+		assertEquals(List.of(1L), filterService.findProductIds(List.of(10L, 99L), false, 0, 10));
+	}
+
+	@Test
+	void writesAfterTheBuildUpdateTheBitmaps() {
+		when(productRepository.findAllCategoryPairs()).thenReturn(pairs(1, 10, 2, 10));
+		filterService.buildIndex();
+
+		when(productRepository.findCategoryIdsById(1L)).thenReturn(List.of(20L));
+		filterService.onCatalogChanged(new CatalogChangedEvent(product(1L), false));
+		filterService.onCatalogChanged(new CatalogChangedEvent(product(2L), true));
+
+		assertEquals(List.of(), filterService.findProductIds(List.of(10L), false, 0, 10));
+		assertEquals(List.of(1L), filterService.findProductIds(List.of(20L), false, 0, 10));
+	}
+
+	@Test
+	void writesDuringTheBuildAreNotLost() {
+		when(productRepository.findCategoryIdsById(3L)).thenReturn(List.of(10L));
+		when(productRepository.findCategoryIdsById(1L)).thenReturn(List.of(20L));
+		when(productRepository.findAllCategoryPairs()).thenAnswer(invocation -> {
+			//Snapshot taken before Product 3 was created, Product 1 was moved to Category 20 and Product 2 was deleted
+			List<Object[]> snapshot = pairs(1, 10, 2, 10, 2, 30);
+			filterService.onCatalogChanged(new CatalogChangedEvent(product(3L), false));
+			filterService.onCatalogChanged(new CatalogChangedEvent(product(1L), false));
+			filterService.onCatalogChanged(new CatalogChangedEvent(product(2L), true));
+			filterService.onCatalogChanged(new CatalogChangedEvent(new Category(30L, "Removed"), true));
+			return snapshot;
+		});
+
+		filterService.buildIndex();
+
+		assertEquals(List.of(3L), filterService.findProductIds(List.of(10L), false, 0, 10));
+		assertEquals(List.of(1L), filterService.findProductIds(List.of(20L), false, 0, 10));
+		assertEquals(List.of(), filterService.findProductIds(List.of(30L), false, 0, 10));
+	}
+
+	private static Product product(Long id) {
+		return new Product(id, "Product " + id, "", 1000, "");
+	}
+
+	//(Product id, Category id) pairs, as returned by ProductRepository.findAllCategoryPairs()
+	private static List<Object[]> pairs(long... ids) {
+		List<Object[]> pairs = new ArrayList<>();
+		for (int i = 0; i < ids.length; i += 2) {
+			pairs.add(new Object[] { ids[i], ids[i + 1] });
+		}
+		return pairs;
+	}
+}
@@ -0,0 +1,169 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import com.educandoweb.springBootStudies.dto.ProductSummary;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.events.CatalogChangedEvent;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.services.ProductSearchService;
+import com.educandoweb.springBootStudies.services.exceptions.InvalidRequestException;
+
+/*Behavior of the in-memory Product search (see ProductSearchService): prefix and whole-token matches, AND semantics of
+  the query terms, ranking, and the index updates that race with the startup build. The Products reach the index the
+  same way they do at runtime (through CatalogChangedEvents and the build), with the Repository mocked*/
+
+class ProductSearchTests {
+
+	private ProductRepository productRepository;
+	private ProductSearchService searchService;
+
+	@BeforeEach
+	void setUp() {
+		productRepository = mock(ProductRepository.class);
+		searchService = new ProductSearchService();
+		ReflectionTestUtils.setField(searchService, "productRepository", productRepository);
+	}
+
+	@Test
+	void wholeTokensRankBeforePrefixMatches() {
+		write(product(1L, "Laptop bag", "Padded"));
+		write(product(2L, "Lap desk", "Wooden"));
+
+		assertEquals(List.of(2L, 1L), search("lap", 10));
+		assertEquals(List.of(1L), search("lapt", 10));
+	}
+
+	@Test
+	void everyTermMustMatch() {
+		write(product(1L, "Gaming Laptop", "Fast"));
+		write(product(2L, "Laptop bag", "Padded"));
+		write(product(3L, "Gaming chair", "Ergonomic"));
+
+		assertEquals(List.of(1L), search("gaming laptop", 10));
+		assertEquals(List.of(), search("gaming desk", 10));
+	}
+
+	@Test
+	void matchesIgnoreCaseAndAccents() {
+		write(product(1L, "Café Brasil", "Roasted beans"));
+
+		assertEquals(List.of(1L), search("CAFE", 10));
+		assertEquals(List.of(1L), search("brasil-café", 10));
+	}
+
+	@Test
+	void nameMatchesRankBeforeDescriptionMatchesAndTiesFollowTheId() {
+		write(product(3L, "Desk", "Fits a chair"));
+		write(product(2L, "Chair", "Wooden"));
+		write(product(1L, "Chair", "Plastic"));
+
+		assertEquals(List.of(1L, 2L, 3L), search("chair", 10));
+		assertEquals(List.of(1L, 2L), search("chair", 2));
+	}
+
+	@Test
+	void updatedAndDeletedProductsLeaveTheIndex() {
+		write(product(1L, "Laptop", "Fast"));
+		write(product(1L, "Tablet", "Fast"));
+
+		assertEquals(List.of(), search("laptop", 10));
+		assertEquals(List.of(1L), search("tablet", 10));
+
+		searchService.onCatalogChanged(new CatalogChangedEvent(product(1L, "Tablet", "Fast"), true));
+		assertEquals(List.of(), search("tablet", 10));
+	}
+
+	@Test
+	void productDeletedDuringTheBuildIsNotIndexedAgain() {
+		List<Object[]> rows = new ArrayList<>();
+		rows.add(new Object[] { 1L, 0, "Laptop", "Fast", 1000L, "" });
+		rows.add(new Object[] { 2L, 0, "Laptop bag", "Padded", 500L, "" });
+		when(productRepository.findAllSearchRows()).thenAnswer(invocation -> {
+			//Product 1 is deleted (and its event handled) after its row was read by the build
+			searchService.onCatalogChanged(new CatalogChangedEvent(product(1L, "Laptop", "Fast"), true));
+			return rows;
+		});
+
+		searchService.buildIndex();
+
+		assertEquals(List.of(2L), search("laptop", 10));
+	}
+
+	@Test
+	void olderRowReadByTheBuildDoesNotReplaceANewerVersion() {
+		when(productRepository.findAllSearchRows()).thenAnswer(invocation -> {
+			Product renamed = product(1L, "Tablet", "Fast");
+			ReflectionTestUtils.setField(renamed, "version", 1);
+			searchService.onCatalogChanged(new CatalogChangedEvent(renamed, false));
+			List<Object[]> rows = new ArrayList<>();
+			rows.add(new Object[] { 1L, 0, "Laptop", "Fast", 1000L, "" });
+			return rows;
+		});
+
+		searchService.buildIndex();
+
+		assertEquals(List.of(), search("laptop", 10));
+		assertEquals(List.of(1L), search("tablet", 10));
+	}
+
+	/*Products inserted and deleted over and over: the released document numbers are reused, so the index only grows
+	  with the Products indexed at the same time, and a late update of a deleted Product does not bring it back*/
+	@Test
+	void churnKeepsTheIndexBounded() {
+		long nextId = 1;
+		for(int round = 0; round < 50; round++) {
+			List<Product> batch = new ArrayList<>();
+			for(int i = 0; i < 100; i++) {
+				Product product = product(nextId++, "Churn lamp " + round, "Round " + round);
+				batch.add(product);
+				write(product);
+			}
+			assertEquals(100, search("churn lamp", ProductSearchService.MAX_RESULTS).size());
+
+			for(Product product : batch) {
+				searchService.onCatalogChanged(new CatalogChangedEvent(product, true));
+			}
+			write(batch.get(0));
+			assertEquals(List.of(), search("churn", 10));
+		}
+
+		assertEquals(100, (int) ReflectionTestUtils.getField(searchService, "documentCount"));
+		assertEquals(0, ((Map<?, ?>) ReflectionTestUtils.getField(searchService, "documents")).size());
+		assertEquals(1024, ((Object[]) ReflectionTestUtils.getField(searchService, "summaries")).length);
+
+		write(product(nextId, "Churn lamp", "Last"));
+		assertEquals(List.of(nextId), search("churn", 10));
+	}
+
+	@Test
+	void invalidQueriesAndLimitsAreRejected() {
+		assertThrows(InvalidRequestException.class, () -> searchService.search("!!", 10));
+		assertThrows(InvalidRequestException.class, () -> searchService.search("laptop", 0));
+		assertThrows(InvalidRequestException.class, () -> searchService.search("laptop", ProductSearchService.MAX_RESULTS + 1));
+	}
+
+	private void write(Product product) {
+		searchService.onCatalogChanged(new CatalogChangedEvent(product, false));
+	}
+
+	private List<Long> search(String query, int limit) {
+		return searchService.search(query, limit).stream().map(ProductSummary::getId).collect(Collectors.toList());
+	}
+
+	private static Product product(Long id, String name, String description) {
+		return new Product(id, name, description, 1000, "");
+	}
+}
@@ -0,0 +1,254 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import javax.persistence.EntityManagerFactory;
+
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import com.educandoweb.springBootStudies.entities.Category;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Payment;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.CategoryRepository;
+import com.educandoweb.springBootStudies.repositories.OrderItemRepository;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+
+/*N+1 Regression Guard: counts the SQL statements executed by each GET End Point (through SqlStatementCounter)
+  and fails whenever an End Point exceeds its Query Budget (see the budgets documented at OrderResource).
+  Both the Spring Caches and the Hibernate Second-Level Cache are cleared before each request, so that
+  the budgets hold for a cold start, and the same budget is checked for different amounts of rows*/
+
+/*OBS: The pre-serialized catalog (CatalogSnapshotService) is disabled, so that the catalog Lists are read through
+  Hibernate as well, and no background rebuild runs statements while a request is being counted*/
+
+@SpringBootTest(properties = {
+		"spring.jpa.properties.hibernate.session_factory.statement_inspector=com.educandoweb.springBootStudies.resources.SqlStatementCounter",
+		"catalog.snapshot.enabled=false" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryBudgetTests {
+
+	private static final int ORDERS = 60;
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private CacheManager cacheManager;
+
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	private Long orderId;
+	private Long productId;
+	private Long categoryId;
+	private Long userId;
+
+	@BeforeAll
+	void seed() {
+		List<User> users = new ArrayList<>();
+		for (int i = 0; i < 10; i++) {
+			users.add(new User(null, "User " + i, "user" + i + "@gmail.com", "988888888", "123456"));
+		}
+		userRepository.saveAll(users);
+
+		List<Category> categories = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			categories.add(new Category(null, "Category " + i));
+		}
+		categoryRepository.saveAll(categories);
+
+		List<Product> products = new ArrayList<>();
+		for (int i = 0; i < 20; i++) {
+			Product product = new Product(null, "Product " + i, "Description " + i, 1000 + 100 * i, "");
+			product.getCategories().add(categories.get(i % 5));
+			product.getCategories().add(categories.get((i + 1) % 5));
+			products.add(product);
+		}
+		productRepository.saveAll(products);
+
+		List<Order> orders = new ArrayList<>();
+		List<OrderItem> items = new ArrayList<>();
+		for (int i = 0; i < ORDERS; i++) {
+			OrderStatus status = i % 2 == 0 ? OrderStatus.PAID : OrderStatus.WAITING_PAYMENT;
+			Order order = new Order(null, Instant.parse("2021-01-01T00:00:00Z").plusSeconds(i * 3600L), status, users.get(i % 10));
+			for (int j = 0; j < 2; j++) {
+				Product product = products.get((i + j * 7) % 20);
+				OrderItem item = new OrderItem(order, product, j + 1, product.getPrice());
+				order.addItem(item);
+				items.add(item);
+			}
+			orders.add(order);
+		}
+		orderRepository.saveAll(orders);
+		orderItemRepository.saveAll(items);
+
+		for (int i = 0; i < ORDERS; i += 2) {
+			Order order = orders.get(i);
+			order.setPayment(new Payment(null, order.getMoment().plusSeconds(60), order));
+		}
+		orderRepository.saveAll(orders);
+
+		orderId = orders.get(0).getId();
+		productId = products.get(0).getId();
+		categoryId = categories.get(0).getId();
+		userId = users.get(0).getId();
+	}
+
+	@Test
+	void findAllOrdersDoesNotDependOnTheAmountOfOrders() throws Exception {
+		assertBudget("/orders", 4);
+		assertBudget("/orders?limit=5", 4);
+		assertBudget("/orders?limit=" + ORDERS, 4);
+	}
+
+	@Test
+	void summaryViewsUseASingleProjection() throws Exception {
+		assertBudget("/orders?view=summary", 1);
+		assertBudget("/orders?view=summary&limit=5", 1);
+		assertBudget("/products?view=summary", 2);
+	}
+
+	@Test
+	void findOrderByIdFetchesTheWholeGraphAtOnce() throws Exception {
+		assertBudget("/orders/" + orderId, 1);
+	}
+
+	@Test
+	void findOrderTotalsUsesASingleProjection() throws Exception {
+		assertBudget("/orders/totals", 1);
+	}
+
+	@Test
+	void orderStatsAreAggregatedByTheDatabase() throws Exception {
+		assertBudget("/orders/stats?from=2021-01-01T00:00:00Z&to=2021-02-01T00:00:00Z&bucket=day", 1);
+		assertBudget("/orders/stats?from=2021-01-01T00:00:00Z&to=2021-02-01T00:00:00Z&bucket=month&groupBy=status", 1);
+	}
+
+	@Test
+	void exportOrdersStreamsWithBatchedAssociations() throws Exception {
+		assertBudget("/orders/export", 4);
+	}
+
+	//OBS: The catalog End Points first run their ETag queries (one per table covered by the ETag, see ProductService)
+	@Test
+	void productsLoadTheirCategoriesInBatches() throws Exception {
+		assertBudget("/products", 4);
+		assertBudget("/products/" + productId, 3);
+	}
+
+	@Test
+	void categoriesAndUsersUseASingleStatement() throws Exception {
+		assertBudget("/categories", 2);
+		assertBudget("/categories/" + categoryId, 2);
+		assertBudget("/users", 1);
+		assertBudget("/users/" + userId, 1);
+	}
+
+	@Test
+	void userOrderSummariesAreReadFromTheirOwnTable() throws Exception {
+		assertBudget("/users/" + userId + "/summary", 1);
+		assertBudget("/users?include=summary", 2);
+	}
+
+	@Test
+	void unchangedCatalogPollsOnlyRunTheETagQueries() throws Exception {
+		assertNotModifiedBudget("/products", 2);
+		assertNotModifiedBudget("/products?view=summary", 1);
+		assertNotModifiedBudget("/products/" + productId, 1);
+		assertNotModifiedBudget("/categories", 1);
+		assertNotModifiedBudget("/categories/" + categoryId, 1);
+	}
+
+	//OBS: Besides the SELECT and the UPDATE of the batch, the budget includes the update of the clients' UserOrderSummary rows
+	@Test
+	void orderStatusTransitionsUseOneUpdatePerBatch() throws Exception {
+		List<Long> ids = orderRepository.findAll().stream()
+				.filter(order -> order.getOrderStatus() == OrderStatus.WAITING_PAYMENT)
+				.map(Order::getId).collect(Collectors.toList());
+		SqlStatementCounter.reset();
+
+		mockMvc.perform(post("/orders/status-transitions").contentType(MediaType.APPLICATION_JSON)
+				.content("{\"target\":\"CANCELED\",\"ids\":" + ids + "}"))
+				.andExpect(status().isOk());
+
+		int count = SqlStatementCounter.count();
+		assertTrue(count <= 5, "POST /orders/status-transitions executed " + count + " SQL statements, but its budget is 5");
+	}
+
+	//Performing a GET request with cold caches and checking that it succeeds within "budget" SQL statements
+	private void assertBudget(String url, int budget) throws Exception {
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		SqlStatementCounter.reset();
+
+		MvcResult result = mockMvc.perform(get(url)).andReturn();
+		if (result.getRequest().isAsyncStarted()) {
+			mockMvc.perform(asyncDispatch(result)).andExpect(status().isOk());
+		} else {
+			status().isOk().match(result);
+		}
+
+		int count = SqlStatementCounter.count();
+		assertTrue(count <= budget, "GET " + url + " executed " + count + " SQL statements, but its budget is " + budget);
+	}
+
+	//Repeating a GET request with the ETag it returned and checking that the 304 (Not Modified) costs at most "budget" SQL statements
+	private void assertNotModifiedBudget(String url, int budget) throws Exception {
+		String eTag = mockMvc.perform(get(url)).andExpect(status().isOk()).andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+		cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+		entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+		SqlStatementCounter.reset();
+
+		mockMvc.perform(get(url).header(HttpHeaders.IF_NONE_MATCH, eTag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+
+		int count = SqlStatementCounter.count();
+		assertTrue(count <= budget, "Conditional GET " + url + " executed " + count + " SQL statements, but its budget is " + budget);
+	}
+}
@@ -0,0 +1,29 @@
+package com.educandoweb.springBootStudies.resources;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+/*Hibernate StatementInspector used by the tests to count every SQL statement prepared by Hibernate
+  (registered through the hibernate.session_factory.statement_inspector property, see QueryBudgetTests)*/
+
+public class SqlStatementCounter implements StatementInspector {
+
+	private static final long serialVersionUID = 1L;
+
+	private static final AtomicInteger COUNT = new AtomicInteger();
+
+	@Override
+	public String inspect(String sql) {
+		COUNT.incrementAndGet();
+		return sql;
+	}
+
+	static void reset() {
+		COUNT.set(0);
+	}
+
+	static int count() {
+		return COUNT.get();
+	}
+}
@@ -0,0 +1,218 @@
+package com.educandoweb.springBootStudies.resources;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.educandoweb.springBootStudies.dto.OrderStatusTransitionRequest;
+import com.educandoweb.springBootStudies.entities.Order;
+import com.educandoweb.springBootStudies.entities.OrderItem;
+import com.educandoweb.springBootStudies.entities.Product;
+import com.educandoweb.springBootStudies.entities.User;
+import com.educandoweb.springBootStudies.entities.UserOrderSummary;
+import com.educandoweb.springBootStudies.entities.enums.OrderStatus;
+import com.educandoweb.springBootStudies.repositories.OrderItemRepository;
+import com.educandoweb.springBootStudies.repositories.OrderRepository;
+import com.educandoweb.springBootStudies.repositories.ProductRepository;
+import com.educandoweb.springBootStudies.repositories.UserOrderSummaryRepository;
+import com.educandoweb.springBootStudies.repositories.UserRepository;
+import com.educandoweb.springBootStudies.services.OrderStatusTransitionService;
+
+/*Order Summaries of the Users (see UserOrderSummaryService): the order count, the lifetime spend, the amounts per status
+  and the last order moment stored for a client after each kind of write of its Orders (inserts, item price and quantity
+  changes, status transitions of a single Order and bulk ones, and deletions)*/
+
+/*OBS: Each test has a client of its own, so the figures only depend on the Orders it writes. Every write is committed
+  by its own transaction, and the summary is updated right after the commit*/
+
+@SpringBootTest(properties = "catalog.snapshot.enabled=false")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserOrderSummaryTests {
+
+	private static final Instant MOMENT = Instant.parse("2031-05-10T12:00:00Z");
+
+	@Autowired
+	private MockMvc mockMvc;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private ProductRepository productRepository;
+
+	@Autowired
+	private OrderRepository orderRepository;
+
+	@Autowired
+	private OrderItemRepository orderItemRepository;
+
+	@Autowired
+	private UserOrderSummaryRepository summaryRepository;
+
+	@Autowired
+	private OrderStatusTransitionService orderStatusTransitionService;
+
+	@Autowired
+	private PlatformTransactionManager transactionManager;
+
+	private Product keyboard;
+	private Product mouse;
+
+	//Amount of clients created so far
+	private int clients;
+
+	@BeforeAll
+	void seed() {
+		keyboard = productRepository.save(new Product(null, "Summary Keyboard", "Mechanical keyboard", 12990, ""));
+		mouse = productRepository.save(new Product(null, "Summary Mouse", "Wireless mouse", 4550, ""));
+	}
+
+	@Test
+	void insertedOrdersAreCounted() throws Exception {
+		Long clientId = newClient();
+
+		placeOrder(clientId, MOMENT, OrderStatus.PAID, 2, 1);
+		assertSummary(clientId, 1, 2 * 12990 + 4550, MOMENT, Map.of(OrderStatus.PAID, 1L));
+
+		placeOrder(clientId, MOMENT.plusSeconds(3600), OrderStatus.WAITING_PAYMENT, 0, 3);
+		assertSummary(clientId, 2, 2 * 12990 + 4550 + 3 * 4550, MOMENT.plusSeconds(3600),
+				Map.of(OrderStatus.PAID, 1L, OrderStatus.WAITING_PAYMENT, 1L));
+
+		//An older Order does not replace the last order moment
+		placeOrder(clientId, MOMENT.minusSeconds(3600), OrderStatus.PAID, 1, 0);
+		assertSummary(clientId, 3, 3 * 12990 + 4 * 4550, MOMENT.plusSeconds(3600),
+				Map.of(OrderStatus.PAID, 2L, OrderStatus.WAITING_PAYMENT, 1L));
+
+		mockMvc.perform(get("/users/" + clientId + "/summary"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$.orderCount").value(3))
+				.andExpect(jsonPath("$.totalSpent").value(571.7))
+				.andExpect(jsonPath("$.lastOrderMoment").value("2031-05-10T13:00:00Z"))
+				.andExpect(jsonPath("$.ordersByStatus.PAID").value(2));
+	}
+
+	@Test
+	void itemPriceAndQuantityChangesUpdateTheSpend() {
+		Long clientId = newClient();
+		Long orderId = placeOrder(clientId, MOMENT, OrderStatus.PAID, 1, 1);
+		assertSummary(clientId, 1, 12990 + 4550, MOMENT, Map.of(OrderStatus.PAID, 1L));
+
+		changeItems(orderId, item -> {
+			if (item.getProduct().getId().equals(keyboard.getId())) {
+				item.setPrice(9990);
+			}
+		});
+		assertSummary(clientId, 1, 9990 + 4550, MOMENT, Map.of(OrderStatus.PAID, 1L));
+
+		changeItems(orderId, item -> {
+			if (item.getProduct().getId().equals(mouse.getId())) {
+				item.setQuantity(4);
+			}
+		});
+		assertSummary(clientId, 1, 9990 + 4 * 4550, MOMENT, Map.of(OrderStatus.PAID, 1L));
+	}
+
+	@Test
+	void statusTransitionsMoveTheCounts() {
+		Long clientId = newClient();
+		Long first = placeOrder(clientId, MOMENT, OrderStatus.WAITING_PAYMENT, 1, 0);
+		Long second = placeOrder(clientId, MOMENT.plusSeconds(60), OrderStatus.PAID, 0, 1);
+		long spent = 12990 + 4550;
+
+		//A single Order changed through JPA (see OrderEntityListener)
+		inTransaction(() -> orderRepository.findById(first).orElseThrow().setOrderStatus(OrderStatus.PAID));
+		assertSummary(clientId, 2, spent, MOMENT.plusSeconds(60), Map.of(OrderStatus.PAID, 2L));
+
+		//Both Orders moved by a bulk transition (see OrderStatusTransitionService)
+		orderStatusTransitionService.transition(new OrderStatusTransitionRequest(OrderStatus.SHIPPED, List.of(first, second), null));
+		assertSummary(clientId, 2, spent, MOMENT.plusSeconds(60), Map.of(OrderStatus.SHIPPED, 2L));
+
+		orderStatusTransitionService.transition(new OrderStatusTransitionRequest(OrderStatus.CANCELED, List.of(second), null));
+		assertSummary(clientId, 2, spent, MOMENT.plusSeconds(60), Map.of(OrderStatus.SHIPPED, 1L, OrderStatus.CANCELED, 1L));
+	}
+
+	@Test
+	void deletingTheLastOrderLooksUpTheLastMomentAgain() {
+		Long clientId = newClient();
+		placeOrder(clientId, MOMENT, OrderStatus.PAID, 1, 0);
+		Long last = placeOrder(clientId, MOMENT.plusSeconds(7200), OrderStatus.PAID, 0, 2);
+
+		inTransaction(() -> {
+			Order order = orderRepository.findById(last).orElseThrow();
+			orderItemRepository.deleteAll(order.getItems());
+			orderRepository.delete(order);
+		});
+
+		assertSummary(clientId, 1, 12990, MOMENT, Map.of(OrderStatus.PAID, 1L));
+	}
+
+	//A client whose Orders were placed before its summary existed has the summary filled from them at its next write
+	@Test
+	void missingSummaryIsCreatedFromTheOrders() {
+		Long clientId = newClient();
+		placeOrder(clientId, MOMENT, OrderStatus.DELIVERED, 1, 1);
+		summaryRepository.deleteById(clientId);
+
+		placeOrder(clientId, MOMENT.plusSeconds(60), OrderStatus.PAID, 0, 1);
+
+		assertSummary(clientId, 2, 12990 + 2 * 4550, MOMENT.plusSeconds(60),
+				Map.of(OrderStatus.DELIVERED, 1L, OrderStatus.PAID, 1L));
+	}
+
+	private Long newClient() {
+		clients++;
+		return userRepository.save(new User(null, "Summary Client " + clients, "summary" + clients + "@gmail.com", "955555555", "123456")).getId();
+	}
+
+	//Placing an Order with the informed quantities of keyboards and mice (at a transaction of its own)
+	private Long placeOrder(Long clientId, Instant moment, OrderStatus status, int keyboards, int mice) {
+		return new TransactionTemplate(transactionManager).execute(transaction -> {
+			Order order = new Order(null, moment, status, userRepository.getOne(clientId));
+			OrderItem keyboardItem = new OrderItem(order, keyboard, keyboards, keyboard.getPrice());
+			OrderItem mouseItem = new OrderItem(order, mouse, mice, mouse.getPrice());
+			order.addItem(keyboardItem);
+			order.addItem(mouseItem);
+			orderRepository.save(order);
+			orderItemRepository.saveAll(List.of(keyboardItem, mouseItem));
+			return order.getId();
+		});
+	}
+
+	private void changeItems(Long orderId, Consumer<OrderItem> change) {
+		inTransaction(() -> orderRepository.findById(orderId).orElseThrow().getItems().forEach(change));
+	}
+
+	private void inTransaction(Runnable runnable) {
+		new TransactionTemplate(transactionManager).executeWithoutResult(transaction -> runnable.run());
+	}
+
+	//Checking the stored summary of the client (the statuses left out of "byStatus" must have no Orders)
+	private void assertSummary(Long clientId, long orders, long spent, Instant lastMoment, Map<OrderStatus, Long> byStatus) {
+		UserOrderSummary summary = summaryRepository.findById(clientId).orElseThrow();
+		assertEquals(orders, summary.getOrderCount());
+		assertEquals(spent, summary.getTotalSpent());
+		assertEquals(lastMoment, summary.getLastOrderMoment());
+		for (OrderStatus status : OrderStatus.values()) {
+			assertEquals(byStatus.getOrDefault(status, 0L), summary.getOrdersByStatus().get(status), "Orders " + status);
+		}
+	}
+}